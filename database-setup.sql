@@ -31,38 +31,210 @@ CREATE TABLE IF NOT EXISTS documents (
     file_name VARCHAR(500) NOT NULL,
     file_path VARCHAR(1000) NOT NULL,
     status VARCHAR(50) NOT NULL DEFAULT 'DRAFT',
+    version BIGINT NOT NULL DEFAULT 0,
+    pending_signers INT NOT NULL DEFAULT 0,
+    expires_at TIMESTAMP NULL,
     created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
     updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
     INDEX idx_owner (owner_id),
     INDEX idx_status (status),
+    INDEX idx_owner_status (owner_id, status),
+    INDEX idx_expires_at (expires_at),
     FOREIGN KEY (owner_id) REFERENCES users(id) ON DELETE CASCADE
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
 
+-- Lower-cased file name trigrams used for substring search, maintained on upload and rename
+CREATE TABLE IF NOT EXISTS document_name_trigrams (
+    owner_id BIGINT NOT NULL,
+    trigram CHAR(3) CHARACTER SET utf8mb4 COLLATE utf8mb4_bin NOT NULL,
+    document_id BIGINT NOT NULL,
+    PRIMARY KEY (owner_id, trigram, document_id),
+    INDEX idx_document (document_id),
+    FOREIGN KEY (document_id) REFERENCES documents(id) ON DELETE CASCADE
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
+
+-- One row per one-off data backfill the application has finished, so it is not repeated on every start
+CREATE TABLE IF NOT EXISTS completed_backfills (
+    name VARCHAR(100) PRIMARY KEY,
+    completed_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
+
+-- Structural facts recorded by the upload preflight
+CREATE TABLE IF NOT EXISTS document_metadata (
+    document_id BIGINT PRIMARY KEY,
+    content_type VARCHAR(255) NOT NULL,
+    size_bytes BIGINT NOT NULL,
+    sha256 VARCHAR(64) NOT NULL,
+    page_count INT,
+    page_sizes TEXT,
+    encrypted BIT NOT NULL DEFAULT 0,
+    updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+    FOREIGN KEY (document_id) REFERENCES documents(id) ON DELETE CASCADE
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
+
+-- Revision history; a revision is the first size_bytes bytes of the live file or of its archived chain
+CREATE TABLE IF NOT EXISTS document_revisions (
+    id BIGINT PRIMARY KEY AUTO_INCREMENT,
+    document_id BIGINT NOT NULL,
+    revision_number INT NOT NULL,
+    size_bytes BIGINT NOT NULL,
+    delta_bytes BIGINT NOT NULL,
+    sha256 VARCHAR(64) NOT NULL,
+    archive_path VARCHAR(1000),
+    action VARCHAR(100) NOT NULL,
+    performed_by BIGINT NOT NULL,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    UNIQUE KEY uk_document_revision (document_id, revision_number),
+    FOREIGN KEY (document_id) REFERENCES documents(id) ON DELETE CASCADE
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
+
+-- Extracted document text for content search, written in batches by the background indexer
+CREATE TABLE IF NOT EXISTS document_texts (
+    document_id BIGINT PRIMARY KEY,
+    owner_id BIGINT NOT NULL,
+    content LONGTEXT NOT NULL,
+    indexed_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    INDEX idx_owner (owner_id),
+    FULLTEXT INDEX ft_content (content),
+    FOREIGN KEY (document_id) REFERENCES documents(id) ON DELETE CASCADE
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
+
+-- Documents to (re-)extract later: failed extractions with their backoff, and changes that overflowed the
+-- in-memory queue (attempts = 0)
+CREATE TABLE IF NOT EXISTS document_text_retries (
+    document_id BIGINT PRIMARY KEY,
+    attempts INT NOT NULL,
+    retry_at TIMESTAMP NOT NULL,
+    INDEX idx_retry_at (retry_at),
+    FOREIGN KEY (document_id) REFERENCES documents(id) ON DELETE CASCADE
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
+
+-- Page hashes of the editor HTML last served or saved for a document version, used to re-render only changed pages
+CREATE TABLE IF NOT EXISTS document_html_pages (
+    document_id BIGINT PRIMARY KEY,
+    version BIGINT NOT NULL,
+    page_hashes MEDIUMTEXT NOT NULL,
+    updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+    FOREIGN KEY (document_id) REFERENCES documents(id) ON DELETE CASCADE
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
+
+-- Server-held editor drafts: patched page by page, converted back to PDF only on finalize
+CREATE TABLE IF NOT EXISTS document_drafts (
+    document_id BIGINT PRIMARY KEY,
+    document_version BIGINT NOT NULL,
+    revision BIGINT NOT NULL DEFAULT 0,
+    page_count INT NOT NULL,
+    updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+    INDEX idx_updated_at (updated_at),
+    FOREIGN KEY (document_id) REFERENCES documents(id) ON DELETE CASCADE
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
+
+-- Deflate-compressed HTML per draft page; page 0 holds the styles
+CREATE TABLE IF NOT EXISTS document_draft_pages (
+    document_id BIGINT NOT NULL,
+    page_number INT NOT NULL,
+    content MEDIUMBLOB NOT NULL,
+    PRIMARY KEY (document_id, page_number),
+    FOREIGN KEY (document_id) REFERENCES document_drafts(document_id) ON DELETE CASCADE
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
+
+-- Signer ids come from a sequence so signer sets can be inserted in JDBC batches (matches allocationSize)
+CREATE SEQUENCE IF NOT EXISTS signers_seq START WITH 1 INCREMENT BY 50;
+
 CREATE TABLE IF NOT EXISTS signers (
     id BIGINT PRIMARY KEY AUTO_INCREMENT,
     document_id BIGINT NOT NULL,
     email VARCHAR(255) NOT NULL,
     status VARCHAR(50) NOT NULL DEFAULT 'PENDING',
     signed_at TIMESTAMP NULL,
+    expires_at TIMESTAMP NULL,
     INDEX idx_document (document_id),
     INDEX idx_email (email),
+    INDEX idx_expires_at (expires_at),
     FOREIGN KEY (document_id) REFERENCES documents(id) ON DELETE CASCADE
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
 
-CREATE TABLE IF NOT EXISTS audit_logs (
+-- Outgoing mail, delivered by the background worker; attachments are referenced by storage key
+CREATE TABLE IF NOT EXISTS email_outbox (
     id BIGINT PRIMARY KEY AUTO_INCREMENT,
+    kind VARCHAR(50) NOT NULL,
+    recipient VARCHAR(255) NOT NULL,
+    subject VARCHAR(500) NOT NULL,
+    body TEXT NOT NULL,
+    attachment_path VARCHAR(1000),
+    attachment_name VARCHAR(500),
+    document_id BIGINT,
+    requested_by BIGINT,
+    status VARCHAR(50) NOT NULL DEFAULT 'PENDING',
+    attempts INT NOT NULL DEFAULT 0,
+    next_attempt_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    claimed_at TIMESTAMP NULL,
+    last_error VARCHAR(1000),
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    sent_at TIMESTAMP NULL,
+    INDEX idx_status_next_attempt (status, next_attempt_at)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
+
+-- Audit history outlives documents, so there are no foreign keys. Monthly partitions are added ahead of
+-- time and closed ones are moved to compressed segment files by the retention job.
+CREATE TABLE IF NOT EXISTS audit_logs (
+    id BIGINT NOT NULL AUTO_INCREMENT,
     document_id BIGINT NOT NULL,
     action VARCHAR(100) NOT NULL,
     performed_by BIGINT NOT NULL,
     ip_address VARCHAR(50),
     timestamp TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (id, timestamp),
     INDEX idx_document (document_id),
     INDEX idx_user (performed_by),
-    INDEX idx_timestamp (timestamp),
-    FOREIGN KEY (document_id) REFERENCES documents(id) ON DELETE CASCADE,
-    FOREIGN KEY (performed_by) REFERENCES users(id) ON DELETE CASCADE
+    INDEX idx_timestamp (timestamp)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4
+PARTITION BY RANGE (UNIX_TIMESTAMP(timestamp)) (
+    PARTITION p_history VALUES LESS THAN (UNIX_TIMESTAMP('2026-01-01 00:00:00')),
+    PARTITION p_future VALUES LESS THAN MAXVALUE
+);
+
+-- Archived audit partitions; each segment has a sidecar index of its compressed blocks
+CREATE TABLE IF NOT EXISTS audit_segments (
+    partition_name VARCHAR(64) PRIMARY KEY,
+    segment_path VARCHAR(1000) NOT NULL,
+    index_path VARCHAR(1000) NOT NULL,
+    row_count BIGINT NOT NULL,
+    min_timestamp TIMESTAMP NULL,
+    max_timestamp TIMESTAMP NULL,
+    sha256 VARCHAR(64) NOT NULL,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    INDEX idx_range (max_timestamp, min_timestamp)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
 
+-- Upgrade existing installations (safe to re-run)
+ALTER TABLE documents ADD INDEX IF NOT EXISTS idx_owner_status (owner_id, status);
+ALTER TABLE documents ADD COLUMN IF NOT EXISTS version BIGINT NOT NULL DEFAULT 0 AFTER status;
+ALTER TABLE documents ADD COLUMN IF NOT EXISTS pending_signers INT NOT NULL DEFAULT 0 AFTER version;
+ALTER TABLE documents ADD COLUMN IF NOT EXISTS expires_at TIMESTAMP NULL AFTER pending_signers;
+ALTER TABLE documents ADD INDEX IF NOT EXISTS idx_expires_at (expires_at);
+ALTER TABLE signers ADD COLUMN IF NOT EXISTS expires_at TIMESTAMP NULL AFTER signed_at;
+ALTER TABLE signers ADD INDEX IF NOT EXISTS idx_expires_at (expires_at);
+ALTER TABLE document_drafts ADD INDEX IF NOT EXISTS idx_updated_at (updated_at);
+ALTER TABLE audit_logs DROP FOREIGN KEY IF EXISTS audit_logs_ibfk_1;
+ALTER TABLE audit_logs DROP FOREIGN KEY IF EXISTS audit_logs_ibfk_2;
+-- Partition audit_logs only while it is unpartitioned: once AuditRetentionService has added monthly
+-- partitions, repeating this would merge them back into two. Repartitioning copies the table; run it in a
+-- maintenance window on large installations
+SET @audit_logs_unpartitioned = (SELECT COUNT(*) = 0 FROM information_schema.PARTITIONS
+    WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'audit_logs' AND PARTITION_NAME IS NOT NULL);
+SET @ddl = IF(@audit_logs_unpartitioned,
+    'ALTER TABLE audit_logs DROP PRIMARY KEY, ADD PRIMARY KEY (id, timestamp)', 'DO 0');
+PREPARE audit_logs_upgrade FROM @ddl;
+EXECUTE audit_logs_upgrade;
+SET @ddl = IF(@audit_logs_unpartitioned,
+    'ALTER TABLE audit_logs PARTITION BY RANGE (UNIX_TIMESTAMP(timestamp)) (
+        PARTITION p_history VALUES LESS THAN (UNIX_TIMESTAMP(''2026-01-01 00:00:00'')),
+        PARTITION p_future VALUES LESS THAN MAXVALUE)', 'DO 0');
+PREPARE audit_logs_upgrade FROM @ddl;
+EXECUTE audit_logs_upgrade;
+DEALLOCATE PREPARE audit_logs_upgrade;
+
 -- Sample data (optional - for testing)
 -- Note: Password is 'password123' hashed with BCrypt
 -- INSERT INTO users (name, email, password_hash, role, created_at, updated_at) 
@@ -0,0 +1,99 @@
+package com.app.signflow.loadtest;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.apache.pdfbox.pdmodel.font.Standard14Fonts;
+import org.apache.pdfbox.pdmodel.graphics.image.LosslessFactory;
+import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
+
+import javax.imageio.ImageIO;
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Base64;
+import java.util.Random;
+
+/**
+ * Deterministic test documents: letter-size pages of body text with a scanned-looking image on every fourth
+ * page, which puts sizes in the range real contracts and scans reach.
+ */
+final class DocumentFixtures {
+
+	private static final String[] WORDS = {"agreement", "party", "shall", "terms", "payment", "the", "of",
+			"services", "notice", "within", "days", "effective", "date", "and", "to", "any", "liability",
+			"confidential", "information", "termination", "hereby", "provided", "that", "such", "written"};
+
+	private DocumentFixtures() {
+	}
+
+	static byte[] pdf(int pages, Random random) throws IOException {
+		try (PDDocument document = new PDDocument()) {
+			PDType1Font font = new PDType1Font(Standard14Fonts.FontName.HELVETICA);
+			for (int p = 0; p < pages; p++) {
+				PDPage page = new PDPage(PDRectangle.LETTER);
+				document.addPage(page);
+				try (PDPageContentStream content = new PDPageContentStream(document, page)) {
+					content.beginText();
+					content.setFont(font, 10);
+					content.setLeading(13);
+					content.newLineAtOffset(60, 730);
+					for (int line = 0; line < 48; line++) {
+						content.showText(sentence(random));
+						content.newLine();
+					}
+					content.endText();
+					if (p % 4 == 3) {
+						PDImageXObject image = LosslessFactory.createFromImage(document, scan(random));
+						content.drawImage(image, 60, 60, 300, 200);
+					}
+				}
+			}
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			document.save(out);
+			return out.toByteArray();
+		}
+	}
+
+	static Path templatePdf(Path directory) throws IOException {
+		Path template = directory.resolve("converted.pdf");
+		Files.write(template, pdf(1, new Random(0)));
+		return template;
+	}
+
+	static String signaturePng() throws IOException {
+		BufferedImage image = new BufferedImage(240, 80, BufferedImage.TYPE_INT_ARGB);
+		Graphics2D graphics = image.createGraphics();
+		graphics.setColor(Color.BLUE);
+		graphics.setStroke(new BasicStroke(3));
+		graphics.drawPolyline(new int[]{10, 50, 80, 120, 160, 200, 230}, new int[]{60, 20, 55, 25, 60, 30, 45}, 7);
+		graphics.dispose();
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		ImageIO.write(image, "png", out);
+		return "data:image/png;base64," + Base64.getEncoder().encodeToString(out.toByteArray());
+	}
+
+	private static String sentence(Random random) {
+		StringBuilder sentence = new StringBuilder();
+		while (sentence.length() < 90) {
+			sentence.append(WORDS[random.nextInt(WORDS.length)]).append(' ');
+		}
+		return sentence.toString().trim();
+	}
+
+	// Grey noise compresses about as badly as a real scan
+	private static BufferedImage scan(Random random) {
+		BufferedImage image = new BufferedImage(600, 400, BufferedImage.TYPE_BYTE_GRAY);
+		byte[] pixels = new byte[600 * 400];
+		random.nextBytes(pixels);
+		image.getRaster().setDataElements(0, 0, 600, 400, pixels);
+		return image;
+	}
+}
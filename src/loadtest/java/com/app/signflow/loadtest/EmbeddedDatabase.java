@@ -0,0 +1,75 @@
+package com.app.signflow.loadtest;
+
+import ch.vorburger.exec.ManagedProcessException;
+import ch.vorburger.mariadb4j.DB;
+import ch.vorburger.mariadb4j.DBConfigurationBuilder;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.Statement;
+
+/**
+ * MariaDB for the suite: an embedded server on a free port unless {@code loadtest.database-url} points at an
+ * existing one. {@link #reset()} recreates the schema from database-setup.sql, so each run starts empty and
+ * exercises the same DDL as production.
+ */
+class EmbeddedDatabase implements AutoCloseable {
+
+	private static final String DATABASE = "signflow_db";
+
+	private final DB db;
+	private final String serverUrl;
+	private final String username;
+	private final String password;
+	private final Path schema;
+
+	EmbeddedDatabase(LoadTestConfig config) throws Exception {
+		this.username = config.string("loadtest.database-username");
+		this.password = config.string("loadtest.database-password");
+		this.schema = Path.of(config.string("loadtest.schema"));
+		String url = config.string("loadtest.database-url");
+		if (url.isEmpty()) {
+			DBConfigurationBuilder builder = DBConfigurationBuilder.newBuilder().setPort(0);
+			if ("root".equals(System.getProperty("user.name"))) {
+				// mariadbd refuses to start as root unless told to, which is the default user in CI containers
+				builder.addArg("--user=root");
+			}
+			db = DB.newEmbeddedDB(builder.build());
+			db.start();
+			serverUrl = "jdbc:mariadb://localhost:" + db.getConfiguration().getPort() + "/";
+		} else {
+			db = null;
+			serverUrl = url.endsWith("/") ? url : url + "/";
+		}
+	}
+
+	String url() {
+		return serverUrl + DATABASE;
+	}
+
+	String username() {
+		return username;
+	}
+
+	String password() {
+		return password;
+	}
+
+	void reset() throws Exception {
+		String script = Files.readString(schema);
+		try (Connection connection = DriverManager.getConnection(serverUrl + "?allowMultiQueries=true", username, password);
+			 Statement statement = connection.createStatement()) {
+			statement.execute("DROP DATABASE IF EXISTS " + DATABASE);
+			statement.execute(script);
+		}
+	}
+
+	@Override
+	public void close() throws ManagedProcessException {
+		if (db != null) {
+			db.stop();
+		}
+	}
+}
@@ -0,0 +1,62 @@
+package com.app.signflow.loadtest;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Latencies and outcomes of one operation over the measured window. Every sample is kept, which at the
+ * rates one box can drive is a few megabytes and gives exact percentiles.
+ */
+class LatencyStats {
+
+	private long[] samples = new long[1024];
+	private int count;
+	private final Map<String, Integer> outcomes = new TreeMap<>();
+
+	// outcome is the HTTP status, "timeout", "error" or "dropped" when the client was saturated
+	synchronized void record(long nanos, String outcome) {
+		if (count == samples.length) {
+			samples = Arrays.copyOf(samples, count * 2);
+		}
+		samples[count++] = nanos;
+		outcomes.merge(outcome, 1, Integer::sum);
+	}
+
+	synchronized Summary summarize(double seconds) {
+		long[] sorted = Arrays.copyOf(samples, count);
+		Arrays.sort(sorted);
+		int failed = 0;
+		int rejected = 0;
+		for (Map.Entry<String, Integer> outcome : outcomes.entrySet()) {
+			if ("429".equals(outcome.getKey())) {
+				rejected += outcome.getValue();
+			} else if (!outcome.getKey().startsWith("2")) {
+				failed += outcome.getValue();
+			}
+		}
+		return new Summary(count, count / seconds,
+				percentile(sorted, 0.50), percentile(sorted, 0.90), percentile(sorted, 0.99),
+				percentile(sorted, 0.999), sorted.length > 0 ? millis(sorted[sorted.length - 1]) : 0,
+				count > 0 ? 100.0 * failed / count : 0, count > 0 ? 100.0 * rejected / count : 0,
+				new LinkedHashMap<>(outcomes));
+	}
+
+	private static double percentile(long[] sorted, double quantile) {
+		if (sorted.length == 0) {
+			return 0;
+		}
+		int index = (int) Math.ceil(quantile * sorted.length) - 1;
+		return millis(sorted[Math.max(0, index)]);
+	}
+
+	private static double millis(long nanos) {
+		return nanos / 1_000_000.0;
+	}
+
+	// Rejections (429 from admission control) are reported apart from errors
+	record Summary(int requests, double throughput, double p50Ms, double p90Ms, double p99Ms, double p999Ms,
+				   double maxMs, double errorPercent, double rejectedPercent, Map<String, Integer> outcomes) {
+	}
+}
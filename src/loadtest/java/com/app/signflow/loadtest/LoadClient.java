@@ -0,0 +1,106 @@
+package com.app.signflow.loadtest;
+
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+
+/**
+ * Thin HTTP client for the document API. Calls return the status and body instead of throwing on
+ * non-2xx responses, since the workload records those as outcomes.
+ */
+class LoadClient {
+
+	private final HttpClient http;
+	private final JsonMapper json = JsonMapper.builder().build();
+	private final String baseUrl;
+	private final Duration timeout;
+
+	LoadClient(int port, Duration timeout) {
+		this.baseUrl = "http://localhost:" + port + "/api/v1";
+		this.timeout = timeout;
+		this.http = HttpClient.newBuilder()
+				.version(HttpClient.Version.HTTP_1_1)
+				.connectTimeout(Duration.ofSeconds(10))
+				.executor(Executors.newVirtualThreadPerTaskExecutor())
+				.build();
+	}
+
+	record Response(int status, byte[] body) {
+
+		boolean ok() {
+			return status >= 200 && status < 300;
+		}
+	}
+
+	String signup(String name, String email, String password) throws IOException, InterruptedException {
+		Response response = postJson(null, "/auth/signup", Map.of("name", name, "email", email, "password", password));
+		if (!response.ok()) {
+			throw new IllegalStateException("Signup failed with " + response.status() + ": " + text(response));
+		}
+		return json.readTree(response.body()).get("token").asString();
+	}
+
+	long upload(String token, String fileName, byte[] pdf) throws IOException, InterruptedException {
+		Response response = uploadRaw(token, fileName, pdf);
+		if (!response.ok()) {
+			throw new IllegalStateException("Upload failed with " + response.status() + ": " + text(response));
+		}
+		return documentId(response);
+	}
+
+	Response uploadRaw(String token, String fileName, byte[] pdf) throws IOException, InterruptedException {
+		String boundary = "----signflow-" + UUID.randomUUID();
+		ByteArrayOutputStream body = new ByteArrayOutputStream(pdf.length + 512);
+		body.writeBytes(("--" + boundary + "\r\n" +
+				"Content-Disposition: form-data; name=\"file\"; filename=\"" + fileName + "\"\r\n" +
+				"Content-Type: application/pdf\r\n\r\n").getBytes(StandardCharsets.UTF_8));
+		body.writeBytes(pdf);
+		body.writeBytes(("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.UTF_8));
+		return send(request(token, "/documents/upload")
+				.header("Content-Type", "multipart/form-data; boundary=" + boundary)
+				.POST(HttpRequest.BodyPublishers.ofByteArray(body.toByteArray()))
+				.build());
+	}
+
+	Response get(String token, String path) throws IOException, InterruptedException {
+		return send(request(token, path).GET().build());
+	}
+
+	Response postJson(String token, String path, Object payload) throws IOException, InterruptedException {
+		return send(request(token, path)
+				.header("Content-Type", "application/json")
+				.POST(HttpRequest.BodyPublishers.ofByteArray(json.writeValueAsBytes(payload)))
+				.build());
+	}
+
+	long documentId(Response response) {
+		return json.readTree(response.body()).get("documentId").asLong();
+	}
+
+	private HttpRequest.Builder request(String token, String path) {
+		HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(baseUrl + path)).timeout(timeout);
+		if (token != null) {
+			builder.header("Authorization", "Bearer " + token);
+		}
+		return builder;
+	}
+
+	private Response send(HttpRequest request) throws IOException, InterruptedException {
+		HttpResponse<byte[]> response = http.send(request, HttpResponse.BodyHandlers.ofByteArray());
+		return new Response(response.statusCode(), response.body());
+	}
+
+	private static String text(Response response) {
+		return new String(response.body(), StandardCharsets.UTF_8);
+	}
+}
@@ -0,0 +1,73 @@
+package com.app.signflow.loadtest;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Suite settings from {@code loadtest.properties}, overridden by system properties of the same name.
+ */
+class LoadTestConfig {
+
+	private static final String APP_PREFIX = "loadtest.app.";
+
+	private final Properties properties = new Properties();
+
+	LoadTestConfig() {
+		try (InputStream in = LoadTestConfig.class.getResourceAsStream("/loadtest.properties")) {
+			if (in != null) {
+				properties.load(in);
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		System.getProperties().stringPropertyNames().stream()
+				.filter(name -> name.startsWith("loadtest."))
+				.forEach(name -> properties.setProperty(name, System.getProperty(name)));
+	}
+
+	String string(String key) {
+		return properties.getProperty(key, "").trim();
+	}
+
+	int integer(String key) {
+		return Integer.parseInt(string(key));
+	}
+
+	long number(String key) {
+		return Long.parseLong(string(key));
+	}
+
+	double decimal(String key) {
+		return Double.parseDouble(string(key));
+	}
+
+	List<String> list(String key) {
+		return List.of(string(key).split("\\s*,\\s*"));
+	}
+
+	// "a:3,b:1" keeps its order, so weighted draws are reproducible for a given seed
+	Map<String, Integer> weights(String key) {
+		Map<String, Integer> weights = new LinkedHashMap<>();
+		for (String entry : list(key)) {
+			String[] parts = entry.split(":");
+			if (parts.length != 2) {
+				throw new IllegalArgumentException("Expected name:weight in " + key + ", got " + entry);
+			}
+			weights.put(parts[0].trim(), Integer.parseInt(parts[1].trim()));
+		}
+		return weights;
+	}
+
+	Map<String, Object> applicationProperties() {
+		Map<String, Object> app = new LinkedHashMap<>();
+		properties.stringPropertyNames().stream()
+				.filter(name -> name.startsWith(APP_PREFIX))
+				.forEach(name -> app.put(name.substring(APP_PREFIX.length()), properties.getProperty(name)));
+		return app;
+	}
+}
@@ -0,0 +1,80 @@
+package com.app.signflow.loadtest;
+
+import tools.jackson.databind.SerializationFeature;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Per-mode, per-operation results: printed as a table, written as JSON for release tooling and checked
+ * against the configured gates.
+ */
+class LoadTestReport {
+
+	private final LoadTestConfig config;
+	private final Map<String, Map<String, LatencyStats.Summary>> modes = new LinkedHashMap<>();
+
+	LoadTestReport(LoadTestConfig config) {
+		this.config = config;
+	}
+
+	void add(String mode, Map<String, LatencyStats> stats) {
+		double seconds = config.number("loadtest.duration-seconds");
+		Map<String, LatencyStats.Summary> summaries = new LinkedHashMap<>();
+		stats.forEach((operation, latencies) -> summaries.put(operation, latencies.summarize(seconds)));
+		modes.put(mode, summaries);
+	}
+
+	void print() {
+		System.out.printf("%nSignFlow load test: %s req/s for %ss after %ss warm-up, mix %s%n",
+				config.string("loadtest.rate"), config.string("loadtest.duration-seconds"),
+				config.string("loadtest.warmup-seconds"), config.string("loadtest.mix"));
+		modes.forEach((mode, summaries) -> {
+			System.out.printf("%n[%s threads]%n", mode);
+			System.out.printf("%-10s %8s %8s %9s %9s %9s %9s %9s %7s %7s%n", "operation", "requests", "req/s",
+					"p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms", "err %", "429 %");
+			summaries.forEach((operation, s) -> System.out.printf(
+					"%-10s %8d %8.1f %9.1f %9.1f %9.1f %9.1f %9.1f %7.2f %7.2f%n", operation, s.requests(),
+					s.throughput(), s.p50Ms(), s.p90Ms(), s.p99Ms(), s.p999Ms(), s.maxMs(), s.errorPercent(),
+					s.rejectedPercent()));
+		});
+	}
+
+	Path write() throws IOException {
+		Path directory = Files.createDirectories(Path.of(config.string("loadtest.report-dir")));
+		Path file = directory.resolve("report.json");
+		Map<String, Object> report = new LinkedHashMap<>();
+		report.put("rate", config.decimal("loadtest.rate"));
+		report.put("durationSeconds", config.number("loadtest.duration-seconds"));
+		report.put("mix", config.weights("loadtest.mix"));
+		report.put("sofficeLatencyMs", config.number("loadtest.soffice.latency-ms"));
+		report.put("modes", modes);
+		JsonMapper.builder().enable(SerializationFeature.INDENT_OUTPUT).build().writeValue(file.toFile(), report);
+		return file;
+	}
+
+	List<String> gateViolations() {
+		double maxP99 = config.decimal("loadtest.gate.p99-ms");
+		double maxErrors = config.decimal("loadtest.gate.max-error-percent");
+		List<String> violations = new ArrayList<>();
+		modes.forEach((mode, summaries) -> summaries.forEach((operation, s) -> {
+			if (s.requests() == 0) {
+				return;
+			}
+			if (maxP99 > 0 && s.p99Ms() > maxP99) {
+				violations.add("%s/%s p99 %.1f ms > %.1f ms".formatted(mode, operation, s.p99Ms(), maxP99));
+			}
+			if (maxErrors > 0 && s.errorPercent() > maxErrors) {
+				violations.add("%s/%s errors %.2f%% > %.2f%% %s".formatted(mode, operation, s.errorPercent(),
+						maxErrors, s.outcomes()));
+			}
+		}));
+		return violations;
+	}
+}
@@ -0,0 +1,117 @@
+package com.app.signflow.loadtest;
+
+import com.app.signflow.SignflowWebservicesApplication;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Capacity suite entry point, run by {@code mvn -Ploadtest verify}. For each thread mode it recreates the
+ * database, boots the application on a free port against the stub soffice, seeds users and documents through
+ * the API, drives the mix and finally fails the build if any gate is exceeded.
+ */
+public class LoadTestRunner {
+
+	private static final String PASSWORD = "loadtest-password";
+
+	public static void main(String[] args) throws Exception {
+		LoadTestConfig config = new LoadTestConfig();
+		Path workDir = Files.createTempDirectory("signflow-loadtest-");
+		Path soffice = StubSoffice.create(workDir, config, DocumentFixtures.templatePdf(workDir));
+		LoadTestReport report = new LoadTestReport(config);
+
+		try (EmbeddedDatabase database = new EmbeddedDatabase(config)) {
+			for (String mode : config.list("loadtest.modes")) {
+				database.reset();
+				Path uploadDir = Files.createDirectories(workDir.resolve("uploads-" + mode));
+				try (ConfigurableApplicationContext context = start(config, mode, database, soffice, uploadDir)) {
+					int port = context.getEnvironment().getRequiredProperty("local.server.port", Integer.class);
+					LoadClient client = new LoadClient(port,
+							Duration.ofSeconds(config.number("loadtest.request-timeout-seconds")));
+					Random random = new Random(config.number("loadtest.seed"));
+
+					System.out.printf("[%s] seeding %s users with %s documents each%n", mode,
+							config.string("loadtest.users"), config.string("loadtest.documents-per-user"));
+					List<Workload.User> users = seed(client, config, random);
+					List<byte[]> uploads = new ArrayList<>();
+					for (int i = 0; i < 10; i++) {
+						uploads.add(DocumentFixtures.pdf(pages(config, random), random));
+					}
+
+					System.out.printf("[%s] running %s req/s for %ss after %ss warm-up%n", mode,
+							config.string("loadtest.rate"), config.string("loadtest.duration-seconds"),
+							config.string("loadtest.warmup-seconds"));
+					Workload workload = new Workload(client, config, users, uploads, DocumentFixtures.signaturePng());
+					report.add(mode, workload.run());
+				}
+			}
+		}
+
+		report.print();
+		System.out.println("\nReport written to " + report.write());
+		List<String> violations = report.gateViolations();
+		if (!violations.isEmpty()) {
+			throw new IllegalStateException("Capacity gates failed:\n  " + String.join("\n  ", violations));
+		}
+	}
+
+	// Passed as command-line arguments so they take precedence over application.properties
+	private static ConfigurableApplicationContext start(LoadTestConfig config, String mode, EmbeddedDatabase database,
+														Path soffice, Path uploadDir) {
+		Map<String, Object> properties = new LinkedHashMap<>();
+		properties.put("server.port", 0);
+		properties.put("spring.datasource.url", database.url());
+		properties.put("spring.datasource.username", database.username());
+		properties.put("spring.datasource.password", database.password());
+		properties.put("libreoffice.soffice-path", soffice.toString());
+		properties.put("file.upload-dir", uploadDir.toString());
+		properties.put("spring.mail.host", "localhost");
+		properties.put("spring.mail.port", 1);
+		properties.put("spring.devtools.restart.enabled", false);
+		properties.put("logging.level.root", "WARN");
+		properties.putAll(config.applicationProperties());
+
+		List<String> args = new ArrayList<>();
+		properties.forEach((key, value) -> args.add("--" + key + "=" + value));
+		SpringApplicationBuilder builder = new SpringApplicationBuilder(SignflowWebservicesApplication.class);
+		if (!"platform".equals(mode)) {
+			builder.profiles(mode);
+		}
+		return builder.run(args.toArray(String[]::new));
+	}
+
+	private static List<Workload.User> seed(LoadClient client, LoadTestConfig config, Random random) throws Exception {
+		int documentsPerUser = config.integer("loadtest.documents-per-user");
+		List<Workload.User> users = new ArrayList<>();
+		for (int u = 0; u < config.integer("loadtest.users"); u++) {
+			String token = client.signup("Load User " + u, "loadtest-" + u + "@signflow.test", PASSWORD);
+			Workload.User user = Workload.user(token);
+			for (int d = 0; d < documentsPerUser; d++) {
+				byte[] pdf = DocumentFixtures.pdf(pages(config, random), random);
+				user.documents().add(client.upload(token, "seed-" + u + "-" + d + ".pdf", pdf));
+			}
+			users.add(user);
+		}
+		return users;
+	}
+
+	private static int pages(LoadTestConfig config, Random random) {
+		Map<String, Integer> weights = config.weights("loadtest.document-pages");
+		int draw = random.nextInt(weights.values().stream().mapToInt(Integer::intValue).sum());
+		for (Map.Entry<String, Integer> entry : weights.entrySet()) {
+			draw -= entry.getValue();
+			if (draw < 0) {
+				return Integer.parseInt(entry.getKey());
+			}
+		}
+		throw new IllegalStateException("Empty loadtest.document-pages");
+	}
+}
@@ -0,0 +1,55 @@
+package com.app.signflow.loadtest;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+
+/**
+ * Writes a shell script that stands in for soffice. It accepts the same arguments LibreOfficeService passes,
+ * sleeps for the scripted latency and writes a small but valid output file, so conversion endpoints keep
+ * their real process, bulkhead and file handling while the conversion cost is fixed and known.
+ */
+final class StubSoffice {
+
+	private StubSoffice() {
+	}
+
+	static Path create(Path directory, LoadTestConfig config, Path templatePdf) throws IOException {
+		long latencyMs = config.number("loadtest.soffice.latency-ms");
+		long jitterMs = config.number("loadtest.soffice.jitter-ms");
+		// basis points, since $RANDOM only yields integers
+		long failureBasisPoints = Math.round(config.decimal("loadtest.soffice.failure-percent") * 100);
+
+		String script = """
+				#!/usr/bin/env bash
+				format=""; outdir=""; input=""
+				while [ $# -gt 0 ]; do
+				  case "$1" in
+				    --convert-to) format="$2"; shift 2 ;;
+				    --outdir) outdir="$2"; shift 2 ;;
+				    --*) shift ;;
+				    *) input="$1"; shift ;;
+				  esac
+				done
+				delay=$(( %d + (RANDOM * 32768 + RANDOM) %% (%d + 1) ))
+				sleep "$(printf '%%d.%%03d' $(( delay / 1000 )) $(( delay %% 1000 )))"
+				if [ $(( RANDOM %% 10000 )) -lt %d ]; then
+				  echo "stub soffice: scripted failure" >&2
+				  exit 1
+				fi
+				name="$(basename "$input")"
+				target="$outdir/${name%%.*}.$format"
+				case "$format" in
+				  pdf) cp '%s' "$target" ;;
+				  html) printf '<html><body><p>Converted %%s</p></body></html>' "$name" > "$target" ;;
+				  *) head -c 65536 "$input" > "$target" ;;
+				esac
+				""".formatted(latencyMs, jitterMs, failureBasisPoints, templatePdf.toAbsolutePath());
+
+		Path stub = directory.resolve("soffice");
+		Files.writeString(stub, script);
+		Files.setPosixFilePermissions(stub, PosixFilePermissions.fromString("rwxr-xr-x"));
+		return stub;
+	}
+}
@@ -0,0 +1,146 @@
+package com.app.signflow.loadtest;
+
+import java.io.IOException;
+import java.net.http.HttpTimeoutException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Drives the operation mix at a fixed arrival rate. Operations, users and documents are drawn on the
+ * scheduling thread from a seeded generator, so a given seed replays the same sequence, and each request
+ * is timed from its scheduled start rather than from when a thread got to it.
+ */
+class Workload {
+
+	record User(String token, List<Long> documents) {
+	}
+
+	private final LoadClient client;
+	private final List<User> users;
+	private final List<byte[]> uploads;
+	private final String signature;
+	private final Random random;
+	private final Map<String, Integer> mix;
+	private final int totalWeight;
+	private final double rate;
+	private final long warmupNanos;
+	private final long durationNanos;
+	private final int maxInFlight;
+	private final Map<String, LatencyStats> stats = new LinkedHashMap<>();
+
+	Workload(LoadClient client, LoadTestConfig config, List<User> users, List<byte[]> uploads, String signature) {
+		this.client = client;
+		this.users = users;
+		this.uploads = uploads;
+		this.signature = signature;
+		this.random = new Random(config.number("loadtest.seed"));
+		this.mix = config.weights("loadtest.mix");
+		this.totalWeight = mix.values().stream().mapToInt(Integer::intValue).sum();
+		this.rate = config.decimal("loadtest.rate");
+		this.warmupNanos = TimeUnit.SECONDS.toNanos(config.number("loadtest.warmup-seconds"));
+		this.durationNanos = TimeUnit.SECONDS.toNanos(config.number("loadtest.duration-seconds"));
+		this.maxInFlight = config.integer("loadtest.max-in-flight");
+		for (String operation : mix.keySet()) {
+			stats.put(operation, new LatencyStats());
+		}
+	}
+
+	Map<String, LatencyStats> run() {
+		long interval = (long) (TimeUnit.SECONDS.toNanos(1) / rate);
+		long start = System.nanoTime();
+		long measureFrom = start + warmupNanos;
+		long end = measureFrom + durationNanos;
+		Semaphore inFlight = new Semaphore(maxInFlight);
+
+		try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+			for (long i = 0; ; i++) {
+				long scheduled = start + i * interval;
+				if (scheduled >= end) {
+					break;
+				}
+				long wait = scheduled - System.nanoTime();
+				if (wait > 0) {
+					LockSupport.parkNanos(wait);
+				}
+				String operation = nextOperation();
+				User user = users.get(random.nextInt(users.size()));
+				List<Long> documents = user.documents();
+				long documentId = documents.get(random.nextInt(documents.size()));
+				byte[] upload = uploads.get(random.nextInt(uploads.size()));
+				LatencyStats target = scheduled >= measureFrom ? stats.get(operation) : null;
+
+				if (!inFlight.tryAcquire()) {
+					record(target, scheduled, "dropped");
+					continue;
+				}
+				executor.submit(() -> {
+					try {
+						record(target, scheduled, execute(operation, user, documentId, upload));
+					} finally {
+						inFlight.release();
+					}
+				});
+			}
+		}
+		return stats;
+	}
+
+	private String execute(String operation, User user, long documentId, byte[] upload) {
+		try {
+			LoadClient.Response response = switch (operation) {
+				case "upload" -> {
+					LoadClient.Response uploaded = client.uploadRaw(user.token(), "loadtest.pdf", upload);
+					if (uploaded.ok()) {
+						user.documents().add(client.documentId(uploaded));
+					}
+					yield uploaded;
+				}
+				case "list" -> client.get(user.token(), "/documents");
+				case "sign" -> client.postJson(user.token(), "/documents/" + documentId + "/sign", Map.of(
+						"signatureImage", signature, "page", 1, "x", 380, "y", 80, "width", 150, "height", 50));
+				case "edit" -> client.postJson(user.token(), "/documents/" + documentId + "/edit", Map.of(
+						"textBlocks", List.of(Map.of("page", 1, "x", 60, "y", 40, "text", "Reviewed", "fontSize", 9))));
+				case "convert" -> client.get(user.token(), "/documents/" + documentId + "/download-as-docx");
+				case "download" -> client.get(user.token(), "/documents/" + documentId + "/download");
+				default -> throw new IllegalArgumentException("Unknown operation in loadtest.mix: " + operation);
+			};
+			return String.valueOf(response.status());
+		} catch (HttpTimeoutException e) {
+			return "timeout";
+		} catch (IOException e) {
+			return "error";
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return "error";
+		}
+	}
+
+	private String nextOperation() {
+		int draw = random.nextInt(totalWeight);
+		for (Map.Entry<String, Integer> entry : mix.entrySet()) {
+			draw -= entry.getValue();
+			if (draw < 0) {
+				return entry.getKey();
+			}
+		}
+		throw new IllegalStateException("Empty loadtest.mix");
+	}
+
+	private static void record(LatencyStats target, long scheduled, String outcome) {
+		if (target != null) {
+			target.record(System.nanoTime() - scheduled, outcome);
+		}
+	}
+
+	static User user(String token) {
+		return new User(token, new CopyOnWriteArrayList<>());
+	}
+}
@@ -0,0 +1,149 @@
+package com.app.signflow.config;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Admission control for the document endpoints that convert or rewrite files. Each request is priced by
+ * endpoint and page count, charged against the caller's token bucket and then admitted into a global,
+ * cost-weighted concurrency limit that is shared fairly between users. Rejected requests get 429 with
+ * Retry-After. Runs after the security filter chain, so the caller is already known.
+ */
+@Component
+public class AdmissionControlFilter extends OncePerRequestFilter {
+
+    private static final Pattern HEAVY_ENDPOINT =
+            Pattern.compile("/api/v1/documents/(\\d+)/(download-as-docx|download-as-pdf|edit-html|save-html|edit|sign|draft|draft/finalize)");
+
+    // Relative cost of one unit of pages; conversions run a LibreOffice process, edits only rewrite with PDFBox
+    private static final Map<String, Integer> BASE_COST = Map.of(
+            "download-as-docx", 4,
+            "download-as-pdf", 4,
+            "edit-html", 4,
+            "save-html", 4,
+            "edit", 2,
+            "sign", 1,
+            // reading a draft converts the document when it has none yet
+            "draft", 4,
+            "draft/finalize", 4);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TokenBucketRateLimiter rateLimiter;
+    private final FairConcurrencyLimiter concurrencyLimiter;
+    private final boolean enabled;
+    private final int pagesPerUnit;
+    private final long maxWaitMs;
+
+    public AdmissionControlFilter(JdbcTemplate jdbcTemplate,
+                                  @Value("${admission.enabled:true}") boolean enabled,
+                                  @Value("${admission.user.rate-per-second:2}") double ratePerSecond,
+                                  @Value("${admission.user.burst:20}") int burst,
+                                  @Value("${admission.capacity:16}") int capacity,
+                                  @Value("${admission.max-queued:200}") int maxQueued,
+                                  @Value("${admission.pages-per-unit:50}") int pagesPerUnit,
+                                  @Value("${admission.max-wait-ms:10000}") long maxWaitMs) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.enabled = enabled;
+        this.rateLimiter = new TokenBucketRateLimiter(ratePerSecond, burst);
+        this.concurrencyLimiter = new FairConcurrencyLimiter(capacity, maxQueued);
+        this.pagesPerUnit = Math.max(1, pagesPerUnit);
+        this.maxWaitMs = maxWaitMs;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !enabled || !HEAVY_ENDPOINT.matcher(request.getServletPath()).matches() || isDraftUpdate(request);
+    }
+
+    // Draft patches and discards only touch the draft store
+    private static boolean isDraftUpdate(HttpServletRequest request) {
+        return request.getServletPath().endsWith("/draft") && !HttpMethod.GET.matches(request.getMethod());
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        Matcher matcher = HEAVY_ENDPOINT.matcher(request.getServletPath());
+        if (!matcher.matches()) {
+            chain.doFilter(request, response);
+            return;
+        }
+        Object caller = caller(request);
+        int cost = BASE_COST.get(matcher.group(2)) * pageUnits(Long.parseLong(matcher.group(1)));
+
+        long waitNanos = rateLimiter.tryAcquire(caller, cost);
+        if (waitNanos > 0) {
+            reject(response, "Too many document operations, slow down", TimeUnit.NANOSECONDS.toSeconds(waitNanos) + 1);
+            return;
+        }
+
+        FairConcurrencyLimiter.Lease lease;
+        try {
+            lease = concurrencyLimiter.acquire(caller, cost, maxWaitMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ServletException("Interrupted while waiting for admission", e);
+        }
+        if (lease == null) {
+            reject(response, "Server is busy processing documents, try again later",
+                    TimeUnit.MILLISECONDS.toSeconds(maxWaitMs) + 1);
+            return;
+        }
+        try (lease) {
+            chain.doFilter(request, response);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${admission.evict-interval-ms:60000}")
+    public void evictIdleBuckets() {
+        rateLimiter.evictIdle();
+    }
+
+    public int getInUse() {
+        return concurrencyLimiter.getInUse();
+    }
+
+    public int getQueued() {
+        return concurrencyLimiter.getQueued();
+    }
+
+    // Unknown documents cost one unit; the controller reports the real error
+    private int pageUnits(Long documentId) {
+        List<Integer> pages = jdbcTemplate.queryForList(
+                "SELECT page_count FROM document_metadata WHERE document_id = ?", Integer.class, documentId);
+        Integer pageCount = pages.isEmpty() ? null : pages.get(0);
+        return pageCount == null ? 1 : Math.max(1, (pageCount + pagesPerUnit - 1) / pagesPerUnit);
+    }
+
+    private static Object caller(HttpServletRequest request) {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.getPrincipal() instanceof AuthenticatedUser principal) {
+            return principal.id();
+        }
+        return request.getRemoteAddr();
+    }
+
+    private static void reject(HttpServletResponse response, String reason, long retryAfterSeconds) throws IOException {
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+        response.sendError(HttpStatus.TOO_MANY_REQUESTS.value(), reason);
+    }
+}
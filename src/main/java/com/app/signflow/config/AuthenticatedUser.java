@@ -0,0 +1,17 @@
+package com.app.signflow.config;
+
+import java.security.Principal;
+
+/**
+ * Principal of an authenticated request, resolved from the verified JWT subject through the user cache.
+ */
+public record AuthenticatedUser(Long id, String email, String role) implements Principal {
+
+    public static final String USER_ID_CLAIM = "uid";
+    public static final String ROLE_CLAIM = "role";
+
+    @Override
+    public String getName() {
+        return email;
+    }
+}
@@ -0,0 +1,91 @@
+package com.app.signflow.config;
+
+import com.app.signflow.exception.TooManyRequestsException;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Semaphore bulkhead in front of one scarce downstream resource. Callers park for up to the configured wait
+ * and are shed with 429 after that, so a saturated resource cannot absorb every request thread and the
+ * endpoints that do not touch it keep their latency.
+ */
+public class Bulkhead {
+
+    private final String name;
+    private final int permits;
+    private final long maxWaitMs;
+    private final Semaphore semaphore;
+    private final AtomicInteger waiting = new AtomicInteger();
+    private final LongAdder rejected = new LongAdder();
+
+    public Bulkhead(String name, int permits, long maxWaitMs) {
+        this.name = name;
+        this.permits = Math.max(1, permits);
+        this.maxWaitMs = maxWaitMs;
+        this.semaphore = new Semaphore(this.permits, true);
+    }
+
+    public Permit acquire() {
+        return acquire(1);
+    }
+
+    // Requests larger than the whole bulkhead are clamped so they can still run alone
+    public Permit acquire(int weight) {
+        int needed = Math.min(Math.max(1, weight), permits);
+        waiting.incrementAndGet();
+        try {
+            if (!semaphore.tryAcquire(needed, maxWaitMs, TimeUnit.MILLISECONDS)) {
+                rejected.increment();
+                throw new TooManyRequestsException(name + " is busy, try again later",
+                        TimeUnit.MILLISECONDS.toSeconds(maxWaitMs));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for " + name, e);
+        } finally {
+            waiting.decrementAndGet();
+        }
+        return new Permit(needed);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getPermits() {
+        return permits;
+    }
+
+    public int getInUse() {
+        return permits - semaphore.availablePermits();
+    }
+
+    public int getWaiting() {
+        return waiting.get();
+    }
+
+    public long getRejected() {
+        return rejected.sum();
+    }
+
+    public final class Permit implements AutoCloseable {
+
+        private final int count;
+        private boolean released;
+
+        private Permit(int count) {
+            this.count = count;
+        }
+
+        @Override
+        public void close() {
+            if (!released) {
+                released = true;
+                semaphore.release(count);
+            }
+        }
+    }
+}
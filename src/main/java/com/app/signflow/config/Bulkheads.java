@@ -0,0 +1,46 @@
+package com.app.signflow.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * The bulkheads guarding each scarce downstream: LibreOffice processes, SMTP connections and the heap budget
+ * for PDFs loaded into memory (one permit per megabyte). Database connections are bounded by the Hikari pool,
+ * whose connection timeout plays the same role.
+ */
+@Component
+public class Bulkheads {
+
+    private final Bulkhead libreOffice;
+    private final Bulkhead smtp;
+    private final Bulkhead pdfMemory;
+
+    public Bulkheads(@Value("${bulkheads.libreoffice.permits:2}") int libreOfficePermits,
+                     @Value("${bulkheads.libreoffice.max-wait-ms:60000}") long libreOfficeWaitMs,
+                     @Value("${bulkheads.smtp.permits:2}") int smtpPermits,
+                     @Value("${bulkheads.smtp.max-wait-ms:30000}") long smtpWaitMs,
+                     @Value("${bulkheads.pdf-memory.megabytes:512}") int pdfMemoryMegabytes,
+                     @Value("${bulkheads.pdf-memory.max-wait-ms:30000}") long pdfMemoryWaitMs) {
+        this.libreOffice = new Bulkhead("Document conversion", libreOfficePermits, libreOfficeWaitMs);
+        this.smtp = new Bulkhead("Mail delivery", smtpPermits, smtpWaitMs);
+        this.pdfMemory = new Bulkhead("PDF processing", pdfMemoryMegabytes, pdfMemoryWaitMs);
+    }
+
+    public Bulkhead libreOffice() {
+        return libreOffice;
+    }
+
+    public Bulkhead smtp() {
+        return smtp;
+    }
+
+    public Bulkhead pdfMemory() {
+        return pdfMemory;
+    }
+
+    public List<Bulkhead> all() {
+        return List.of(libreOffice, smtp, pdfMemory);
+    }
+}
@@ -0,0 +1,42 @@
+package com.app.signflow.config;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+@Name("signflow.Conversion")
+@Label("LibreOffice Conversion")
+@Category({"SignFlow", "Documents"})
+@Description("One soffice process run, excluding the wait for a conversion slot")
+@Threshold("500 ms")
+@StackTrace(false)
+public class ConversionEvent extends Event {
+
+    @Label("Format")
+    public String format;
+
+    @Label("Outcome")
+    public String outcome;
+
+    @Label("Endpoint")
+    public String endpoint;
+
+    @Label("Document Id")
+    public long documentId;
+
+    @Label("Exit Code")
+    public int exitCode;
+
+    @Label("Bytes In")
+    @DataAmount
+    public long bytesIn;
+
+    @Label("Bytes Out")
+    @DataAmount
+    public long bytesOut;
+}
@@ -0,0 +1,176 @@
+package com.app.signflow.config;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Cost-weighted concurrency limit shared by all users. When capacity runs out, waiters queue per user and
+ * freed capacity is handed out round-robin across users, so one user with many queued requests cannot push
+ * everyone else to the back. Within a user, requests run in arrival order.
+ */
+public class FairConcurrencyLimiter {
+
+    private final int capacity;
+    private final int maxQueued;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Map<Object, ArrayDeque<Waiter>> queues = new HashMap<>();
+    private final ArrayDeque<Object> rotation = new ArrayDeque<>();
+    private int available;
+    private int queued;
+
+    public FairConcurrencyLimiter(int capacity, int maxQueued) {
+        this.capacity = Math.max(1, capacity);
+        this.maxQueued = maxQueued;
+        this.available = this.capacity;
+    }
+
+    /**
+     * Waits up to {@code maxWaitMs} for {@code cost} units of capacity.
+     *
+     * @return the lease to close when the work is done, or null when the request was not admitted in time
+     */
+    public Lease acquire(Object user, int cost, long maxWaitMs) throws InterruptedException {
+        int needed = Math.min(Math.max(1, cost), capacity);
+        lock.lock();
+        try {
+            if (rotation.isEmpty() && available >= needed) {
+                available -= needed;
+                return new Lease(needed);
+            }
+            if (queued >= maxQueued) {
+                return null;
+            }
+
+            Waiter waiter = new Waiter(needed, lock.newCondition());
+            ArrayDeque<Waiter> queue = queues.computeIfAbsent(user, u -> new ArrayDeque<>());
+            if (queue.isEmpty()) {
+                rotation.addLast(user);
+            }
+            queue.addLast(waiter);
+            queued++;
+
+            long remaining = TimeUnit.MILLISECONDS.toNanos(maxWaitMs);
+            try {
+                while (!waiter.granted && remaining > 0) {
+                    remaining = waiter.condition.awaitNanos(remaining);
+                }
+            } catch (InterruptedException e) {
+                if (waiter.granted) {
+                    release(needed);
+                } else {
+                    abandon(user, waiter);
+                }
+                throw e;
+            }
+            if (waiter.granted) {
+                return new Lease(needed);
+            }
+            abandon(user, waiter);
+            return null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public int getInUse() {
+        lock.lock();
+        try {
+            return capacity - available;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getQueued() {
+        lock.lock();
+        try {
+            return queued;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void release(int units) {
+        lock.lock();
+        try {
+            available += units;
+            dispatch();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void abandon(Object user, Waiter waiter) {
+        ArrayDeque<Waiter> queue = queues.get(user);
+        if (queue != null && queue.remove(waiter)) {
+            queued--;
+            if (queue.isEmpty()) {
+                queues.remove(user);
+                rotation.remove(user);
+            }
+        }
+        // The abandoned waiter may have been blocking a smaller one behind it
+        dispatch();
+    }
+
+    // The head of the rotation waits for enough capacity rather than being overtaken, so large requests are not starved
+    private void dispatch() {
+        while (!rotation.isEmpty()) {
+            Object user = rotation.peekFirst();
+            ArrayDeque<Waiter> queue = queues.get(user);
+            Waiter head = queue.peekFirst();
+            if (head.cost > available) {
+                return;
+            }
+            available -= head.cost;
+            head.granted = true;
+            head.condition.signal();
+            queue.pollFirst();
+            queued--;
+            rotation.pollFirst();
+            if (queue.isEmpty()) {
+                queues.remove(user);
+            } else {
+                rotation.addLast(user);
+            }
+        }
+    }
+
+    private static final class Waiter {
+
+        private final int cost;
+        private final Condition condition;
+        private boolean granted;
+
+        private Waiter(int cost, Condition condition) {
+            this.cost = cost;
+            this.condition = condition;
+        }
+    }
+
+    public final class Lease implements AutoCloseable {
+
+        private final int units;
+        private boolean released;
+
+        private Lease(int units) {
+            this.units = units;
+        }
+
+        @Override
+        public void close() {
+            if (!released) {
+                released = true;
+                release(units);
+            }
+        }
+    }
+}
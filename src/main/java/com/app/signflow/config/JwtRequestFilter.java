@@ -1,25 +1,28 @@
 package com.app.signflow.config;
 
+import com.app.signflow.model.entity.User;
+import com.app.signflow.service.UserCache;
+import io.jsonwebtoken.Claims;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.core.userdetails.UserDetails;
-import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
+import java.util.List;
 
 @Component
 @RequiredArgsConstructor
 public class JwtRequestFilter extends OncePerRequestFilter {
 
-    private final UserDetailsService userDetailsService;
+    private final UserCache userCache;
     private final JwtUtil jwtUtil;
 
     @Override
@@ -28,28 +31,47 @@ public class JwtRequestFilter extends OncePerRequestFilter {
 
         final String authorizationHeader = request.getHeader("Authorization");
 
-        String username = null;
-        String jwt = null;
+        // Signature and expiry are checked once here; the claims are reused below
+        Claims claims = null;
 
         if (authorizationHeader != null && authorizationHeader.startsWith("Bearer ")) {
-            jwt = authorizationHeader.substring(7);
+            String jwt = authorizationHeader.substring(7);
             try {
-                username = jwtUtil.extractUsername(jwt);
+                claims = jwtUtil.verify(jwt);
             } catch (Exception e) {
                 logger.error("Error extracting username from JWT", e);
             }
         }
 
-        if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-            UserDetails userDetails = this.userDetailsService.loadUserByUsername(username);
+        AuthenticatedUser principal = null;
+        if (claims != null && SecurityContextHolder.getContext().getAuthentication() == null) {
+            principal = resolve(claims);
+        }
 
-            if (jwtUtil.validateToken(jwt, userDetails)) {
-                UsernamePasswordAuthenticationToken authenticationToken = new UsernamePasswordAuthenticationToken(
-                        userDetails, null, userDetails.getAuthorities());
-                authenticationToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
-                SecurityContextHolder.getContext().setAuthentication(authenticationToken);
-            }
+        if (principal != null) {
+            UsernamePasswordAuthenticationToken authenticationToken = new UsernamePasswordAuthenticationToken(
+                    principal, null, List.of(new SimpleGrantedAuthority("ROLE_" + principal.role())));
+            authenticationToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+            SecurityContextHolder.getContext().setAuthentication(authenticationToken);
         }
         chain.doFilter(request, response);
     }
+
+    // The role and the account itself come from the cached user row, never from the token, so demotions and
+    // deletions apply within the cache TTL; a uid claim that names another account is rejected
+    private AuthenticatedUser resolve(Claims claims) {
+        User user;
+        try {
+            user = userCache.findByEmail(claims.getSubject());
+        } catch (RuntimeException e) {
+            logger.debug("JWT subject no longer exists");
+            return null;
+        }
+        Number tokenUserId = claims.get(AuthenticatedUser.USER_ID_CLAIM, Number.class);
+        if (tokenUserId != null && tokenUserId.longValue() != user.getId()) {
+            logger.debug("JWT user id does not match the account");
+            return null;
+        }
+        return new AuthenticatedUser(user.getId(), user.getEmail(), user.getRole());
+    }
 }
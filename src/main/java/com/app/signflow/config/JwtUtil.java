@@ -1,8 +1,13 @@
 package com.app.signflow.config;
 
+import com.app.signflow.model.entity.User;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Component;
@@ -14,16 +19,53 @@ import java.util.Map;
 import java.util.function.Function;
 
 @Component
+@RequiredArgsConstructor
 public class JwtUtil {
 
+    private final PipelineMetrics metrics;
+
     @Value("${jwt.secret:404E635266556A586E3272357538782F413F4428472B4B6250645367566B5970}")
     private String secret;
 
     @Value("${jwt.expiration:86400000}") // 24 hours
     private Long expiration;
 
-    private SecretKey getSigningKey() {
-        return Keys.hmacShaKeyFor(secret.getBytes());
+    @Value("${jwt.cache.max-size:10000}")
+    private int cacheMaxSize;
+
+    private SecretKey signingKey;
+    private JwtParser parser;
+    private VerifiedTokenCache verifiedTokens;
+
+    @PostConstruct
+    void init() {
+        signingKey = Keys.hmacShaKeyFor(secret.getBytes());
+        parser = Jwts.parser()
+                .verifyWith(signingKey)
+                .build();
+        verifiedTokens = new VerifiedTokenCache(cacheMaxSize);
+    }
+
+    /**
+     * Verifies signature and expiry once per distinct token; repeat calls are served from the cache.
+     */
+    public Claims verify(String token) {
+        Timer.Sample sample = metrics.start();
+        String digest = VerifiedTokenCache.digest(token);
+        Claims claims = verifiedTokens.get(digest);
+        if (claims != null) {
+            metrics.jwtVerify(sample, "cached");
+            return claims;
+        }
+        try {
+            claims = parser.parseSignedClaims(token).getPayload();
+        } catch (RuntimeException e) {
+            metrics.jwtVerify(sample, "invalid");
+            throw e;
+        }
+        verifiedTokens.put(digest, claims);
+        metrics.jwtVerify(sample, "verified");
+        return claims;
     }
 
     public String extractUsername(String token) {
@@ -35,20 +77,18 @@ public class JwtUtil {
     }
 
     public <T> T extractClaim(String token, Function<Claims, T> claimsResolver) {
-        final Claims claims = extractAllClaims(token);
-        return claimsResolver.apply(claims);
+        return claimsResolver.apply(verify(token));
     }
 
-    private Claims extractAllClaims(String token) {
-        return Jwts.parser()
-                .verifyWith(getSigningKey())
-                .build()
-                .parseSignedClaims(token)
-                .getPayload();
+    public VerifiedTokenCache getVerifiedTokenCache() {
+        return verifiedTokens;
     }
 
-    private Boolean isTokenExpired(String token) {
-        return extractExpiration(token).before(new Date());
+    public String generateToken(User user) {
+        Map<String, Object> claims = new HashMap<>();
+        claims.put(AuthenticatedUser.USER_ID_CLAIM, user.getId());
+        claims.put(AuthenticatedUser.ROLE_CLAIM, user.getRole());
+        return createToken(claims, user.getEmail());
     }
 
     public String generateToken(String username) {
@@ -62,12 +102,13 @@ public class JwtUtil {
                 .subject(subject)
                 .issuedAt(new Date(System.currentTimeMillis()))
                 .expiration(new Date(System.currentTimeMillis() + expiration))
-                .signWith(getSigningKey())
+                .signWith(signingKey)
                 .compact();
     }
 
     public Boolean validateToken(String token, UserDetails userDetails) {
-        final String username = extractUsername(token);
-        return (username.equals(userDetails.getUsername()) && !isTokenExpired(token));
+        Claims claims = verify(token);
+        return claims.getSubject().equals(userDetails.getUsername())
+                && claims.getExpiration().after(new Date());
     }
 }
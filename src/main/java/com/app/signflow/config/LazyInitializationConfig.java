@@ -0,0 +1,36 @@
+package com.app.signflow.config;
+
+import com.app.signflow.service.DiagnosticsService;
+import org.springframework.boot.LazyInitializationExcludeFilter;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.MethodIntrospector;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.lang.annotation.Annotation;
+
+/**
+ * With {@code spring.main.lazy-initialization} on (the faststart profile), beans that do their work without
+ * being called, scheduled jobs, event listeners and the flight recording, are still created at startup.
+ * Everything else is created on first use or by the post-readiness warm-up.
+ */
+@Configuration
+@ConditionalOnProperty(name = "spring.main.lazy-initialization", havingValue = "true")
+public class LazyInitializationConfig {
+
+    @Bean
+    static LazyInitializationExcludeFilter backgroundWorkExcludeFilter() {
+        return (beanName, beanDefinition, beanType) -> beanType != null
+                && (beanType == DiagnosticsService.class
+                || hasAnnotatedMethod(beanType, Scheduled.class)
+                || hasAnnotatedMethod(beanType, EventListener.class));
+    }
+
+    private static boolean hasAnnotatedMethod(Class<?> beanType, Class<? extends Annotation> annotation) {
+        return !MethodIntrospector.selectMethods(beanType, (MethodIntrospector.MetadataLookup<Boolean>) method ->
+                AnnotatedElementUtils.hasAnnotation(method, annotation) ? Boolean.TRUE : null).isEmpty();
+    }
+}
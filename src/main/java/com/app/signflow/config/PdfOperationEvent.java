@@ -0,0 +1,48 @@
+package com.app.signflow.config;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+@Name("signflow.PdfOperation")
+@Label("PDF Operation")
+@Category({"SignFlow", "Documents"})
+@Description("PDFBox load, modify and save of one document")
+@Threshold("50 ms")
+@StackTrace(false)
+public class PdfOperationEvent extends Event {
+
+    @Label("Operation")
+    public String operation;
+
+    @Label("Endpoint")
+    public String endpoint;
+
+    @Label("Document Id")
+    public long documentId;
+
+    @Label("Page Count")
+    public int pageCount;
+
+    @Label("Bytes In")
+    @DataAmount
+    public long bytesIn;
+
+    @Label("Bytes Out")
+    @DataAmount
+    public long bytesOut;
+
+    @Label("Text Blocks")
+    public int textBlocks;
+
+    @Label("Image Blocks")
+    public int imageBlocks;
+
+    @Label("Replace Blocks")
+    public int replaceBlocks;
+}
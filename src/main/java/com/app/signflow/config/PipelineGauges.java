@@ -0,0 +1,90 @@
+package com.app.signflow.config;
+
+import com.app.signflow.service.AuditService;
+import com.app.signflow.service.DocumentTextIndexService;
+import com.app.signflow.service.PasswordHashingService;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Gauges for in-flight work and queue depths, sampled when metrics are scraped.
+ */
+@Component
+@RequiredArgsConstructor
+public class PipelineGauges implements MeterBinder {
+
+    private final Bulkheads bulkheads;
+    private final AdmissionControlFilter admissionControlFilter;
+    private final AuditService auditService;
+    private final DocumentTextIndexService documentTextIndexService;
+    private final PasswordHashingService passwordHashingService;
+    private final StartupTimingFilter startupTimingFilter;
+    private final JwtUtil jwtUtil;
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("signflow.conversions.in_flight", bulkheads.libreOffice(), Bulkhead::getInUse)
+                .description("LibreOffice conversions currently running")
+                .register(registry);
+        Gauge.builder("signflow.pdf.memory.reserved", bulkheads.pdfMemory(), Bulkhead::getInUse)
+                .description("Heap budget reserved by PDFs currently loaded")
+                .baseUnit("megabytes")
+                .register(registry);
+
+        for (Bulkhead bulkhead : bulkheads.all()) {
+            String name = bulkhead.getName().toLowerCase().replace(' ', '_');
+            Gauge.builder("signflow.bulkhead.in_use", bulkhead, Bulkhead::getInUse)
+                    .tag("bulkhead", name)
+                    .register(registry);
+            Gauge.builder("signflow.bulkhead.waiting", bulkhead, Bulkhead::getWaiting)
+                    .tag("bulkhead", name)
+                    .register(registry);
+            FunctionCounter.builder("signflow.bulkhead.rejected", bulkhead, Bulkhead::getRejected)
+                    .tag("bulkhead", name)
+                    .register(registry);
+        }
+
+        queueDepth(registry, "audit", auditService, AuditService::getQueueDepth);
+        queueDepth(registry, "content_index", documentTextIndexService, DocumentTextIndexService::getPendingCount);
+        queueDepth(registry, "password_hashing", passwordHashingService, PasswordHashingService::getQueueDepth);
+        queueDepth(registry, "admission", admissionControlFilter, AdmissionControlFilter::getQueued);
+        Gauge.builder("signflow.admission.in_use", admissionControlFilter, AdmissionControlFilter::getInUse)
+                .description("Cost units of heavy document requests currently admitted")
+                .register(registry);
+
+        VerifiedTokenCache tokenCache = jwtUtil.getVerifiedTokenCache();
+        FunctionCounter.builder("signflow.jwt.cache.requests", tokenCache, VerifiedTokenCache::getHits)
+                .tag("result", "hit")
+                .description("Token verifications answered from the verified-token cache")
+                .register(registry);
+        FunctionCounter.builder("signflow.jwt.cache.requests", tokenCache, VerifiedTokenCache::getMisses)
+                .tag("result", "miss")
+                .register(registry);
+        Gauge.builder("signflow.jwt.cache.size", tokenCache, VerifiedTokenCache::size)
+                .register(registry);
+
+        TimeGauge.builder("signflow.startup.ready", startupTimingFilter, TimeUnit.MILLISECONDS,
+                        StartupTimingFilter::getReadyMillis)
+                .description("Time from JVM start until the application was ready")
+                .register(registry);
+        TimeGauge.builder("signflow.startup.first_request", startupTimingFilter, TimeUnit.MILLISECONDS,
+                        StartupTimingFilter::getFirstRequestMillis)
+                .description("Time from JVM start until the first API request was served")
+                .register(registry);
+    }
+
+    private static <T> void queueDepth(MeterRegistry registry, String queue, T source,
+                                       ToDoubleFunction<T> depth) {
+        Gauge.builder("signflow.queue.depth", source, depth)
+                .tag("queue", queue)
+                .register(registry);
+    }
+}
@@ -0,0 +1,100 @@
+package com.app.signflow.config;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.time.Duration;
+
+/**
+ * Timers and size histograms for the document pipeline. Plain meters carry an {@code endpoint} tag holding
+ * the matched route template (never the raw path), "unmatched" before routing and "background" for
+ * scheduled work. Only the PDF stage and conversion timers and the storage size summary publish buckets, a
+ * fixed set of SLO boundaries without the endpoint tag, so histogram series do not multiply per route.
+ */
+@Component
+@RequiredArgsConstructor
+public class PipelineMetrics {
+
+    public static final String BACKGROUND = "background";
+
+    private final MeterRegistry registry;
+
+    public Timer.Sample start() {
+        return Timer.start(registry);
+    }
+
+    // stage is load, modify or save; operation names the PdfService method
+    public void pdfStage(Timer.Sample sample, String operation, String stage) {
+        sample.stop(sloTimer("signflow.pdf.stage", "PDFBox load, modify and save time",
+                Tags.of("operation", operation, "stage", stage)));
+    }
+
+    public void conversion(Timer.Sample sample, String format, String outcome) {
+        sample.stop(sloTimer("signflow.conversion", "LibreOffice conversion time",
+                Tags.of("format", format, "outcome", outcome)));
+    }
+
+    public void storage(Timer.Sample sample, String direction, long bytes) {
+        Tags tags = Tags.of("direction", direction);
+        sample.stop(timer("signflow.storage.io", "Document file read and write time", tags));
+        DistributionSummary.builder("signflow.storage.bytes")
+                .description("Document file read and write sizes")
+                .baseUnit("bytes")
+                .tags(tags)
+                .serviceLevelObjectives(64 * 1024, 1024 * 1024, 10 * 1024 * 1024, 50 * 1024 * 1024)
+                .register(registry)
+                .record(bytes);
+    }
+
+    public void auditFlush(Timer.Sample sample, String outcome, int rows) {
+        Tags tags = Tags.of("outcome", outcome);
+        sample.stop(timer("signflow.audit.write", "Audit batch insert time", tags));
+        registry.counter("signflow.audit.rows", tags.and("endpoint", endpoint())).increment(rows);
+    }
+
+    public void emailSend(Timer.Sample sample, String outcome, int messages) {
+        Tags tags = Tags.of("outcome", outcome);
+        sample.stop(timer("signflow.email.send", "SMTP batch send time", tags));
+        registry.counter("signflow.email.messages", tags.and("endpoint", endpoint())).increment(messages);
+    }
+
+    // result is cached, verified or invalid
+    public void jwtVerify(Timer.Sample sample, String result) {
+        sample.stop(timer("signflow.jwt.verify", "JWT verification time", Tags.of("result", result)));
+    }
+
+    private Timer timer(String name, String description, Tags tags) {
+        return Timer.builder(name)
+                .description(description)
+                .tags(tags.and("endpoint", endpoint()))
+                .register(registry);
+    }
+
+    private Timer sloTimer(String name, String description, Tags tags) {
+        return Timer.builder(name)
+                .description(description)
+                .tags(tags)
+                .serviceLevelObjectives(Duration.ofMillis(100), Duration.ofMillis(500), Duration.ofSeconds(1),
+                        Duration.ofSeconds(5), Duration.ofSeconds(30))
+                .register(registry);
+    }
+
+    public static String endpoint() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (!(attributes instanceof ServletRequestAttributes servletAttributes)) {
+            return BACKGROUND;
+        }
+        HttpServletRequest request = servletAttributes.getRequest();
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        return pattern != null ? request.getMethod() + " " + pattern : "unmatched";
+    }
+}
@@ -1,6 +1,7 @@
 package com.app.signflow.config;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.authentication.AuthenticationManager;
@@ -16,19 +17,25 @@ import org.springframework.security.web.authentication.UsernamePasswordAuthentic
 public class SecurityConfig {
 	
 	private final JwtRequestFilter jwtRequestFilter;
+
+	@Value("${auth.bcrypt.strength:10}")
+	private int bcryptStrength;
 	
 	 @Bean
 	    public SecurityFilterChain filterChain(HttpSecurity http) throws Exception {
 	        http
 	            .csrf(csrf -> csrf.disable())
-	            .authorizeHttpRequests(auth -> auth.anyRequest().permitAll())
+	            .authorizeHttpRequests(auth -> auth
+	                    .requestMatchers("/actuator/health", "/actuator/info").permitAll()
+	                    .requestMatchers("/actuator/**").hasRole("ADMIN")
+	                    .anyRequest().permitAll())
 	            .addFilterBefore(jwtRequestFilter, UsernamePasswordAuthenticationFilter.class);
 	        return http.build();
 	    }
 	 
 	 @Bean
 	 public PasswordEncoder passwordEncoder() {
-		 return new BCryptPasswordEncoder();
+		 return new BCryptPasswordEncoder(bcryptStrength);
 	 }
 	 
 	 @Bean
@@ -0,0 +1,65 @@
+package com.app.signflow.config;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Records how long after JVM start the node became ready and finished its first API request, the number
+ * that decides how fast a scaled-out node takes traffic. Actuator probes do not count as traffic.
+ */
+@Component
+@Slf4j
+public class StartupTimingFilter extends OncePerRequestFilter {
+
+    private final AtomicBoolean served = new AtomicBoolean();
+    private volatile double readyMillis = Double.NaN;
+    private volatile double firstRequestMillis = Double.NaN;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onReady() {
+        readyMillis = uptimeMillis();
+        log.info("Ready {} ms after JVM start", (long) readyMillis);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return served.get() || request.getServletPath().startsWith("/actuator");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            if (served.compareAndSet(false, true)) {
+                firstRequestMillis = uptimeMillis();
+                log.info("First request ({} {}) served {} ms after JVM start",
+                        request.getMethod(), request.getServletPath(), (long) firstRequestMillis);
+            }
+        }
+    }
+
+    public double getReadyMillis() {
+        return readyMillis;
+    }
+
+    public double getFirstRequestMillis() {
+        return firstRequestMillis;
+    }
+
+    private static double uptimeMillis() {
+        return ManagementFactory.getRuntimeMXBean().getUptime();
+    }
+}
@@ -0,0 +1,35 @@
+package com.app.signflow.config;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+@Name("signflow.StorageIo")
+@Label("Document Storage I/O")
+@Category({"SignFlow", "Storage"})
+@Description("Whole-file read or synced write of a stored document")
+@Threshold("20 ms")
+@StackTrace(false)
+public class StorageIoEvent extends Event {
+
+    @Label("Direction")
+    public String direction;
+
+    @Label("Endpoint")
+    public String endpoint;
+
+    @Label("Document Id")
+    public long documentId;
+
+    @Label("File")
+    public String file;
+
+    @Label("Bytes")
+    @DataAmount
+    public long bytes;
+}
@@ -0,0 +1,65 @@
+package com.app.signflow.config;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Per-key token buckets kept as a single "theoretical arrival time" per key (GCRA). Admitting a request is
+ * one compare-and-set on that key's counter, with no locks on the request path. A key whose arrival time
+ * lies in the past has a full bucket and can be evicted.
+ */
+public class TokenBucketRateLimiter {
+
+    private final long nanosPerToken;
+    private final long burstNanos;
+    private final int capacity;
+    private final LongSupplier clock;
+    private final ConcurrentHashMap<Object, AtomicLong> arrivals = new ConcurrentHashMap<>();
+
+    public TokenBucketRateLimiter(double tokensPerSecond, int capacity) {
+        this(tokensPerSecond, capacity, System::nanoTime);
+    }
+
+    TokenBucketRateLimiter(double tokensPerSecond, int capacity, LongSupplier clock) {
+        this.clock = clock;
+        this.nanosPerToken = (long) (1_000_000_000L / tokensPerSecond);
+        this.capacity = Math.max(1, capacity);
+        this.burstNanos = nanosPerToken * this.capacity;
+    }
+
+    /**
+     * Takes {@code cost} tokens from the key's bucket.
+     *
+     * @return 0 when admitted, otherwise the nanoseconds until enough tokens are available
+     */
+    public long tryAcquire(Object key, int cost) {
+        long now = clock.getAsLong();
+        AtomicLong arrival = arrivals.get(key);
+        if (arrival == null) {
+            arrival = arrivals.computeIfAbsent(key, k -> new AtomicLong(now));
+        }
+        long increment = Math.min(Math.max(1, cost), capacity) * nanosPerToken;
+        while (true) {
+            long current = arrival.get();
+            long next = Math.max(current, now) + increment;
+            long overshoot = next - now - burstNanos;
+            if (overshoot > 0) {
+                return overshoot;
+            }
+            if (arrival.compareAndSet(current, next)) {
+                return 0;
+            }
+        }
+    }
+
+    // A request racing with eviction may charge a bucket that was just dropped; it only ever errs towards admitting
+    public void evictIdle() {
+        long now = clock.getAsLong();
+        arrivals.values().removeIf(arrival -> arrival.get() - now <= 0);
+    }
+
+    public int size() {
+        return arrivals.size();
+    }
+}
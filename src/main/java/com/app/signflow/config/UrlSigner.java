@@ -0,0 +1,151 @@
+package com.app.signflow.config;
+
+import com.app.signflow.model.entity.Document;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+
+/**
+ * Issues and verifies HMAC-signed link tokens. Download tokens carry the document's storage key and file name,
+ * so a download needs no session, and the document version they were issued for, so any later change to the
+ * document invalidates them. Signer tokens identify an invited signer of a document. Without a
+ * {@code links.signing-secret} the key is derived from {@code jwt.secret}, never the JWT key itself.
+ */
+@Component
+public class UrlSigner {
+
+    private static final String ALGORITHM = "HmacSHA256";
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    private static final String DERIVATION_LABEL = "download-links";
+
+    @Value("${links.signing-secret:}")
+    private String signingSecret;
+
+    @Value("${jwt.secret:}")
+    private String jwtSecret;
+
+    @Value("${app.public-base-url:http://localhost:8080}")
+    private String publicBaseUrl;
+
+    private ThreadLocal<Mac> macs;
+
+    @PostConstruct
+    void init() {
+        SecretKeySpec key = new SecretKeySpec(keyBytes(), ALGORITHM);
+        macs = ThreadLocal.withInitial(() -> {
+            try {
+                Mac mac = Mac.getInstance(ALGORITHM);
+                mac.init(key);
+                return mac;
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+    }
+
+    private byte[] keyBytes() {
+        if (signingSecret != null && !signingSecret.isBlank()) {
+            return signingSecret.getBytes(StandardCharsets.UTF_8);
+        }
+        if (jwtSecret == null || jwtSecret.isBlank()) {
+            throw new IllegalStateException("links.signing-secret or jwt.secret must be set");
+        }
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(new SecretKeySpec(jwtSecret.getBytes(StandardCharsets.UTF_8), ALGORITHM));
+            return mac.doFinal(DERIVATION_LABEL.getBytes(StandardCharsets.UTF_8));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public String downloadUrl(Document document, Duration ttl) {
+        Instant expiresAt = Instant.now().plus(ttl);
+        return publicBaseUrl + "/api/v1/public/documents/" + document.getId() + "/download?token="
+                + sign(document.getId(), document.getVersion(), document.getFilePath(), document.getFileName(), expiresAt);
+    }
+
+    public String sign(Long documentId, Long version, String storageKey, String fileName, Instant expiresAt) {
+        return encode("download\n" + documentId + "\n" + version + "\n" + expiresAt.getEpochSecond() + "\n"
+                + storageKey + "\n" + fileName);
+    }
+
+    // currentVersion is the document's version now; a link issued for an earlier one is gone
+    public SignedDownload verify(Long documentId, Long currentVersion, String token) {
+        String[] fields = decode(token).split("\n", 6);
+        if (fields.length != 6 || !"download".equals(fields[0]) || !fields[1].equals(String.valueOf(documentId))) {
+            throw new ResponseStatusException(HttpStatus.FORBIDDEN, "Invalid download link");
+        }
+        Instant expiresAt = checkExpiry(fields[3]);
+        if (!fields[2].equals(String.valueOf(currentVersion))) {
+            throw new ResponseStatusException(HttpStatus.GONE, "Document has changed since the link was sent");
+        }
+        return new SignedDownload(documentId, fields[4], fields[5], expiresAt);
+    }
+
+    public String signSignerToken(Long signerId, Long documentId, Instant expiresAt) {
+        return encode("signer\n" + signerId + "\n" + documentId + "\n" + expiresAt.getEpochSecond());
+    }
+
+    public SignerToken verifySignerToken(String token) {
+        String[] fields = decode(token).split("\n", 4);
+        if (fields.length != 4 || !"signer".equals(fields[0])) {
+            throw new ResponseStatusException(HttpStatus.FORBIDDEN, "Invalid signing link");
+        }
+        checkExpiry(fields[3]);
+        return new SignerToken(Long.parseLong(fields[1]), Long.parseLong(fields[2]));
+    }
+
+    // The first payload field names the token's purpose, so a token of one kind never verifies as another
+    private String encode(String payload) {
+        byte[] bytes = payload.getBytes(StandardCharsets.UTF_8);
+        return ENCODER.encodeToString(bytes) + "." + ENCODER.encodeToString(macs.get().doFinal(bytes));
+    }
+
+    private String decode(String token) {
+        int separator = token != null ? token.indexOf('.') : -1;
+        if (separator < 0) {
+            throw new ResponseStatusException(HttpStatus.FORBIDDEN, "Invalid link");
+        }
+
+        byte[] payload;
+        byte[] signature;
+        try {
+            payload = DECODER.decode(token.substring(0, separator));
+            signature = DECODER.decode(token.substring(separator + 1));
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.FORBIDDEN, "Invalid link");
+        }
+        if (!MessageDigest.isEqual(macs.get().doFinal(payload), signature)) {
+            throw new ResponseStatusException(HttpStatus.FORBIDDEN, "Invalid link");
+        }
+        return new String(payload, StandardCharsets.UTF_8);
+    }
+
+    private static Instant checkExpiry(String epochSeconds) {
+        Instant expiresAt = Instant.ofEpochSecond(Long.parseLong(epochSeconds));
+        if (Instant.now().isAfter(expiresAt)) {
+            throw new ResponseStatusException(HttpStatus.GONE, "Link has expired");
+        }
+        return expiresAt;
+    }
+
+    public record SignedDownload(Long documentId, String storageKey, String fileName, Instant expiresAt) {
+    }
+
+    public record SignerToken(Long signerId, Long documentId) {
+    }
+}
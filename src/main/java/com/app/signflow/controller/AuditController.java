@@ -0,0 +1,73 @@
+package com.app.signflow.controller;
+
+import com.app.signflow.model.dto.AuditLogPage;
+import com.app.signflow.service.AuditQueryService;
+import com.app.signflow.service.AuditQueryService.AuditFilter;
+import com.app.signflow.service.AuditQueryService.ExportFormat;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.time.LocalDateTime;
+
+@RestController
+@RequestMapping("/api/v1/audit")
+@RequiredArgsConstructor
+@CrossOrigin(origins = "http://localhost:4200")
+public class AuditController {
+
+    private final AuditQueryService auditQueryService;
+
+    // Exports of large ranges stream for far longer than the default async timeout, which other routes keep
+    @Value("${audit.export.timeout-ms:3600000}")
+    private long exportTimeoutMs;
+
+    @GetMapping
+    public ResponseEntity<AuditLogPage> search(
+            @RequestParam(required = false) Long documentId,
+            @RequestParam(required = false) Long userId,
+            @RequestParam(required = false) String action,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "100") int limit) {
+        AuditFilter filter = new AuditFilter(documentId, userId, action, from, to, null);
+        return ResponseEntity.ok(auditQueryService.search(filter, cursor, limit));
+    }
+
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> export(
+            @RequestParam(required = false) Long documentId,
+            @RequestParam(required = false) Long userId,
+            @RequestParam(required = false) String action,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(defaultValue = "ndjson") String format,
+            HttpServletRequest request) {
+        ExportFormat exportFormat = "csv".equalsIgnoreCase(format) ? ExportFormat.CSV : ExportFormat.NDJSON;
+        AuditFilter filter = auditQueryService.scoped(new AuditFilter(documentId, userId, action, from, to, null));
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(exportFormat == ExportFormat.CSV
+                ? MediaType.parseMediaType("text/csv; charset=UTF-8")
+                : MediaType.parseMediaType("application/x-ndjson"));
+        headers.setContentDisposition(ContentDisposition.attachment()
+                .filename(exportFormat == ExportFormat.CSV ? "audit-log.csv" : "audit-log.ndjson")
+                .build());
+        headers.setCacheControl("no-store");
+
+        WebAsyncUtils.getAsyncManager(request).getAsyncWebRequest().setTimeout(exportTimeoutMs);
+        StreamingResponseBody body = out -> auditQueryService.export(filter, exportFormat, out);
+        return ResponseEntity.ok()
+                .headers(headers)
+                .body(body);
+    }
+}
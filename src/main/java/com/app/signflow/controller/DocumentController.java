@@ -1,18 +1,36 @@
 package com.app.signflow.controller;
 
+import com.app.signflow.model.dto.AddSignersRequest;
+import com.app.signflow.model.dto.ContentSearchResult;
 import com.app.signflow.model.dto.DocumentDTO;
+import com.app.signflow.model.dto.DocumentDraftDTO;
+import com.app.signflow.model.dto.DocumentMetadataDTO;
+import com.app.signflow.model.dto.DocumentRevisionDTO;
 import com.app.signflow.model.dto.DocumentUploadResponse;
+import com.app.signflow.model.dto.DraftPatchRequest;
 import com.app.signflow.model.dto.EditDocumentRequest;
+import com.app.signflow.model.dto.ImageBlock;
 import com.app.signflow.model.dto.SignatureRequest;
+import com.app.signflow.model.dto.SignerDTO;
 import com.app.signflow.model.entity.Document.DocumentStatus;
+import com.app.signflow.service.DocumentDraftService;
+import com.app.signflow.service.DocumentRevisionService;
 import com.app.signflow.service.DocumentService;
+import com.app.signflow.service.ImageSpooler;
+import com.app.signflow.service.SigningWorkflowService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.core.io.InputStreamResource;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.multipart.MultipartRequest;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 import java.util.Map;
 
@@ -23,6 +41,8 @@ import java.util.Map;
 public class DocumentController {
 
     private final DocumentService documentService;
+    private final SigningWorkflowService signingWorkflowService;
+    private final DocumentDraftService documentDraftService;
 
     @PostMapping("/upload")
     public ResponseEntity<DocumentUploadResponse> uploadDocument(@RequestParam("file") MultipartFile file) {
@@ -36,9 +56,21 @@ public class DocumentController {
         return ResponseEntity.ok(documentService.getDocuments(status, search));
     }
 
+    @GetMapping("/content-search")
+    public ResponseEntity<List<ContentSearchResult>> searchContent(
+            @RequestParam("q") String query,
+            @RequestParam(defaultValue = "20") int limit) {
+        return ResponseEntity.ok(documentService.searchContent(query, limit));
+    }
+
     @GetMapping("/{id}")
     public ResponseEntity<DocumentDTO> getDocument(@PathVariable Long id) {
-        return ResponseEntity.ok(documentService.getDocument(id));
+        return withETag(documentService.getDocument(id));
+    }
+
+    @GetMapping("/{id}/pages")
+    public ResponseEntity<DocumentMetadataDTO> getDocumentMetadata(@PathVariable Long id) {
+        return ResponseEntity.ok(documentService.getDocumentMetadata(id));
     }
 
     @GetMapping("/{id}/download")
@@ -57,6 +89,36 @@ public class DocumentController {
                 .body(pdfData);
     }
 
+    @GetMapping("/{id}/revisions")
+    public ResponseEntity<List<DocumentRevisionDTO>> getRevisions(@PathVariable Long id) {
+        return ResponseEntity.ok(documentService.getRevisions(id));
+    }
+
+    @GetMapping("/{id}/revisions/{revision}/download")
+    public ResponseEntity<InputStreamResource> downloadRevision(
+            @PathVariable Long id,
+            @PathVariable Integer revision) {
+        DocumentDTO document = documentService.getDocument(id);
+        DocumentRevisionService.RevisionContent content = documentService.openRevision(id, revision);
+
+        // Every revision after the upload is produced as a PDF
+        String fileName = document.getFileName() != null ? document.getFileName() : "document";
+        int dot = fileName.lastIndexOf('.');
+        String baseName = dot > 0 ? fileName.substring(0, dot) : fileName;
+        String extension = revision > 1 || dot <= 0 ? ".pdf" : fileName.substring(dot);
+        fileName = baseName + "-r" + revision + extension;
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_OCTET_STREAM);
+        headers.setContentDispositionFormData("attachment", fileName);
+        headers.setContentLength(content.sizeBytes());
+        headers.setCacheControl("no-store, no-cache, must-revalidate, max-age=0");
+
+        return ResponseEntity.ok()
+                .headers(headers)
+                .body(new InputStreamResource(content.stream()));
+    }
+
     @GetMapping("/{id}/download-as-pdf")
     public ResponseEntity<byte[]> downloadAsPdf(@PathVariable Long id) {
         DocumentDTO document = documentService.getDocument(id);
@@ -106,6 +168,22 @@ public class DocumentController {
                 .body(docxData);
     }
 
+    @PutMapping("/{id}/name")
+    public ResponseEntity<DocumentDTO> renameDocument(
+            @PathVariable Long id,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+            @RequestBody Map<String, String> request) {
+        return withETag(documentService.renameDocument(id, request.get("fileName"), parseVersion(ifMatch)));
+    }
+
+    @PutMapping("/{id}/expiry")
+    public ResponseEntity<DocumentDTO> setExpiry(
+            @PathVariable Long id,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+            @RequestBody Map<String, String> request) {
+        return withETag(documentService.setExpiry(id, request.get("expiresAt"), parseVersion(ifMatch)));
+    }
+
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> deleteDocument(@PathVariable Long id) {
         documentService.deleteDocument(id);
@@ -115,31 +193,94 @@ public class DocumentController {
     @PostMapping("/{id}/sign")
     public ResponseEntity<DocumentDTO> signDocument(
             @PathVariable Long id,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
             @RequestBody SignatureRequest signatureRequest) {
-        return ResponseEntity.ok(documentService.signDocument(id, signatureRequest));
+        return withETag(documentService.signDocument(id, signatureRequest, parseVersion(ifMatch)));
+    }
+
+    // Same as the JSON variant, with the signature image as a binary part instead of base64
+    @PostMapping(value = "/{id}/sign", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<DocumentDTO> signDocumentMultipart(
+            @PathVariable Long id,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+            @RequestPart("request") SignatureRequest signatureRequest,
+            @RequestPart("signature") MultipartFile signature) {
+        signatureRequest.setSignature(ImageSpooler.fromPart(signature));
+        return withETag(documentService.signDocument(id, signatureRequest, parseVersion(ifMatch)));
     }
 
     @PostMapping("/{id}/edit")
     public ResponseEntity<DocumentDTO> editDocument(
             @PathVariable Long id,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
             @RequestBody EditDocumentRequest request) {
-        return ResponseEntity.ok(documentService.editDocument(id, request));
+        return withETag(documentService.editDocument(id, request, parseVersion(ifMatch)));
+    }
+
+    // Image blocks name the binary part holding their image
+    @PostMapping(value = "/{id}/edit", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<DocumentDTO> editDocumentMultipart(
+            @PathVariable Long id,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+            @RequestPart("request") EditDocumentRequest request,
+            MultipartRequest multipartRequest) {
+        if (request.getImageBlocks() != null) {
+            for (ImageBlock block : request.getImageBlocks()) {
+                if (block.getPart() != null) {
+                    MultipartFile part = multipartRequest.getFile(block.getPart());
+                    if (part == null) {
+                        throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Missing image part " + block.getPart());
+                    }
+                    block.setImage(ImageSpooler.fromPart(part));
+                }
+            }
+        }
+        return withETag(documentService.editDocument(id, request, parseVersion(ifMatch)));
     }
 
     @GetMapping("/{id}/edit-html")
-    public ResponseEntity<String> getEditableHtml(@PathVariable Long id) {
-        String html = documentService.getEditableHtml(id);
+    public ResponseEntity<StreamingResponseBody> getEditableHtml(@PathVariable Long id) {
+        DocumentService.EditableHtml html = documentService.convertToEditableHtml(id);
+        StreamingResponseBody body = out -> documentService.writeEditableHtml(html, out);
         return ResponseEntity.ok()
-                .contentType(MediaType.TEXT_HTML)
-                .body(html);
+                .contentType(new MediaType(MediaType.TEXT_HTML, StandardCharsets.UTF_8))
+                .body(body);
     }
 
     @PostMapping("/{id}/save-html")
     public ResponseEntity<DocumentDTO> saveEditableHtml(
             @PathVariable Long id,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
             @RequestBody Map<String, String> request) {
         String html = request.get("html");
-        return ResponseEntity.ok(documentService.saveEditableHtml(id, html));
+        return withETag(documentService.saveEditableHtml(id, html, parseVersion(ifMatch)));
+    }
+
+    // Drafts carry their revision in the ETag; patches and finalize send it back in If-Match
+    @GetMapping("/{id}/draft")
+    public ResponseEntity<DocumentDraftDTO> getDraft(@PathVariable Long id) {
+        return withETag(documentDraftService.get(id));
+    }
+
+    @PatchMapping("/{id}/draft")
+    public ResponseEntity<DocumentDraftDTO> patchDraft(
+            @PathVariable Long id,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+            @RequestBody DraftPatchRequest request) {
+        return withETag(documentDraftService.patch(id, parseVersion(ifMatch), request.getOperations()));
+    }
+
+    @PostMapping("/{id}/draft/finalize")
+    public ResponseEntity<DocumentDTO> finalizeDraft(
+            @PathVariable Long id,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        return withETag(documentDraftService.finalizeDraft(id, parseVersion(ifMatch)));
+    }
+
+    @DeleteMapping("/{id}/draft")
+    public ResponseEntity<Void> discardDraft(@PathVariable Long id) {
+        documentDraftService.discard(id);
+        return ResponseEntity.noContent().build();
     }
 
     @PostMapping("/{id}/email")
@@ -147,6 +288,48 @@ public class DocumentController {
             @PathVariable Long id,
             @RequestBody Map<String, String> request) {
         documentService.emailDocument(id, request.get("email"));
-        return ResponseEntity.ok(Map.of("message", "Document sent successfully"));
+        return ResponseEntity.accepted().body(Map.of("message", "Document queued for delivery"));
+    }
+
+    @PostMapping("/{id}/signers")
+    public ResponseEntity<List<SignerDTO>> addSigners(
+            @PathVariable Long id,
+            @RequestBody AddSignersRequest request) {
+        return ResponseEntity.status(HttpStatus.CREATED)
+                .body(signingWorkflowService.addSigners(id, request.getEmails(), request.getExpiresAt()));
+    }
+
+    @GetMapping("/{id}/signers")
+    public ResponseEntity<List<SignerDTO>> getSigners(@PathVariable Long id) {
+        return ResponseEntity.ok(signingWorkflowService.getSigners(id));
+    }
+
+    private ResponseEntity<DocumentDTO> withETag(DocumentDTO document) {
+        return ResponseEntity.ok()
+                .eTag("\"" + document.getVersion() + "\"")
+                .body(document);
+    }
+
+    private ResponseEntity<DocumentDraftDTO> withETag(DocumentDraftDTO draft) {
+        return ResponseEntity.ok()
+                .eTag("\"" + draft.getRevision() + "\"")
+                .body(draft);
+    }
+
+    // Accepts the ETag returned by earlier responses ("3", W/"3") or a bare version number
+    private static Long parseVersion(String ifMatch) {
+        if (ifMatch == null || ifMatch.isBlank() || "*".equals(ifMatch.trim())) {
+            return null;
+        }
+        String value = ifMatch.trim();
+        if (value.startsWith("W/")) {
+            value = value.substring(2);
+        }
+        value = value.replace("\"", "");
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid If-Match header");
+        }
     }
 }
@@ -0,0 +1,65 @@
+package com.app.signflow.controller;
+
+import com.app.signflow.config.UrlSigner;
+import com.app.signflow.config.UrlSigner.SignedDownload;
+import com.app.signflow.service.DocumentService;
+import com.app.signflow.service.DocumentStorageService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Session-less downloads for links sent by email. Returning a {@link Resource} lets Spring serve Range
+ * requests, so large files can be resumed.
+ */
+@RestController
+@RequestMapping("/api/v1/public/documents")
+@RequiredArgsConstructor
+public class PublicDownloadController {
+
+    private final UrlSigner urlSigner;
+    private final DocumentStorageService documentStorageService;
+    private final DocumentService documentService;
+
+    @GetMapping("/{id}/download")
+    public ResponseEntity<Resource> download(@PathVariable Long id, @RequestParam String token) throws IOException {
+        SignedDownload download = urlSigner.verify(id, documentService.findVersion(id), token);
+
+        Path path = documentStorageService.resolve(download.storageKey());
+        if (!path.startsWith(documentStorageService.uploadRoot()) || !Files.isRegularFile(path)) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Document not found");
+        }
+
+        String fileName = download.fileName();
+        MediaType contentType = fileName.toLowerCase().endsWith(".pdf")
+                ? MediaType.APPLICATION_PDF
+                : MediaType.APPLICATION_OCTET_STREAM;
+        long maxAge = Math.max(0, Duration.between(Instant.now(), download.expiresAt()).getSeconds());
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(contentType);
+        headers.setContentDisposition(ContentDisposition.attachment()
+                .filename(fileName, StandardCharsets.UTF_8)
+                .build());
+        headers.setCacheControl("private, max-age=" + maxAge);
+        headers.setLastModified(Files.getLastModifiedTime(path).toMillis());
+
+        return ResponseEntity.ok()
+                .headers(headers)
+                .body(new FileSystemResource(path));
+    }
+}
@@ -0,0 +1,56 @@
+package com.app.signflow.controller;
+
+import com.app.signflow.model.dto.SignatureRequest;
+import com.app.signflow.model.dto.SignerDTO;
+import com.app.signflow.service.ImageSpooler;
+import com.app.signflow.service.SigningWorkflowService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+
+/**
+ * Endpoints for invited signers, authorized by the signed token from their invitation.
+ */
+@RestController
+@RequestMapping("/api/v1/public/signing")
+@RequiredArgsConstructor
+@CrossOrigin(origins = "http://localhost:4200")
+public class PublicSigningController {
+
+    private final SigningWorkflowService signingWorkflowService;
+
+    @GetMapping("/{token}")
+    public ResponseEntity<SignerDTO> getInvitation(@PathVariable String token) {
+        return ResponseEntity.ok(signingWorkflowService.getInvitation(token));
+    }
+
+    @GetMapping("/{token}/document")
+    public ResponseEntity<Resource> getDocument(@PathVariable String token) {
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_PDF)
+                .header(HttpHeaders.CACHE_CONTROL, "private, no-store")
+                .body(new FileSystemResource(signingWorkflowService.openForSigner(token)));
+    }
+
+    @PostMapping("/{token}")
+    public ResponseEntity<SignerDTO> sign(
+            @PathVariable String token,
+            @RequestBody SignatureRequest signatureRequest) {
+        return ResponseEntity.ok(signingWorkflowService.sign(token, signatureRequest));
+    }
+
+    // Same as the JSON variant, with the signature image as a binary part instead of base64
+    @PostMapping(value = "/{token}", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<SignerDTO> signMultipart(
+            @PathVariable String token,
+            @RequestPart("request") SignatureRequest signatureRequest,
+            @RequestPart("signature") MultipartFile signature) {
+        signatureRequest.setSignature(ImageSpooler.fromPart(signature));
+        return ResponseEntity.ok(signingWorkflowService.sign(token, signatureRequest));
+    }
+}
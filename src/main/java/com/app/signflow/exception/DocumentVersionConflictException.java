@@ -0,0 +1,31 @@
+package com.app.signflow.exception;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * Raised when a write was based on a stale document version. The current version is returned in the ETag header.
+ */
+public class DocumentVersionConflictException extends ResponseStatusException {
+
+    private final Long currentVersion;
+
+    public DocumentVersionConflictException(Long currentVersion) {
+        super(HttpStatus.CONFLICT, "Document was modified concurrently, current version is " + currentVersion);
+        this.currentVersion = currentVersion;
+    }
+
+    public Long getCurrentVersion() {
+        return currentVersion;
+    }
+
+    @Override
+    public HttpHeaders getHeaders() {
+        HttpHeaders headers = new HttpHeaders();
+        if (currentVersion != null) {
+            headers.setETag("\"" + currentVersion + "\"");
+        }
+        return headers;
+    }
+}
@@ -0,0 +1,30 @@
+package com.app.signflow.exception;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * Raised when a draft patch or finalize was based on a stale draft revision. The current revision is
+ * returned in the ETag header.
+ */
+public class DraftRevisionConflictException extends ResponseStatusException {
+
+    private final Long currentRevision;
+
+    public DraftRevisionConflictException(Long currentRevision) {
+        super(HttpStatus.CONFLICT, "Draft was modified concurrently, current revision is " + currentRevision);
+        this.currentRevision = currentRevision;
+    }
+
+    public Long getCurrentRevision() {
+        return currentRevision;
+    }
+
+    @Override
+    public HttpHeaders getHeaders() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setETag("\"" + currentRevision + "\"");
+        return headers;
+    }
+}
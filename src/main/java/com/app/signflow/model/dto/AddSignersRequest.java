@@ -0,0 +1,12 @@
+package com.app.signflow.model.dto;
+
+import lombok.Data;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+public class AddSignersRequest {
+    private List<String> emails;
+    private LocalDateTime expiresAt;
+}
@@ -0,0 +1,21 @@
+package com.app.signflow.model.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class AuditLogDTO {
+    private Long id;
+    private Long documentId;
+    private String action;
+    private Long performedBy;
+    private String ipAddress;
+    private LocalDateTime timestamp;
+}
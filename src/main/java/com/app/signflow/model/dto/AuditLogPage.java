@@ -0,0 +1,18 @@
+package com.app.signflow.model.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class AuditLogPage {
+    private List<AuditLogDTO> items;
+    // Opaque keyset cursor for the next page, null on the last page
+    private String nextCursor;
+}
@@ -0,0 +1,17 @@
+package com.app.signflow.model.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ContentSearchResult {
+    private Long documentId;
+    private String fileName;
+    private Double score;
+    private String snippet;
+}
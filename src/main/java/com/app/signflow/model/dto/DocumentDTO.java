@@ -18,6 +18,9 @@ public class DocumentDTO {
     private String fileName;
     private String filePath;
     private DocumentStatus status;
+    private Long version;
+    private Integer pendingSigners;
+    private LocalDateTime expiresAt;
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
 }
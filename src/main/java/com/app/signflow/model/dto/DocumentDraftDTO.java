@@ -0,0 +1,25 @@
+package com.app.signflow.model.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class DocumentDraftDTO {
+    private Long documentId;
+    // Document version the draft was opened from; finalizing fails once the document moved past it
+    private Long documentVersion;
+    // The document was changed after the draft was opened; the draft can be read and discarded, not finalized
+    private boolean stale;
+    private Long revision;
+    private Integer pageCount;
+    private LocalDateTime updatedAt;
+    // Only returned when the draft is read, not after a patch
+    private String html;
+}
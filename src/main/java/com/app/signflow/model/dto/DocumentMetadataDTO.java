@@ -0,0 +1,22 @@
+package com.app.signflow.model.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class DocumentMetadataDTO {
+    private Long documentId;
+    private String contentType;
+    private Long sizeBytes;
+    private String sha256;
+    private Integer pageCount;
+    private Boolean encrypted;
+    private List<PageDimension> pages;
+}
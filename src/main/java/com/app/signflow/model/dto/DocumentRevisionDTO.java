@@ -0,0 +1,25 @@
+package com.app.signflow.model.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class DocumentRevisionDTO {
+    private Integer revisionNumber;
+    private Long sizeBytes;
+    private Long deltaBytes;
+    private String sha256;
+    private boolean archived;
+    private String action;
+    private Long performedBy;
+    private LocalDateTime createdAt;
+    // Audit search for the event that produced this revision, between its creation and the next revision's
+    private String auditLink;
+}
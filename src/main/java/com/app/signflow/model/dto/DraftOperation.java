@@ -0,0 +1,27 @@
+package com.app.signflow.model.dto;
+
+import lombok.Data;
+
+/**
+ * One change to an editor draft. Pages and elements are numbered from 1; elements are the top-level
+ * elements inside a page. Insert operations place the new content before the given page or element, or at
+ * the end when it is one past the last.
+ */
+@Data
+public class DraftOperation {
+
+    public enum Type {
+        REPLACE_STYLES,
+        REPLACE_PAGE,
+        INSERT_PAGE,
+        DELETE_PAGE,
+        REPLACE_ELEMENT,
+        INSERT_ELEMENT,
+        DELETE_ELEMENT
+    }
+
+    private Type op;
+    private Integer page;
+    private Integer element;
+    private String html;
+}
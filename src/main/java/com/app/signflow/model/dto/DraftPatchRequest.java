@@ -0,0 +1,11 @@
+package com.app.signflow.model.dto;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+public class DraftPatchRequest {
+    private List<DraftOperation> operations = new ArrayList<>();
+}
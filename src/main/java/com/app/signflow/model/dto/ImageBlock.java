@@ -1,6 +1,8 @@
 package com.app.signflow.model.dto;
 
+import com.app.signflow.service.ImageSpooler;
 import lombok.Data;
+import tools.jackson.databind.annotation.JsonDeserialize;
 
 @Data
 public class ImageBlock {
@@ -9,5 +11,14 @@ public class ImageBlock {
     private int y;
     private int width;
     private int height;
-    private String dataUrl;
+    // Plain base64, decoded while the request is parsed
+    @JsonDeserialize(using = ImageSpooler.Base64Deserializer.class)
+    private SpooledImage image;
+    // Name of the binary part holding the image in multipart requests
+    private String part;
+
+    // Base64 data URL sent by older clients
+    public void setDataUrl(String dataUrl) {
+        this.image = ImageSpooler.fromDataUrl(dataUrl);
+    }
 }
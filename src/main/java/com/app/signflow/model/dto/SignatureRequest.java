@@ -1,13 +1,22 @@
 package com.app.signflow.model.dto;
 
+import com.app.signflow.service.ImageSpooler;
 import lombok.Data;
+import tools.jackson.databind.annotation.JsonDeserialize;
 
 @Data
 public class SignatureRequest {
-    private String signatureImage; // Base64 encoded image
+    // Plain base64, decoded while the request is parsed; multipart requests send it as a binary part
+    @JsonDeserialize(using = ImageSpooler.Base64Deserializer.class)
+    private SpooledImage signature;
     private Integer page;
     private Integer x;
     private Integer y;
     private Integer width;
     private Integer height;
+
+    // Base64 data URL sent by older clients
+    public void setSignatureImage(String dataUrl) {
+        this.signature = ImageSpooler.fromDataUrl(dataUrl);
+    }
 }
@@ -0,0 +1,22 @@
+package com.app.signflow.model.dto;
+
+import com.app.signflow.model.entity.Signer.SignerStatus;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SignerDTO {
+    private Long id;
+    private Long documentId;
+    private String documentName;
+    private String email;
+    private SignerStatus status;
+    private LocalDateTime signedAt;
+}
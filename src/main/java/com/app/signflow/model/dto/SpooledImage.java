@@ -0,0 +1,64 @@
+package com.app.signflow.model.dto;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Image bytes received with a request, either on the heap or in a temp file owned by this object, so an
+ * image is held once and never as a base64 String. Closing it deletes the file.
+ */
+public final class SpooledImage implements AutoCloseable {
+
+    private final byte[] bytes;
+    private final Path file;
+    private final long size;
+
+    private SpooledImage(byte[] bytes, Path file, long size) {
+        this.bytes = bytes;
+        this.file = file;
+        this.size = size;
+    }
+
+    public static SpooledImage inMemory(byte[] bytes) {
+        return new SpooledImage(bytes, null, bytes.length);
+    }
+
+    public static SpooledImage inFile(Path file, long size) {
+        return new SpooledImage(null, file, size);
+    }
+
+    public boolean inMemory() {
+        return file == null;
+    }
+
+    // Only set while inMemory()
+    public byte[] bytes() {
+        return bytes;
+    }
+
+    // Only set unless inMemory()
+    public Path file() {
+        return file;
+    }
+
+    public long size() {
+        return size;
+    }
+
+    @Override
+    public void close() {
+        if (file != null) {
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                // the temp directory is cleaned by the OS eventually
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "SpooledImage(" + size + " bytes" + (file != null ? ", spooled" : "") + ")";
+    }
+}
@@ -33,6 +33,18 @@ public class Document {
     @Column(nullable = false)
     private DocumentStatus status;
 
+    @Version
+    @Column(nullable = false)
+    private Long version;
+
+    // Maintained only by atomic SQL updates in SigningWorkflowService, never written through the entity
+    @Column(nullable = false, insertable = false, updatable = false)
+    private Integer pendingSigners;
+
+    // Cleared once the deadline has been handled, so the expires_at index only holds live deadlines
+    @Column
+    private LocalDateTime expiresAt;
+
     @Column(nullable = false, updatable = false)
     private LocalDateTime createdAt;
 
@@ -0,0 +1,49 @@
+package com.app.signflow.model.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "document_metadata")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class DocumentMetadata {
+
+    @Id
+    private Long documentId;
+
+    @Column(nullable = false)
+    private String contentType;
+
+    @Column(nullable = false)
+    private Long sizeBytes;
+
+    @Column(nullable = false, length = 64)
+    private String sha256;
+
+    @Column
+    private Integer pageCount;
+
+    // Media box width and height per page, "612.0x792.0;595.0x842.0;..."
+    @Column(columnDefinition = "TEXT")
+    private String pageSizes;
+
+    @Column(nullable = false)
+    private Boolean encrypted;
+
+    @Column(nullable = false)
+    private LocalDateTime updatedAt;
+
+    @PrePersist
+    @PreUpdate
+    protected void onSave() {
+        updatedAt = LocalDateTime.now();
+    }
+}
@@ -0,0 +1,57 @@
+package com.app.signflow.model.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "document_revisions")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class DocumentRevision {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private Long documentId;
+
+    @Column(nullable = false)
+    private Integer revisionNumber;
+
+    // Length of the full file at this revision; the revision is the first sizeBytes bytes of its chain
+    @Column(nullable = false)
+    private Long sizeBytes;
+
+    // Bytes this revision added to its chain
+    @Column(nullable = false)
+    private Long deltaBytes;
+
+    @Column(nullable = false, length = 64)
+    private String sha256;
+
+    // Compressed copy of a superseded chain; null while the revision is a prefix of the live file
+    @Column(length = 1000)
+    private String archivePath;
+
+    @Column(nullable = false)
+    private String action;
+
+    @Column(nullable = false)
+    private Long performedBy;
+
+    @Column(nullable = false)
+    private LocalDateTime createdAt;
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+    }
+}
@@ -16,8 +16,10 @@ import java.time.LocalDateTime;
 @AllArgsConstructor
 public class Signer {
 
+    // Sequence ids are assigned before insert, which lets Hibernate batch signer inserts
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "signers_seq")
+    @SequenceGenerator(name = "signers_seq", sequenceName = "signers_seq", allocationSize = 50)
     private Long id;
 
     @Column(nullable = false)
@@ -33,6 +35,9 @@ public class Signer {
     @Column
     private LocalDateTime signedAt;
 
+    @Column
+    private LocalDateTime expiresAt;
+
     @PrePersist
     protected void onCreate() {
         if (status == null) {
@@ -41,6 +46,6 @@ public class Signer {
     }
 
     public enum SignerStatus {
-        PENDING, SIGNED
+        PENDING, SIGNED, EXPIRED
     }
 }
@@ -0,0 +1,9 @@
+package com.app.signflow.repo;
+
+import com.app.signflow.model.entity.DocumentMetadata;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface DocumentMetadataRepository extends JpaRepository<DocumentMetadata, Long> {
+}
@@ -3,18 +3,59 @@ package com.app.signflow.repo;
 import com.app.signflow.model.entity.Document;
 import com.app.signflow.model.entity.Document.DocumentStatus;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
 public interface DocumentRepository extends JpaRepository<Document, Long> {
     List<Document> findByOwnerId(Long ownerId);
     List<Document> findByOwnerIdAndStatus(Long ownerId, DocumentStatus status);
+
+    @Query("SELECT d.version FROM Document d WHERE d.id = :id")
+    Long findVersionById(@Param("id") Long id);
+
+    // Takes the next version only if nobody else has; clears the persistence context so the loaded entity
+    // is not flushed later with its stale version
+    @Modifying(clearAutomatically = true)
+    @Transactional
+    @Query("UPDATE Document d SET d.version = d.version + 1, d.updatedAt = :now " +
+           "WHERE d.id = :id AND d.version = :version")
+    int claimVersion(@Param("id") Long id, @Param("version") Long version, @Param("now") LocalDateTime now);
+
+    @Modifying(clearAutomatically = true)
+    @Transactional
+    @Query("UPDATE Document d SET d.status = :status WHERE d.id = :id AND d.version = :version")
+    int updateClaimedStatus(@Param("id") Long id, @Param("version") Long version,
+                            @Param("status") DocumentStatus status);
     
     @Query("SELECT d FROM Document d WHERE d.ownerId = :ownerId AND " +
-           "(LOWER(d.fileName) LIKE LOWER(CONCAT('%', :search, '%')))")
-    List<Document> searchDocumentsByOwner(@Param("ownerId") Long ownerId, @Param("search") String search);
+           "(:status IS NULL OR d.status = :status) AND " +
+           "LOWER(d.fileName) LIKE :pattern")
+    List<Document> searchDocumentsByOwner(@Param("ownerId") Long ownerId,
+                                          @Param("status") DocumentStatus status,
+                                          @Param("pattern") String pattern);
+
+    @Query(value = "SELECT d.* FROM documents d WHERE d.owner_id = :ownerId AND " +
+           "(:status IS NULL OR d.status = :status) AND " +
+           "d.id IN (SELECT t.document_id FROM document_name_trigrams t " +
+           "WHERE t.owner_id = :ownerId AND t.trigram IN (:trigrams) " +
+           "GROUP BY t.document_id HAVING COUNT(*) = :trigramCount) AND " +
+           "LOWER(d.file_name) LIKE :pattern", nativeQuery = true)
+    List<Document> searchDocumentsByTrigrams(@Param("ownerId") Long ownerId,
+                                             @Param("status") String status,
+                                             @Param("trigrams") Collection<String> trigrams,
+                                             @Param("trigramCount") int trigramCount,
+                                             @Param("pattern") String pattern);
+
+    @Query(value = "SELECT d.* FROM documents d WHERE CHAR_LENGTH(d.file_name) >= :minLength AND " +
+           "NOT EXISTS (SELECT 1 FROM document_name_trigrams t WHERE t.document_id = d.id) " +
+           "LIMIT :limit", nativeQuery = true)
+    List<Document> findUnindexedByName(@Param("minLength") int minLength, @Param("limit") int limit);
 }
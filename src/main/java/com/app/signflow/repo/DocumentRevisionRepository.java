@@ -0,0 +1,25 @@
+package com.app.signflow.repo;
+
+import com.app.signflow.model.entity.DocumentRevision;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface DocumentRevisionRepository extends JpaRepository<DocumentRevision, Long> {
+    List<DocumentRevision> findByDocumentIdOrderByRevisionNumberDesc(Long documentId);
+    Optional<DocumentRevision> findTopByDocumentIdOrderByRevisionNumberDesc(Long documentId);
+    Optional<DocumentRevision> findByDocumentIdAndRevisionNumber(Long documentId, Integer revisionNumber);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE DocumentRevision r SET r.archivePath = :archivePath " +
+           "WHERE r.documentId = :documentId AND r.archivePath IS NULL")
+    int archiveLiveChain(@Param("documentId") Long documentId, @Param("archivePath") String archivePath);
+}
@@ -0,0 +1,413 @@
+package com.app.signflow.service;
+
+import com.app.signflow.config.AuthenticatedUser;
+import com.app.signflow.model.dto.AuditLogDTO;
+import com.app.signflow.model.dto.AuditLogPage;
+import com.app.signflow.service.AuditSegmentStore.ArchivedAuditRow;
+import com.app.signflow.service.AuditSegmentStore.BlockInfo;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import javax.sql.DataSource;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.LongPredicate;
+
+/**
+ * Read side of the audit trail. Pages use a (timestamp, id) keyset so deep pages cost the same as the first,
+ * and exports stream rows from a forward-only result set straight to the response. Rows of archived partitions
+ * are read from {@link AuditSegmentStore} segments and merged with the hot table.
+ */
+@Service
+@Slf4j
+public class AuditQueryService {
+
+    public static final int MAX_PAGE_SIZE = 1000;
+    private static final String COLUMNS = "a.id, a.document_id, a.action, a.performed_by, a.ip_address, a.timestamp";
+    private static final String CSV_HEADER = "id,document_id,action,performed_by,ip_address,timestamp\n";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final JdbcTemplate exportJdbcTemplate;
+    private final AuditSegmentStore auditSegmentStore;
+
+    public AuditQueryService(JdbcTemplate jdbcTemplate, DataSource dataSource, AuditSegmentStore auditSegmentStore,
+                             @Value("${audit.export.fetch-size:1000}") int exportFetchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.auditSegmentStore = auditSegmentStore;
+        this.exportJdbcTemplate = new JdbcTemplate(dataSource);
+        this.exportJdbcTemplate.setFetchSize(exportFetchSize);
+    }
+
+    public AuditLogPage search(AuditFilter filter, String cursor, int limit) {
+        int pageSize = Math.min(Math.max(limit, 1), MAX_PAGE_SIZE);
+        AuditFilter scopedFilter = scoped(filter);
+        Cursor position = cursor != null && !cursor.isBlank() ? Cursor.decode(cursor) : null;
+
+        List<Object> args = new ArrayList<>();
+        StringBuilder sql = new StringBuilder("SELECT ").append(COLUMNS).append(" FROM audit_logs a");
+        appendFilter(sql, args, scopedFilter);
+        if (position != null) {
+            sql.append(" AND (a.timestamp < ? OR (a.timestamp = ? AND a.id < ?))");
+            args.add(position.timestamp());
+            args.add(position.timestamp());
+            args.add(position.id());
+        }
+        sql.append(" ORDER BY a.timestamp DESC, a.id DESC LIMIT ?");
+        args.add(pageSize + 1);
+
+        List<AuditLogDTO> hot = jdbcTemplate.query(sql.toString(), (rs, rowNum) -> toDTO(rs), args.toArray());
+        // A full hot page bounds the answer: archived rows older than its last row cannot make the page
+        Timestamp floor = hot.size() > pageSize ? Timestamp.valueOf(hot.get(pageSize).getTimestamp()) : null;
+        List<AuditLogDTO> archived = searchArchived(scopedFilter, position, floor, pageSize + 1);
+        List<AuditLogDTO> items = mergeDescending(hot, archived, pageSize + 1);
+
+        String nextCursor = null;
+        if (items.size() > pageSize) {
+            items = items.subList(0, pageSize);
+            AuditLogDTO last = items.get(pageSize - 1);
+            nextCursor = new Cursor(Timestamp.valueOf(last.getTimestamp()), last.getId()).encode();
+        }
+        return AuditLogPage.builder()
+                .items(new ArrayList<>(items))
+                .nextCursor(nextCursor)
+                .build();
+    }
+
+    // Runs on the response thread after the controller returns, so the filter is scoped by the caller beforehand.
+    // Archived segments are written first, oldest to newest, followed by the hot table.
+    public void export(AuditFilter scopedFilter, ExportFormat format, OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024);
+        if (format == ExportFormat.CSV) {
+            writer.write(CSV_HEADER);
+        }
+        long rows = 0;
+
+        LongPredicate owned = ownedDocuments(scopedFilter);
+        List<SegmentRef> segments = segments(scopedFilter, null, null);
+        for (int i = segments.size() - 1; i >= 0; i--) {
+            SegmentRef segment = segments.get(i);
+            for (BlockInfo block : auditSegmentStore.index(segment.indexPath()).blocks()) {
+                if (!blockOverlaps(block, scopedFilter, null)) {
+                    continue;
+                }
+                for (ArchivedAuditRow row : auditSegmentStore.readBlock(segment.segmentPath(), block)) {
+                    if (matches(row, scopedFilter, null) && owned.test(row.documentId())) {
+                        writeRow(writer, format, row.toDTO());
+                        rows++;
+                    }
+                }
+            }
+        }
+
+        List<Object> args = new ArrayList<>();
+        StringBuilder sql = new StringBuilder("SELECT ").append(COLUMNS).append(" FROM audit_logs a");
+        appendFilter(sql, args, scopedFilter);
+        sql.append(" ORDER BY a.timestamp, a.id");
+
+        long[] hotRows = {0};
+        try {
+            exportJdbcTemplate.query(sql.toString(), rs -> {
+                try {
+                    writeRow(writer, format, toDTO(rs));
+                    hotRows[0]++;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }, args.toArray());
+        } catch (UncheckedIOException e) {
+            // Client went away; the result set is closed by JdbcTemplate
+            throw e.getCause();
+        }
+        writer.flush();
+        log.debug("Exported {} archived and {} hot audit rows as {}", rows, hotRows[0], format);
+    }
+
+    // Walks segments newest first and blocks in reverse, so rows come out in descending (timestamp, id) order
+    private List<AuditLogDTO> searchArchived(AuditFilter filter, Cursor position, Timestamp floor, int limit) {
+        List<AuditLogDTO> rows = new ArrayList<>();
+        LongPredicate owned = ownedDocuments(filter);
+        for (SegmentRef segment : segments(filter, position, floor)) {
+            List<BlockInfo> blocks = auditSegmentStore.index(segment.indexPath()).blocks();
+            for (int b = blocks.size() - 1; b >= 0; b--) {
+                BlockInfo block = blocks.get(b);
+                if (floor != null && block.maxMillis() < floor.getTime()) {
+                    break;
+                }
+                if (!blockOverlaps(block, filter, position)) {
+                    continue;
+                }
+                List<ArchivedAuditRow> blockRows = auditSegmentStore.readBlock(segment.segmentPath(), block);
+                for (int r = blockRows.size() - 1; r >= 0; r--) {
+                    ArchivedAuditRow row = blockRows.get(r);
+                    if (matches(row, filter, position) && owned.test(row.documentId())) {
+                        rows.add(row.toDTO());
+                        if (rows.size() == limit) {
+                            return rows;
+                        }
+                    }
+                }
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * Hot rows are scoped by joining the documents table, so a non-admin loses them once the document is
+     * deleted or changes hands. Archived rows get the same rule: the owner recorded at archive time must
+     * still own the document. Answers are cached per call, one lookup per distinct document.
+     */
+    private LongPredicate ownedDocuments(AuditFilter filter) {
+        if (filter.ownerId() == null) {
+            return documentId -> true;
+        }
+        Map<Long, Boolean> owned = new HashMap<>();
+        return documentId -> owned.computeIfAbsent(documentId, id -> !jdbcTemplate.queryForList(
+                "SELECT 1 FROM documents WHERE id = ? AND owner_id = ?", Integer.class, id, filter.ownerId()).isEmpty());
+    }
+
+    private List<SegmentRef> segments(AuditFilter filter, Cursor position, Timestamp floor) {
+        List<Object> args = new ArrayList<>();
+        StringBuilder sql = new StringBuilder(
+                "SELECT segment_path, index_path FROM audit_segments WHERE row_count > 0");
+        if (filter.from() != null) {
+            sql.append(" AND max_timestamp >= ?");
+            args.add(Timestamp.valueOf(filter.from()));
+        }
+        if (filter.to() != null) {
+            sql.append(" AND min_timestamp < ?");
+            args.add(Timestamp.valueOf(filter.to()));
+        }
+        if (position != null) {
+            sql.append(" AND min_timestamp <= ?");
+            args.add(position.timestamp());
+        }
+        if (floor != null) {
+            sql.append(" AND max_timestamp >= ?");
+            args.add(floor);
+        }
+        sql.append(" ORDER BY max_timestamp DESC");
+        return jdbcTemplate.query(sql.toString(),
+                (rs, rowNum) -> new SegmentRef(Path.of(rs.getString("segment_path")), Path.of(rs.getString("index_path"))),
+                args.toArray());
+    }
+
+    private static boolean blockOverlaps(BlockInfo block, AuditFilter filter, Cursor position) {
+        if (filter.from() != null && block.maxMillis() < Timestamp.valueOf(filter.from()).getTime()) {
+            return false;
+        }
+        if (filter.to() != null && block.minMillis() >= Timestamp.valueOf(filter.to()).getTime()) {
+            return false;
+        }
+        if (filter.documentId() != null && !block.mayContainDocument(filter.documentId())) {
+            return false;
+        }
+        if (filter.userId() != null && !block.mayContainUser(filter.userId())) {
+            return false;
+        }
+        if (filter.ownerId() != null && !block.mayContainOwner(filter.ownerId())) {
+            return false;
+        }
+        return position == null || block.minMillis() <= position.timestamp().getTime();
+    }
+
+    private static boolean matches(ArchivedAuditRow row, AuditFilter filter, Cursor position) {
+        if (filter.ownerId() != null && !filter.ownerId().equals(row.ownerId())) {
+            return false;
+        }
+        if (filter.documentId() != null && filter.documentId() != row.documentId()) {
+            return false;
+        }
+        if (filter.userId() != null && filter.userId() != row.performedBy()) {
+            return false;
+        }
+        if (filter.action() != null && !filter.action().isBlank() && !filter.action().equals(row.action())) {
+            return false;
+        }
+        if (filter.from() != null && row.timestampMillis() < Timestamp.valueOf(filter.from()).getTime()) {
+            return false;
+        }
+        if (filter.to() != null && row.timestampMillis() >= Timestamp.valueOf(filter.to()).getTime()) {
+            return false;
+        }
+        if (position != null) {
+            long cursorMillis = position.timestamp().getTime();
+            return row.timestampMillis() < cursorMillis
+                    || (row.timestampMillis() == cursorMillis && row.id() < position.id());
+        }
+        return true;
+    }
+
+    // Both inputs are already in descending (timestamp, id) order
+    private static List<AuditLogDTO> mergeDescending(List<AuditLogDTO> hot, List<AuditLogDTO> archived, int limit) {
+        if (archived.isEmpty()) {
+            return hot;
+        }
+        Comparator<AuditLogDTO> descending = Comparator.comparing(AuditLogDTO::getTimestamp)
+                .thenComparing(AuditLogDTO::getId)
+                .reversed();
+        List<AuditLogDTO> merged = new ArrayList<>(Math.min(limit, hot.size() + archived.size()));
+        int h = 0;
+        int a = 0;
+        while (merged.size() < limit && (h < hot.size() || a < archived.size())) {
+            if (a >= archived.size() || (h < hot.size() && descending.compare(hot.get(h), archived.get(a)) <= 0)) {
+                merged.add(hot.get(h++));
+            } else {
+                merged.add(archived.get(a++));
+            }
+        }
+        return merged;
+    }
+
+    // Non-admins only see events on documents they own
+    public AuditFilter scoped(AuditFilter filter) {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || !(authentication.getPrincipal() instanceof AuthenticatedUser principal)) {
+            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Not authenticated");
+        }
+        if ("ADMIN".equals(principal.role())) {
+            return filter;
+        }
+        return new AuditFilter(filter.documentId(), filter.userId(), filter.action(), filter.from(), filter.to(),
+                principal.id());
+    }
+
+    private void appendFilter(StringBuilder sql, List<Object> args, AuditFilter filter) {
+        if (filter.ownerId() != null) {
+            sql.append(" JOIN documents d ON d.id = a.document_id AND d.owner_id = ?");
+            args.add(filter.ownerId());
+        }
+        sql.append(" WHERE 1 = 1");
+        if (filter.documentId() != null) {
+            sql.append(" AND a.document_id = ?");
+            args.add(filter.documentId());
+        }
+        if (filter.userId() != null) {
+            sql.append(" AND a.performed_by = ?");
+            args.add(filter.userId());
+        }
+        if (filter.action() != null && !filter.action().isBlank()) {
+            sql.append(" AND a.action = ?");
+            args.add(filter.action());
+        }
+        if (filter.from() != null) {
+            sql.append(" AND a.timestamp >= ?");
+            args.add(Timestamp.valueOf(filter.from()));
+        }
+        if (filter.to() != null) {
+            sql.append(" AND a.timestamp < ?");
+            args.add(Timestamp.valueOf(filter.to()));
+        }
+    }
+
+    private static AuditLogDTO toDTO(ResultSet rs) throws SQLException {
+        return AuditLogDTO.builder()
+                .id(rs.getLong("id"))
+                .documentId(rs.getLong("document_id"))
+                .action(rs.getString("action"))
+                .performedBy(rs.getLong("performed_by"))
+                .ipAddress(rs.getString("ip_address"))
+                .timestamp(rs.getTimestamp("timestamp").toLocalDateTime())
+                .build();
+    }
+
+    private static void writeRow(Writer writer, ExportFormat format, AuditLogDTO row) throws IOException {
+        if (format == ExportFormat.CSV) {
+            writer.write(row.getId() + "," + row.getDocumentId() + "," + csv(row.getAction()) + ","
+                    + row.getPerformedBy() + "," + csv(row.getIpAddress()) + "," + row.getTimestamp() + "\n");
+        } else {
+            writer.write("{\"id\":" + row.getId()
+                    + ",\"documentId\":" + row.getDocumentId()
+                    + ",\"action\":" + json(row.getAction())
+                    + ",\"performedBy\":" + row.getPerformedBy()
+                    + ",\"ipAddress\":" + json(row.getIpAddress())
+                    + ",\"timestamp\":\"" + row.getTimestamp() + "\"}\n");
+        }
+    }
+
+    private static String csv(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0) {
+            return value;
+        }
+        return "\"" + value.replace("\"", "\"\"") + "\"";
+    }
+
+    private static String json(String value) {
+        if (value == null) {
+            return "null";
+        }
+        StringBuilder escaped = new StringBuilder(value.length() + 2).append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> escaped.append("\\\"");
+                case '\\' -> escaped.append("\\\\");
+                case '\n' -> escaped.append("\\n");
+                case '\r' -> escaped.append("\\r");
+                case '\t' -> escaped.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        escaped.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        escaped.append(c);
+                    }
+                }
+            }
+        }
+        return escaped.append('"').toString();
+    }
+
+    public enum ExportFormat {
+        NDJSON, CSV
+    }
+
+    private record SegmentRef(Path segmentPath, Path indexPath) {
+    }
+
+    public record AuditFilter(Long documentId, Long userId, String action, LocalDateTime from, LocalDateTime to,
+                              Long ownerId) {
+    }
+
+    private record Cursor(Timestamp timestamp, long id) {
+
+        String encode() {
+            String raw = timestamp.toLocalDateTime() + "|" + id;
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+        }
+
+        static Cursor decode(String value) {
+            try {
+                String raw = new String(Base64.getUrlDecoder().decode(value), StandardCharsets.UTF_8);
+                int separator = raw.lastIndexOf('|');
+                return new Cursor(Timestamp.valueOf(LocalDateTime.parse(raw.substring(0, separator))),
+                        Long.parseLong(raw.substring(separator + 1)));
+            } catch (RuntimeException e) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid cursor");
+            }
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package com.app.signflow.service;
+
+import com.app.signflow.service.AuditSegmentStore.ArchivedAuditRow;
+import com.app.signflow.service.AuditSegmentStore.SegmentIndex;
+import com.app.signflow.service.AuditSegmentStore.SegmentWriter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Keeps monthly partitions of audit_logs created ahead of time and moves partitions older than the hot
+ * window into {@link AuditSegmentStore} segments. A partition is only dropped after its segment is synced,
+ * verified and registered in audit_segments; a crash in between re-archives it on the next run.
+ */
+@Service
+@Slf4j
+public class AuditRetentionService {
+
+    private static final Pattern PARTITION_NAME = Pattern.compile("p[a-z0-9_]+");
+    private static final String FUTURE_PARTITION = "p_future";
+    private static final DateTimeFormatter MONTH_NAME = DateTimeFormatter.ofPattern("'p'yyyyMM");
+    private static final DateTimeFormatter BOUNDARY = DateTimeFormatter.ofPattern("yyyy-MM-dd 00:00:00");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final JdbcTemplate archiveJdbcTemplate;
+    private final AuditSegmentStore auditSegmentStore;
+
+    @Value("${audit.retention.hot-months:12}")
+    private int hotMonths;
+
+    @Value("${audit.retention.partitions-ahead:3}")
+    private int partitionsAhead;
+
+    public AuditRetentionService(JdbcTemplate jdbcTemplate, DataSource dataSource, AuditSegmentStore auditSegmentStore,
+                                 @Value("${audit.export.fetch-size:1000}") int fetchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.archiveJdbcTemplate = new JdbcTemplate(dataSource);
+        this.archiveJdbcTemplate.setFetchSize(fetchSize);
+        this.auditSegmentStore = auditSegmentStore;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        try {
+            ensurePartitions(partitions());
+        } catch (Exception e) {
+            log.warn("Could not prepare audit partitions: {}", e.getMessage());
+        }
+    }
+
+    @Scheduled(cron = "${audit.retention.cron:0 30 3 * * *}")
+    public void run() {
+        List<Partition> partitions = partitions();
+        if (partitions.isEmpty()) {
+            log.debug("audit_logs is not partitioned, skipping retention");
+            return;
+        }
+        ensurePartitions(partitions);
+
+        LocalDateTime cutoff = LocalDate.now().withDayOfMonth(1).minusMonths(hotMonths).atStartOfDay();
+        for (Partition partition : partitions) {
+            if (partition.upperBound() != null && !partition.upperBound().isAfter(cutoff)) {
+                try {
+                    archive(partition);
+                } catch (Exception e) {
+                    log.error("Failed to archive audit partition {}", partition.name(), e);
+                    return;
+                }
+            }
+        }
+    }
+
+    private void archive(Partition partition) throws IOException {
+        String name = partition.name();
+        if (!PARTITION_NAME.matcher(name).matches()) {
+            throw new IllegalStateException("Unexpected partition name " + name);
+        }
+
+        SegmentIndex index;
+        String segmentPath;
+        String indexPath;
+        try (SegmentWriter writer = auditSegmentStore.create(name)) {
+            archiveJdbcTemplate.query(
+                    "SELECT a.id, a.document_id, a.action, a.performed_by, a.ip_address, a.timestamp, d.owner_id " +
+                    "FROM audit_logs PARTITION (" + name + ") a LEFT JOIN documents d ON d.id = a.document_id " +
+                    "ORDER BY a.timestamp, a.id",
+                    rs -> {
+                        try {
+                            writer.append(new ArchivedAuditRow(
+                                    rs.getLong("id"),
+                                    rs.getLong("document_id"),
+                                    rs.getString("action"),
+                                    rs.getLong("performed_by"),
+                                    rs.getString("ip_address"),
+                                    rs.getTimestamp("timestamp").getTime(),
+                                    rs.getObject("owner_id", Long.class)));
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    });
+            index = writer.finish();
+            segmentPath = writer.segmentPath().toString();
+            indexPath = writer.indexPath().toString();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+
+        if (index.rowCount() > 0) {
+            if (!index.sha256().equals(DocumentMetadataService.sha256Hex(Path.of(segmentPath)))) {
+                throw new IOException("Checksum mismatch after writing segment " + segmentPath);
+            }
+            jdbcTemplate.update(
+                    "INSERT INTO audit_segments (partition_name, segment_path, index_path, row_count, min_timestamp, " +
+                    "max_timestamp, sha256) VALUES (?, ?, ?, ?, ?, ?, ?) ON DUPLICATE KEY UPDATE " +
+                    "segment_path = VALUES(segment_path), index_path = VALUES(index_path), row_count = VALUES(row_count), " +
+                    "min_timestamp = VALUES(min_timestamp), max_timestamp = VALUES(max_timestamp), sha256 = VALUES(sha256)",
+                    name, segmentPath, indexPath, index.rowCount(),
+                    new Timestamp(index.minMillis()), new Timestamp(index.maxMillis()), index.sha256());
+        }
+
+        jdbcTemplate.execute("ALTER TABLE audit_logs DROP PARTITION " + name);
+        log.info("Archived audit partition {} ({} rows)", name, index.rowCount());
+    }
+
+    // Splits p_future so that monthly partitions exist up to partitionsAhead months from now
+    private void ensurePartitions(List<Partition> partitions) {
+        if (partitions.isEmpty() || partitions.stream().noneMatch(p -> FUTURE_PARTITION.equals(p.name()))) {
+            return;
+        }
+        LocalDateTime next = partitions.stream()
+                .map(Partition::upperBound)
+                .filter(bound -> bound != null)
+                .max(LocalDateTime::compareTo)
+                .orElse(LocalDate.now().withDayOfMonth(1).atStartOfDay());
+        LocalDateTime horizon = LocalDate.now().withDayOfMonth(1).plusMonths(partitionsAhead + 1L).atStartOfDay();
+
+        List<String> definitions = new ArrayList<>();
+        while (next.isBefore(horizon)) {
+            LocalDateTime upper = next.plusMonths(1);
+            definitions.add("PARTITION " + MONTH_NAME.format(next) + " VALUES LESS THAN (UNIX_TIMESTAMP('"
+                    + BOUNDARY.format(upper) + "'))");
+            next = upper;
+        }
+        if (definitions.isEmpty()) {
+            return;
+        }
+        definitions.add("PARTITION " + FUTURE_PARTITION + " VALUES LESS THAN MAXVALUE");
+        jdbcTemplate.execute("ALTER TABLE audit_logs REORGANIZE PARTITION " + FUTURE_PARTITION + " INTO ("
+                + String.join(", ", definitions) + ")");
+        log.info("Added {} audit partitions", definitions.size() - 1);
+    }
+
+    private List<Partition> partitions() {
+        return jdbcTemplate.query(
+                "SELECT PARTITION_NAME, " +
+                "CASE WHEN PARTITION_DESCRIPTION = 'MAXVALUE' THEN NULL ELSE FROM_UNIXTIME(PARTITION_DESCRIPTION) END AS upper_bound " +
+                "FROM information_schema.PARTITIONS " +
+                "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'audit_logs' AND PARTITION_NAME IS NOT NULL " +
+                "ORDER BY PARTITION_ORDINAL_POSITION",
+                (rs, rowNum) -> {
+                    Timestamp upperBound = rs.getTimestamp("upper_bound");
+                    return new Partition(rs.getString("PARTITION_NAME"),
+                            upperBound != null ? upperBound.toLocalDateTime() : null);
+                });
+    }
+
+    private record Partition(String name, LocalDateTime upperBound) {
+    }
+}
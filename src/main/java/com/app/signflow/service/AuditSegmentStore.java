@@ -0,0 +1,364 @@
+package com.app.signflow.service;
+
+import com.app.signflow.model.dto.AuditLogDTO;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.CRC32;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Immutable on-disk segments holding archived audit partitions.
+ *
+ * <p>A segment is a sequence of independently gzipped blocks of rows in (timestamp, id) order. The sidecar
+ * index lists each block's offset, length, row count, time and id range, CRC32 and a bloom filter of the
+ * document, user and owner ids in it, and the SHA-256 of the whole segment, so readers skip blocks outside a
+ * query's range or without its ids and detect corruption block by block.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class AuditSegmentStore {
+
+    static final int BLOCK_ROWS = 4096;
+
+    private final DocumentStorageService documentStorageService;
+
+    // Segments never change once written, so parsed indexes are kept
+    private final Map<Path, SegmentIndex> indexes = new ConcurrentHashMap<>();
+
+    public Path segmentDir() {
+        return documentStorageService.uploadRoot().resolve(".audit").resolve("segments");
+    }
+
+    public SegmentWriter create(String name) throws IOException {
+        Files.createDirectories(segmentDir());
+        return new SegmentWriter(name, segmentDir().resolve(name + ".seg"), segmentDir().resolve(name + ".idx"));
+    }
+
+    public SegmentIndex index(Path indexPath) {
+        return indexes.computeIfAbsent(indexPath, path -> {
+            try {
+                return SegmentIndex.parse(Files.readAllLines(path, StandardCharsets.UTF_8));
+            } catch (IOException e) {
+                throw new RuntimeException("Failed to read audit segment index " + path, e);
+            }
+        });
+    }
+
+    public List<ArchivedAuditRow> readBlock(Path segmentPath, BlockInfo block) {
+        byte[] compressed = new byte[block.length()];
+        try (FileChannel channel = FileChannel.open(segmentPath, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.wrap(compressed);
+            long position = block.offset();
+            while (buffer.hasRemaining()) {
+                int read = channel.read(buffer, position);
+                if (read < 0) {
+                    throw new IOException("Unexpected end of segment");
+                }
+                position += read;
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to read audit segment " + segmentPath, e);
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(compressed);
+        if (crc.getValue() != block.crc32()) {
+            throw new RuntimeException("Audit segment " + segmentPath + " is corrupt at offset " + block.offset());
+        }
+
+        List<ArchivedAuditRow> rows = new ArrayList<>(block.rows());
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(compressed))) {
+            String text = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+            for (String line : text.split("\n")) {
+                if (!line.isEmpty()) {
+                    rows.add(ArchivedAuditRow.parse(line));
+                }
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to decompress audit segment " + segmentPath, e);
+        }
+        return rows;
+    }
+
+    /**
+     * Writes a segment and its index to temp files; both are synced and renamed into place by {@link #finish()}.
+     */
+    public class SegmentWriter implements AutoCloseable {
+
+        private final String name;
+        private final Path segmentPath;
+        private final Path indexPath;
+        private final Path segmentTemp;
+        private final FileChannel channel;
+        private final MessageDigest digest = DocumentMetadataService.sha256();
+        private final List<ArchivedAuditRow> pending = new ArrayList<>(BLOCK_ROWS);
+        private final List<BlockInfo> blocks = new ArrayList<>();
+        private long offset;
+        private long rowCount;
+        private boolean finished;
+
+        SegmentWriter(String name, Path segmentPath, Path indexPath) throws IOException {
+            this.name = name;
+            this.segmentPath = segmentPath;
+            this.indexPath = indexPath;
+            this.segmentTemp = Files.createTempFile(segmentPath.getParent(), ".segment-", ".tmp");
+            this.channel = FileChannel.open(segmentTemp, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        }
+
+        public void append(ArchivedAuditRow row) throws IOException {
+            pending.add(row);
+            rowCount++;
+            if (pending.size() == BLOCK_ROWS) {
+                writeBlock();
+            }
+        }
+
+        public SegmentIndex finish() throws IOException {
+            if (!pending.isEmpty()) {
+                writeBlock();
+            }
+            channel.force(true);
+            channel.close();
+
+            SegmentIndex index = new SegmentIndex(name, HexFormat.of().formatHex(digest.digest()), rowCount,
+                    blocks.isEmpty() ? 0 : blocks.get(0).minMillis(),
+                    blocks.isEmpty() ? 0 : blocks.get(blocks.size() - 1).maxMillis(),
+                    List.copyOf(blocks));
+            Files.move(segmentTemp, segmentPath, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            documentStorageService.write(0, indexPath, index.format().getBytes(StandardCharsets.UTF_8));
+            indexes.put(indexPath, index);
+            finished = true;
+            return index;
+        }
+
+        public Path segmentPath() {
+            return segmentPath;
+        }
+
+        public Path indexPath() {
+            return indexPath;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (!finished) {
+                channel.close();
+                Files.deleteIfExists(segmentTemp);
+            }
+        }
+
+        private void writeBlock() throws IOException {
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream(64 * 1024);
+            try (OutputStream out = new GZIPOutputStream(compressed, 64 * 1024)) {
+                for (ArchivedAuditRow row : pending) {
+                    out.write(row.format().getBytes(StandardCharsets.UTF_8));
+                }
+            }
+            byte[] bytes = compressed.toByteArray();
+            CRC32 crc = new CRC32();
+            crc.update(bytes);
+            digest.update(bytes);
+
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+
+            Set<Long> keys = new HashSet<>();
+            for (ArchivedAuditRow row : pending) {
+                keys.add(BlockMembers.key(BlockMembers.DOCUMENT, row.documentId()));
+                keys.add(BlockMembers.key(BlockMembers.USER, row.performedBy()));
+                if (row.ownerId() != null) {
+                    keys.add(BlockMembers.key(BlockMembers.OWNER, row.ownerId()));
+                }
+            }
+            ArchivedAuditRow first = pending.get(0);
+            ArchivedAuditRow last = pending.get(pending.size() - 1);
+            blocks.add(new BlockInfo(offset, bytes.length, pending.size(),
+                    first.timestampMillis(), last.timestampMillis(), first.id(), last.id(), crc.getValue(),
+                    BlockMembers.of(keys)));
+            offset += bytes.length;
+            pending.clear();
+        }
+    }
+
+    public record SegmentIndex(String name, String sha256, long rowCount, long minMillis, long maxMillis,
+                               List<BlockInfo> blocks) {
+
+        String format() {
+            StringBuilder out = new StringBuilder()
+                    .append("segment\t").append(name).append('\t').append(sha256).append('\t')
+                    .append(rowCount).append('\t').append(minMillis).append('\t').append(maxMillis).append('\n');
+            for (BlockInfo block : blocks) {
+                out.append("block\t").append(block.offset()).append('\t').append(block.length()).append('\t')
+                        .append(block.rows()).append('\t').append(block.minMillis()).append('\t')
+                        .append(block.maxMillis()).append('\t').append(block.minId()).append('\t')
+                        .append(block.maxId()).append('\t').append(block.crc32()).append('\t')
+                        .append(block.members().encode()).append('\n');
+            }
+            return out.toString();
+        }
+
+        static SegmentIndex parse(List<String> lines) {
+            String[] header = lines.get(0).split("\t");
+            List<BlockInfo> blocks = new ArrayList<>(lines.size() - 1);
+            for (String line : lines.subList(1, lines.size())) {
+                if (line.isEmpty()) {
+                    continue;
+                }
+                String[] fields = line.split("\t");
+                blocks.add(new BlockInfo(Long.parseLong(fields[1]), Integer.parseInt(fields[2]),
+                        Integer.parseInt(fields[3]), Long.parseLong(fields[4]), Long.parseLong(fields[5]),
+                        Long.parseLong(fields[6]), Long.parseLong(fields[7]), Long.parseLong(fields[8]),
+                        BlockMembers.decode(fields[9])));
+            }
+            return new SegmentIndex(header[1], header[2], Long.parseLong(header[3]),
+                    Long.parseLong(header[4]), Long.parseLong(header[5]), List.copyOf(blocks));
+        }
+    }
+
+    public record BlockInfo(long offset, int length, int rows, long minMillis, long maxMillis,
+                            long minId, long maxId, long crc32, BlockMembers members) {
+
+        public boolean mayContainDocument(long documentId) {
+            return members.mightContain(BlockMembers.key(BlockMembers.DOCUMENT, documentId));
+        }
+
+        public boolean mayContainUser(long userId) {
+            return members.mightContain(BlockMembers.key(BlockMembers.USER, userId));
+        }
+
+        public boolean mayContainOwner(long ownerId) {
+            return members.mightContain(BlockMembers.key(BlockMembers.OWNER, ownerId));
+        }
+    }
+
+    /**
+     * Bloom filter over the tagged document, user and owner ids of one block, sized at ten bits per distinct
+     * key for roughly one false positive in a hundred lookups.
+     */
+    public record BlockMembers(long[] bits, int hashes) {
+
+        static final long DOCUMENT = 1;
+        static final long USER = 2;
+        static final long OWNER = 3;
+
+        private static final int BITS_PER_KEY = 10;
+        private static final int HASHES = 7;
+
+        static long key(long kind, long id) {
+            return id * 4 + kind;
+        }
+
+        static BlockMembers of(Set<Long> keys) {
+            int bitCount = Math.max(64, keys.size() * BITS_PER_KEY);
+            BlockMembers members = new BlockMembers(new long[(bitCount + 63) / 64], HASHES);
+            for (long key : keys) {
+                members.add(key);
+            }
+            return members;
+        }
+
+        boolean mightContain(long key) {
+            long hash = mix(key);
+            long bitCount = bits.length * 64L;
+            for (int i = 0; i < hashes; i++) {
+                long bit = Math.floorMod(hash + i * (hash >>> 32 | 1), bitCount);
+                if ((bits[(int) (bit >>> 6)] & 1L << bit) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        String encode() {
+            ByteBuffer buffer = ByteBuffer.allocate(bits.length * Long.BYTES);
+            buffer.asLongBuffer().put(bits);
+            return hashes + ":" + Base64.getEncoder().withoutPadding().encodeToString(buffer.array());
+        }
+
+        static BlockMembers decode(String value) {
+            int separator = value.indexOf(':');
+            ByteBuffer buffer = ByteBuffer.wrap(Base64.getDecoder().decode(value.substring(separator + 1)));
+            long[] bits = new long[buffer.remaining() / Long.BYTES];
+            buffer.asLongBuffer().get(bits);
+            return new BlockMembers(bits, Integer.parseInt(value.substring(0, separator)));
+        }
+
+        private void add(long key) {
+            long hash = mix(key);
+            long bitCount = bits.length * 64L;
+            for (int i = 0; i < hashes; i++) {
+                long bit = Math.floorMod(hash + i * (hash >>> 32 | 1), bitCount);
+                bits[(int) (bit >>> 6)] |= 1L << bit;
+            }
+        }
+
+        // SplitMix64 finaliser
+        private static long mix(long value) {
+            long z = value + 0x9E3779B97F4A7C15L;
+            z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+            z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+            return z ^ (z >>> 31);
+        }
+    }
+
+    // Owner is captured at archive time so scoped queries still work after the document is deleted
+    public record ArchivedAuditRow(long id, long documentId, String action, long performedBy, String ipAddress,
+                                   long timestampMillis, Long ownerId) {
+
+        public AuditLogDTO toDTO() {
+            return AuditLogDTO.builder()
+                    .id(id)
+                    .documentId(documentId)
+                    .action(action)
+                    .performedBy(performedBy)
+                    .ipAddress(ipAddress)
+                    .timestamp(new Timestamp(timestampMillis).toLocalDateTime())
+                    .build();
+        }
+
+        String format() {
+            return id + "\t" + documentId + "\t" + action + "\t" + performedBy + "\t"
+                    + (ipAddress != null ? ipAddress.replaceAll("\\s", "") : "") + "\t" + timestampMillis + "\t"
+                    + (ownerId != null ? ownerId : "") + "\n";
+        }
+
+        static ArchivedAuditRow parse(String line) {
+            String[] fields = line.split("\t", -1);
+            return new ArchivedAuditRow(
+                    Long.parseLong(fields[0]),
+                    Long.parseLong(fields[1]),
+                    fields[2],
+                    Long.parseLong(fields[3]),
+                    fields[4].isEmpty() ? null : fields[4],
+                    Long.parseLong(fields[5]),
+                    fields[6].isEmpty() ? null : Long.parseLong(fields[6]));
+        }
+    }
+}
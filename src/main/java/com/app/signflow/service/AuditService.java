@@ -0,0 +1,505 @@
+package com.app.signflow.service;
+
+import com.app.signflow.config.PipelineMetrics;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.server.context.WebServerApplicationContext;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Writes audit events off the request path. Events are appended to a local spill file, queued in a bounded
+ * buffer and inserted in multi-row batches by the scheduled flush. A checkpoint records the sequence up to
+ * which every event is in the database. When the buffer is full callers wait up to the enqueue timeout and
+ * then insert their event directly.
+ *
+ * <p>Only an event the database rejects as invalid is dropped. An event whose insert failed for another
+ * reason is not kept in memory: the replay watermark is raised past it, and the next flush reads it back
+ * from the spill file before taking anything from the buffer. While the database is unreachable the buffer
+ * therefore fills and producers are throttled, and after a crash everything past the checkpoint is replayed.
+ *
+ * <p>The spill file is opened as a lifecycle step just before the web server starts, rather than while the
+ * context refreshes, so the AppCDS training run (which exits on refresh) leaves no files behind.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class AuditService implements SmartLifecycle {
+
+    private static final String INSERT_PREFIX =
+            "INSERT INTO audit_logs (document_id, action, performed_by, ip_address, timestamp) VALUES ";
+    private static final String ROW_PLACEHOLDER = "(?, ?, ?, ?, ?)";
+    private static final int MAX_IP_LENGTH = 50;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final DocumentStorageService documentStorageService;
+    private final PipelineMetrics metrics;
+
+    @Value("${audit.queue-capacity:10000}")
+    private int queueCapacity;
+
+    @Value("${audit.batch-size:500}")
+    private int batchSize;
+
+    @Value("${audit.enqueue-timeout-ms:500}")
+    private long enqueueTimeoutMs;
+
+    private BlockingQueue<AuditEvent> queue;
+    // Events past the checkpoint that must be read back from the spill file; none of them are held in memory
+    private final AtomicLong replayUpTo = new AtomicLong();
+    // Events being inserted directly by a producer; the checkpoint stays below them until they are done
+    private final NavigableSet<Long> inFlight = new ConcurrentSkipListSet<>();
+    // Events past the checkpoint that are already in the database, skipped by the replay and the buffer
+    private final Set<Long> insertedAhead = new ConcurrentSkipListSet<>();
+    private final ReentrantLock appendLock = new ReentrantLock();
+    private FileChannel spill;
+    private Path spillFile;
+    private Path checkpointFile;
+    private long lastSequence;
+    private volatile long checkpointedSequence;
+    // Spill file offset before which every line is at or below the checkpoint; only the flush moves it
+    private long replayOffset;
+
+    @Override
+    public void start() {
+        try {
+            open();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open audit spill file", e);
+        }
+    }
+
+    @Override
+    public int getPhase() {
+        return WebServerApplicationContext.START_STOP_LIFECYCLE_PHASE - 1;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return spill != null && spill.isOpen();
+    }
+
+    private void open() throws IOException {
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+        Path spillDir = documentStorageService.uploadRoot().resolve(".audit");
+        Files.createDirectories(spillDir);
+        spillFile = spillDir.resolve("audit-spill.tsv");
+        checkpointFile = spillDir.resolve("audit-spill.checkpoint");
+
+        checkpointedSequence = Files.exists(checkpointFile)
+                ? Long.parseLong(Files.readString(checkpointFile).trim())
+                : 0;
+        lastSequence = Math.max(checkpointedSequence, lastSpilledSequence());
+        replayUpTo.set(lastSequence);
+        spill = FileChannel.open(spillFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        spill.position(spill.size());
+        if (spill.size() > 0 && !endsWithNewline()) {
+            // a line torn by a crash must not swallow the next event
+            appendLine("\n");
+        }
+        flush();
+    }
+
+    public void record(Long documentId, String action, Long userId) {
+        AuditEvent event;
+        appendLock.lock();
+        try {
+            event = new AuditEvent(++lastSequence, documentId, action, userId, clientIp(), System.currentTimeMillis());
+            appendLine(event.format());
+            // Blocking here while holding the lock throttles every producer until the writer catches up
+            if (queue.offer(event, enqueueTimeoutMs, TimeUnit.MILLISECONDS)) {
+                return;
+            }
+            inFlight.add(event.sequence());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while recording audit event", e);
+        } finally {
+            appendLock.unlock();
+        }
+
+        log.warn("Audit queue is full, writing event {} synchronously", event.sequence());
+        try {
+            if (insert(List.of(event)) == 1) {
+                insertedAhead.add(event.sequence());
+            } else {
+                replayUpTo.accumulateAndGet(event.sequence(), Math::max);
+            }
+        } finally {
+            inFlight.remove(event.sequence());
+        }
+    }
+
+    // Includes events waiting in the spill file for the database to come back; buffered events usually fall
+    // inside the replay range too, so the larger of the two is reported
+    public int getQueueDepth() {
+        if (queue == null) {
+            return 0;
+        }
+        return (int) Math.max(queue.size(), replayUpTo.get() - checkpointedSequence);
+    }
+
+    @Scheduled(fixedDelayString = "${audit.flush-interval-ms:200}")
+    public synchronized void flush() {
+        // Nothing leaves the buffer while older events wait in the spill file, so an outage reaches producers
+        if (!replay()) {
+            return;
+        }
+        List<AuditEvent> batch = new ArrayList<>(batchSize);
+        while (queue.drainTo(batch, batchSize) > 0) {
+            batch.removeIf(event -> event.sequence() <= checkpointedSequence || insertedAhead.remove(event.sequence()));
+            if (batch.isEmpty()) {
+                continue;
+            }
+            forceSpill();
+            int handled = insert(batch);
+            if (handled > 0) {
+                markInserted(batch.subList(0, handled), false);
+            }
+            if (handled < batch.size()) {
+                replayUpTo.accumulateAndGet(batch.get(batch.size() - 1).sequence(), Math::max);
+                log.warn("Audit database unavailable, {} events left to replay from the spill file", getQueueDepth());
+                return;
+            }
+            batch.clear();
+        }
+        truncateSpillIfDrained();
+    }
+
+    // Runs after the web server has stopped, so no request can record an event behind the last flush
+    @Override
+    public void stop() {
+        flush();
+        try {
+            spill.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot close audit spill file", e);
+        }
+    }
+
+    /**
+     * Inserts the events in order and returns how many of them are done with, inserted or dropped as invalid.
+     * Stops at the first event that failed for another reason, such as a lost connection.
+     */
+    private int insert(List<AuditEvent> events) {
+        Timer.Sample sample = metrics.start();
+        try {
+            jdbcTemplate.update(insertSql(events.size()), toArgs(events));
+            metrics.auditFlush(sample, "batch", events.size());
+            return events.size();
+        } catch (DataIntegrityViolationException e) {
+            // Insert row by row so one bad event does not drop the whole batch
+            for (int i = 0; i < events.size(); i++) {
+                AuditEvent event = events.get(i);
+                try {
+                    jdbcTemplate.update(insertSql(1), toArgs(List.of(event)));
+                } catch (DataIntegrityViolationException rowError) {
+                    log.warn("Dropping audit event {} {} for document {}: {}", event.sequence(), event.action(),
+                            event.documentId(), rowError.getMessage());
+                } catch (DataAccessException rowError) {
+                    metrics.auditFlush(sample, "failed", events.size() - i);
+                    return i;
+                }
+            }
+            metrics.auditFlush(sample, "row_by_row", events.size());
+            return events.size();
+        } catch (DataAccessException e) {
+            log.debug("Audit insert failed: {}", e.getMessage());
+            metrics.auditFlush(sample, "failed", events.size());
+            return 0;
+        }
+    }
+
+    /**
+     * Reads events up to the replay watermark back from the spill file and inserts them. Returns false while
+     * some are still missing, because the database failed or a direct insert among them has not finished.
+     */
+    private boolean replay() {
+        long upTo = replayUpTo.get();
+        int replayed = 0;
+        while (upTo > checkpointedSequence) {
+            List<AuditEvent> batch = new ArrayList<>(batchSize);
+            List<long[]> scanned = new ArrayList<>();
+            boolean blocked;
+            try {
+                blocked = readSpill(upTo, batch, scanned);
+            } catch (IOException e) {
+                log.error("Failed to read audit spill file", e);
+                return false;
+            }
+            int handled = batch.isEmpty() ? 0 : insert(batch);
+            if (handled > 0) {
+                markInserted(batch.subList(0, handled), true);
+                replayed += handled;
+            } else if (batch.isEmpty() && !blocked) {
+                // everything up to the watermark was inserted ahead of the checkpoint
+                long before = checkpointedSequence;
+                advanceCheckpoint(upTo);
+                if (checkpointedSequence == before) {
+                    return false;
+                }
+            }
+            for (long[] line : scanned) {
+                if (line[0] > checkpointedSequence) {
+                    break;
+                }
+                replayOffset = line[1];
+            }
+            if (handled < batch.size() || blocked) {
+                return false;
+            }
+        }
+        if (replayed > 0) {
+            log.info("Replayed {} audit events from the spill file", replayed);
+        }
+        return true;
+    }
+
+    /**
+     * Collects up to a batch of spilled events at or below {@code upTo} that are not in the database yet,
+     * with the sequence and end offset of every line read. Returns true if it stopped at an event that a
+     * producer is still inserting directly.
+     */
+    private boolean readSpill(long upTo, List<AuditEvent> batch, List<long[]> scanned) throws IOException {
+        try (FileChannel channel = FileChannel.open(spillFile, StandardOpenOption.READ)) {
+            InputStream in = new BufferedInputStream(Channels.newInputStream(channel.position(replayOffset)));
+            ByteArrayOutputStream line = new ByteArrayOutputStream(128);
+            long offset = replayOffset;
+            int b;
+            while (batch.size() < batchSize && (b = in.read()) >= 0) {
+                offset++;
+                if (b != '\n') {
+                    line.write(b);
+                    continue;
+                }
+                AuditEvent event = AuditEvent.parse(line.toString(StandardCharsets.UTF_8));
+                line.reset();
+                if (event == null) {
+                    continue;
+                }
+                if (event.sequence() > upTo) {
+                    break;
+                }
+                if (inFlight.contains(event.sequence())) {
+                    return true;
+                }
+                scanned.add(new long[]{event.sequence(), offset});
+                if (event.sequence() > checkpointedSequence && !insertedAhead.contains(event.sequence())) {
+                    batch.add(event);
+                }
+            }
+            // a line still being appended has no newline yet and is left for the next read
+            return false;
+        }
+    }
+
+    // Moves the checkpoint as far as no earlier event can still be missing and remembers the rest
+    private void markInserted(List<AuditEvent> events, boolean fromSpill) {
+        long claimed = events.get(events.size() - 1).sequence();
+        if (fromSpill) {
+            advanceCheckpoint(claimed);
+        } else {
+            advanceBufferedCheckpoint(claimed);
+        }
+        for (AuditEvent event : events) {
+            if (event.sequence() > checkpointedSequence) {
+                insertedAhead.add(event.sequence());
+            }
+        }
+    }
+
+    private void advanceCheckpoint(long sequence) {
+        long safe = sequence;
+        Iterator<Long> direct = inFlight.iterator();
+        if (direct.hasNext()) {
+            safe = Math.min(safe, direct.next() - 1);
+        }
+        if (safe > checkpointedSequence) {
+            checkpoint(safe);
+        }
+    }
+
+    // Buffered events are contiguous only while nothing waits for replay. inFlight is read first: a direct
+    // insert that has left it after failing has already raised the watermark.
+    private void advanceBufferedCheckpoint(long sequence) {
+        long safe = sequence;
+        Iterator<Long> direct = inFlight.iterator();
+        if (direct.hasNext()) {
+            safe = Math.min(safe, direct.next() - 1);
+        }
+        if (replayUpTo.get() > checkpointedSequence) {
+            return;
+        }
+        if (safe > checkpointedSequence) {
+            checkpoint(safe);
+        }
+    }
+
+    private long lastSpilledSequence() throws IOException {
+        if (!Files.exists(spillFile)) {
+            return 0;
+        }
+        long last = 0;
+        try (BufferedReader reader = Files.newBufferedReader(spillFile, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                AuditEvent event = AuditEvent.parse(line);
+                if (event != null) {
+                    last = Math.max(last, event.sequence());
+                }
+            }
+        }
+        return last;
+    }
+
+    private boolean endsWithNewline() throws IOException {
+        ByteBuffer last = ByteBuffer.allocate(1);
+        try (FileChannel channel = FileChannel.open(spillFile, StandardOpenOption.READ)) {
+            channel.read(last, channel.size() - 1);
+        }
+        return last.get(0) == '\n';
+    }
+
+    private void appendLine(String text) {
+        ByteBuffer line = ByteBuffer.wrap(text.getBytes(StandardCharsets.UTF_8));
+        try {
+            while (line.hasRemaining()) {
+                spill.write(line);
+            }
+        } catch (IOException e) {
+            log.error("Failed to append to audit spill file", e);
+        }
+    }
+
+    private void forceSpill() {
+        try {
+            spill.force(false);
+        } catch (IOException e) {
+            log.error("Failed to sync audit spill file", e);
+        }
+    }
+
+    private void checkpoint(long sequence) {
+        try {
+            documentStorageService.write(0, checkpointFile, String.valueOf(sequence).getBytes(StandardCharsets.US_ASCII));
+            checkpointedSequence = sequence;
+            insertedAhead.removeIf(inserted -> inserted <= sequence);
+        } catch (IOException e) {
+            log.error("Failed to write audit checkpoint", e);
+        }
+    }
+
+    // Everything in the spill file is in the database once the checkpoint reaches the last appended event
+    private void truncateSpillIfDrained() {
+        if (!appendLock.tryLock()) {
+            return;
+        }
+        try {
+            if (queue.isEmpty() && inFlight.isEmpty() && lastSequence == checkpointedSequence && spill.size() > 0) {
+                spill.truncate(0);
+                replayOffset = 0;
+            }
+        } catch (IOException e) {
+            log.error("Failed to truncate audit spill file", e);
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    private static String insertSql(int rows) {
+        StringBuilder sql = new StringBuilder(INSERT_PREFIX);
+        for (int i = 0; i < rows; i++) {
+            if (i > 0) {
+                sql.append(", ");
+            }
+            sql.append(ROW_PLACEHOLDER);
+        }
+        return sql.toString();
+    }
+
+    private static Object[] toArgs(List<AuditEvent> events) {
+        Object[] args = new Object[events.size() * 5];
+        int i = 0;
+        for (AuditEvent event : events) {
+            args[i++] = event.documentId();
+            args[i++] = event.action();
+            args[i++] = event.performedBy();
+            args[i++] = event.ipAddress();
+            args[i++] = new Timestamp(event.timestampMillis());
+        }
+        return args;
+    }
+
+    private static String clientIp() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (!(attributes instanceof ServletRequestAttributes servletAttributes)) {
+            return null;
+        }
+        // Behind a trusted proxy the container has already applied X-Forwarded-For (server.forward-headers-strategy)
+        String ip = servletAttributes.getRequest().getRemoteAddr();
+        return ip != null && ip.length() > MAX_IP_LENGTH ? ip.substring(0, MAX_IP_LENGTH) : ip;
+    }
+
+    private record AuditEvent(long sequence, Long documentId, String action, Long performedBy,
+                              String ipAddress, long timestampMillis) {
+
+        String format() {
+            return sequence + "\t" + documentId + "\t" + action + "\t" + performedBy + "\t"
+                    + (ipAddress != null ? ipAddress.replaceAll("\\s", "") : "") + "\t" + timestampMillis + "\n";
+        }
+
+        // A torn last line from a crash is skipped
+        static AuditEvent parse(String line) {
+            String[] fields = line.split("\t", -1);
+            if (fields.length != 6) {
+                return null;
+            }
+            try {
+                return new AuditEvent(
+                        Long.parseLong(fields[0]),
+                        Long.parseLong(fields[1]),
+                        fields[2],
+                        Long.parseLong(fields[3]),
+                        fields[4].isEmpty() ? null : fields[4],
+                        Long.parseLong(fields[5]));
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+    }
+}
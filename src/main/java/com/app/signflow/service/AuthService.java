@@ -1,69 +1,77 @@
 package com.app.signflow.service;
 
 import com.app.signflow.config.JwtUtil;
+import com.app.signflow.exception.TooManyRequestsException;
 import com.app.signflow.model.dto.*;
 import com.app.signflow.model.entity.User;
 import com.app.signflow.repo.UserRepository;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.http.HttpStatus;
-import org.springframework.security.authentication.AuthenticationManager;
-import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.web.server.ResponseStatusException;
 
+import java.util.concurrent.CompletableFuture;
+
 @Service
 @RequiredArgsConstructor
+@Slf4j
 public class AuthService {
 
     private final UserRepository userRepository;
-    private final PasswordEncoder passwordEncoder;
+    private final PasswordHashingService passwordHashingService;
     private final JwtUtil jwtUtil;
-    private final AuthenticationManager authenticationManager;
-    private final EmailService emailService;
+    private final EmailOutboxService emailOutboxService;
+    private final ApplicationEventPublisher eventPublisher;
 
-    public AuthResponse signup(SignupRequest request) {
+    public CompletableFuture<AuthResponse> signup(SignupRequest request) {
         if (userRepository.existsByEmail(request.getEmail())) {
             throw new RuntimeException("Email already exists");
         }
 
-        User user = User.builder()
-                .name(request.getName())
-                .email(request.getEmail())
-                .passwordHash(passwordEncoder.encode(request.getPassword()))
-                .role("USER")
-                .build();
+        return passwordHashingService.encode(request.getPassword()).thenApply(passwordHash -> {
+            User user = User.builder()
+                    .name(request.getName())
+                    .email(request.getEmail())
+                    .passwordHash(passwordHash)
+                    .role("USER")
+                    .build();
 
-        user = userRepository.save(user);
+            user = userRepository.save(user);
 
-        String token = jwtUtil.generateToken(user.getEmail());
+            String token = jwtUtil.generateToken(user);
 
-        return AuthResponse.builder()
-                .token(token)
-                .user(convertToDTO(user))
-                .build();
+            return AuthResponse.builder()
+                    .token(token)
+                    .user(convertToDTO(user))
+                    .build();
+        });
     }
 
-    public AuthResponse login(LoginRequest request) {
+    public CompletableFuture<AuthResponse> login(LoginRequest request) {
         User user = userRepository.findByEmail(request.getEmail())
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Cannot find Email"));
 
-        if (!passwordEncoder.matches(request.getPassword(), user.getPasswordHash())) {
-            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Password is not correct");
-        }
+        // The single hash verification for this attempt
+        return passwordHashingService.matches(request.getPassword(), user.getPasswordHash()).thenApply(matches -> {
+            if (!matches) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Password is not correct");
+            }
 
-        authenticationManager.authenticate(
-                new UsernamePasswordAuthenticationToken(request.getEmail(), request.getPassword())
-        );
+            if (passwordHashingService.needsRehash(user.getPasswordHash())) {
+                rehash(user, request.getPassword());
+            }
 
-        String token = jwtUtil.generateToken(user.getEmail());
+            String token = jwtUtil.generateToken(user);
 
-        return AuthResponse.builder()
-                .token(token)
-                .user(convertToDTO(user))
-                .build();
+            return AuthResponse.builder()
+                    .token(token)
+                    .user(convertToDTO(user))
+                    .build();
+        });
     }
 
     public void forgotPassword(String email) {
@@ -73,11 +81,11 @@ public class AuthService {
         // Generate reset token (simplified - in production use a proper reset token)
         String resetToken = jwtUtil.generateToken(email);
 
-        // Send email
-        emailService.sendPasswordResetEmail(email, resetToken);
+        // Delivered by the outbox worker
+        emailOutboxService.enqueuePasswordReset(email, resetToken);
     }
 
-        public void changePassword(ChangePasswordRequest request) {
+        public CompletableFuture<Void> changePassword(ChangePasswordRequest request) {
                 Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
                 if (authentication == null || authentication.getName() == null || "anonymousUser".equals(authentication.getName())) {
                         throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Not authenticated");
@@ -90,13 +98,39 @@ public class AuthService {
                 User user = userRepository.findByEmail(authentication.getName())
                                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "User not found"));
 
-                if (!passwordEncoder.matches(request.getCurrentPassword(), user.getPasswordHash())) {
-                        throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Current password is incorrect");
-                }
+                return passwordHashingService.matches(request.getCurrentPassword(), user.getPasswordHash())
+                                .thenCompose(matches -> {
+                                        if (!matches) {
+                                                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Current password is incorrect");
+                                        }
+                                        return passwordHashingService.encode(request.getNewPassword());
+                                })
+                                .thenAccept(passwordHash -> {
+                                        user.setPasswordHash(passwordHash);
+                                        userRepository.save(user);
+                                        eventPublisher.publishEvent(new UserChangedEvent(user.getId(), user.getEmail()));
+                                });
+        }
 
-                user.setPasswordHash(passwordEncoder.encode(request.getNewPassword()));
-                userRepository.save(user);
+    // Upgrades hashes made with an older cost in the background; the login response does not wait for it
+    private void rehash(User user, String rawPassword) {
+        String oldHash = user.getPasswordHash();
+        try {
+            passwordHashingService.encode(rawPassword)
+                    .thenAccept(newHash -> {
+                        if (userRepository.replacePasswordHash(user.getId(), oldHash, newHash) > 0) {
+                            eventPublisher.publishEvent(new UserChangedEvent(user.getId(), user.getEmail()));
+                        }
+                    })
+                    .exceptionally(e -> {
+                        log.warn("Skipped password rehash for user {}: {}", user.getId(), e.getMessage());
+                        return null;
+                    });
+        } catch (TooManyRequestsException e) {
+            // Saturated; the next login retries the upgrade
+            log.debug("Deferred password rehash for user {}", user.getId());
         }
+    }
 
     private UserDTO convertToDTO(User user) {
         return UserDTO.builder()
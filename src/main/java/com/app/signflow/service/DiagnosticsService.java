@@ -0,0 +1,93 @@
+package com.app.signflow.service;
+
+import com.app.signflow.config.ConversionEvent;
+import com.app.signflow.config.PdfOperationEvent;
+import com.app.signflow.config.StorageIoEvent;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+
+/**
+ * Always-on flight recording with the JDK default settings plus the SignFlow document events, kept in a
+ * bounded on-disk ring so a slow request can be inspected after the fact.
+ */
+@Service
+@Slf4j
+public class DiagnosticsService {
+
+    @Value("${diagnostics.jfr.enabled:true}")
+    private boolean enabled;
+
+    @Value("${diagnostics.jfr.max-age-minutes:30}")
+    private long maxAgeMinutes;
+
+    @Value("${diagnostics.jfr.max-size-mb:100}")
+    private long maxSizeMb;
+
+    @Value("${diagnostics.jfr.pdf-threshold-ms:50}")
+    private long pdfThresholdMs;
+
+    @Value("${diagnostics.jfr.conversion-threshold-ms:500}")
+    private long conversionThresholdMs;
+
+    @Value("${diagnostics.jfr.storage-threshold-ms:20}")
+    private long storageThresholdMs;
+
+    private Recording recording;
+
+    @PostConstruct
+    void start() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            recording = new Recording(Configuration.getConfiguration("default"));
+        } catch (IOException | ParseException e) {
+            log.warn("JFR default configuration unavailable, recording only SignFlow events: {}", e.getMessage());
+            recording = new Recording();
+        }
+        recording.setName("signflow");
+        recording.setToDisk(true);
+        recording.setMaxAge(Duration.ofMinutes(maxAgeMinutes));
+        recording.setMaxSize(maxSizeMb * 1024 * 1024);
+        recording.enable(PdfOperationEvent.class).withThreshold(Duration.ofMillis(pdfThresholdMs));
+        recording.enable(ConversionEvent.class).withThreshold(Duration.ofMillis(conversionThresholdMs));
+        recording.enable(StorageIoEvent.class).withThreshold(Duration.ofMillis(storageThresholdMs));
+        recording.start();
+        log.info("JFR recording started, keeping {} minutes or {} MB", maxAgeMinutes, maxSizeMb);
+    }
+
+    // Copies the current ring to a temp file; the caller deletes it once sent
+    public Path dump() throws IOException {
+        if (recording == null) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "JFR recording is disabled");
+        }
+        Path file = Files.createTempFile("signflow-", ".jfr");
+        try {
+            recording.dump(file);
+        } catch (IOException e) {
+            Files.deleteIfExists(file);
+            throw e;
+        }
+        return file;
+    }
+
+    @PreDestroy
+    void stop() {
+        if (recording != null) {
+            recording.close();
+        }
+    }
+}
@@ -0,0 +1,285 @@
+package com.app.signflow.service;
+
+import com.app.signflow.exception.DraftRevisionConflictException;
+import com.app.signflow.model.dto.DocumentDTO;
+import com.app.signflow.model.dto.DocumentDraftDTO;
+import com.app.signflow.model.dto.DraftOperation;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Keeps the editor HTML of a document on the server while it is being edited, so autosave sends small
+ * patches instead of the whole document and nothing is converted until the draft is finalized. Pages are
+ * stored compressed, one row each, and a patch only reads and writes the pages it touches. Every patch must
+ * name the draft revision it was made against; a stale revision is rejected with 409. Drafts nobody touched
+ * for {@code drafts.ttl-hours} are swept.
+ */
+@Service
+@Slf4j
+public class DocumentDraftService {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final DocumentService documentService;
+
+    @Value("${drafts.ttl-hours:168}")
+    private long ttlHours;
+
+    @Value("${drafts.sweep-batch-size:500}")
+    private int sweepBatchSize;
+
+    public DocumentDraftService(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                                DocumentService documentService) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.documentService = documentService;
+    }
+
+    private record Draft(Long documentVersion, Long revision, int pageCount, LocalDateTime updatedAt) {
+    }
+
+    /**
+     * Returns the draft with its HTML, opening it from the current PDF first if the document has none.
+     */
+    public DocumentDraftDTO get(Long id) {
+        DocumentDTO document = documentService.getDocument(id);
+        Draft draft = find(id);
+        if (draft == null) {
+            return open(id);
+        }
+        return toDTO(id, draft, readHtml(id), document);
+    }
+
+    public DocumentDraftDTO patch(Long id, Long expectedRevision, List<DraftOperation> operations) {
+        if (expectedRevision == null) {
+            throw new ResponseStatusException(HttpStatus.PRECONDITION_REQUIRED, "If-Match with the draft revision is required");
+        }
+        if (operations == null || operations.isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "No draft operations given");
+        }
+        DocumentDTO document = documentService.getDocument(id);
+
+        Draft patched = transactionTemplate.execute(status -> {
+            Draft draft = lock(id);
+            if (!draft.revision().equals(expectedRevision)) {
+                throw new DraftRevisionConflictException(draft.revision());
+            }
+
+            DraftPages pages = new DraftPages(draft.pageCount(), page -> readPage(id, page));
+            for (DraftOperation operation : operations) {
+                pages.apply(operation);
+            }
+            store(id, pages);
+
+            jdbcTemplate.update("UPDATE document_drafts SET revision = revision + 1, page_count = ? WHERE document_id = ?",
+                    pages.pageCount(), id);
+            return lock(id);
+        });
+        return toDTO(id, patched, null, document);
+    }
+
+    /**
+     * Converts the draft back to PDF through the regular save path and drops it. The draft stays if the
+     * document was changed since the draft was opened.
+     */
+    public DocumentDTO finalizeDraft(Long id, Long expectedRevision) {
+        if (expectedRevision == null) {
+            throw new ResponseStatusException(HttpStatus.PRECONDITION_REQUIRED, "If-Match with the draft revision is required");
+        }
+        documentService.getDocument(id);
+        Draft draft = find(id);
+        if (draft == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Document has no draft");
+        }
+        if (!expectedRevision.equals(draft.revision())) {
+            throw new DraftRevisionConflictException(draft.revision());
+        }
+
+        DocumentDTO saved = documentService.saveEditableHtml(id, readHtml(id), draft.documentVersion());
+        // A patch that raced the conversion keeps the draft alive, at a revision the client has not seen yet
+        jdbcTemplate.update("DELETE FROM document_drafts WHERE document_id = ? AND revision = ?", id, draft.revision());
+        return saved;
+    }
+
+    public void discard(Long id) {
+        documentService.getDocument(id);
+        jdbcTemplate.update("DELETE FROM document_drafts WHERE document_id = ?", id);
+    }
+
+    // Pages go with their draft through the foreign key; batches keep each delete short
+    @Scheduled(fixedDelayString = "${drafts.sweep-interval-ms:3600000}")
+    public void sweepAbandoned() {
+        Timestamp cutoff = Timestamp.valueOf(LocalDateTime.now().minusHours(ttlHours));
+        int total = 0;
+        int deleted;
+        do {
+            deleted = jdbcTemplate.update("DELETE FROM document_drafts WHERE updated_at < ? LIMIT ?",
+                    cutoff, sweepBatchSize);
+            total += deleted;
+        } while (deleted == sweepBatchSize);
+        if (total > 0) {
+            log.info("Removed {} drafts untouched for {} hours", total, ttlHours);
+        }
+    }
+
+    private DocumentDraftDTO open(Long id) {
+        DocumentService.EditableHtml editable = documentService.convertToEditableHtml(id);
+        String html;
+        try {
+            html = documentService.readEditableHtml(editable);
+        } catch (IOException e) {
+            log.error("Error reading converted HTML", e);
+            throw new RuntimeException("Failed to open draft");
+        }
+        List<String> pages = HtmlPageStreamer.splitPages(html);
+
+        Boolean created = transactionTemplate.execute(status -> {
+            int inserted = jdbcTemplate.update(
+                    "INSERT IGNORE INTO document_drafts (document_id, document_version, revision, page_count) VALUES (?, ?, 0, ?)",
+                    id, editable.version(), pages.size() - 1);
+            if (inserted == 0) {
+                return false;
+            }
+            List<Object[]> rows = new ArrayList<>(pages.size());
+            for (int page = 0; page < pages.size(); page++) {
+                rows.add(new Object[]{id, page, compress(pages.get(page))});
+            }
+            jdbcTemplate.batchUpdate(
+                    "INSERT INTO document_draft_pages (document_id, page_number, content) VALUES (?, ?, ?)", rows);
+            return true;
+        });
+        if (!Boolean.TRUE.equals(created)) {
+            // another request opened the draft first
+            return toDTO(id, find(id), readHtml(id), documentService.getDocument(id));
+        }
+        return toDTO(id, find(id), html, null);
+    }
+
+    // Writes every page that changed or moved; pages past the new end are dropped
+    private void store(Long id, DraftPages pages) {
+        List<Object[]> rows = new ArrayList<>();
+        pages.writes().forEach((page, content) -> rows.add(new Object[]{id, page, compress(content)}));
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO document_draft_pages (document_id, page_number, content) VALUES (?, ?, ?) " +
+                        "ON DUPLICATE KEY UPDATE content = VALUES(content)", rows);
+        if (pages.truncated()) {
+            jdbcTemplate.update("DELETE FROM document_draft_pages WHERE document_id = ? AND page_number > ?",
+                    id, pages.pageCount());
+        }
+    }
+
+    private String readPage(Long id, int page) {
+        byte[] content = jdbcTemplate.queryForObject(
+                "SELECT content FROM document_draft_pages WHERE document_id = ? AND page_number = ?",
+                byte[].class, id, page);
+        return decompress(content);
+    }
+
+    private String readHtml(Long id) {
+        StringBuilder html = new StringBuilder();
+        jdbcTemplate.query(
+                "SELECT page_number, content FROM document_draft_pages WHERE document_id = ? ORDER BY page_number",
+                rs -> {
+                    if (rs.getInt(1) > 0) {
+                        html.append(HtmlPageStreamer.PAGE_OPEN);
+                    }
+                    html.append(decompress(rs.getBytes(2)));
+                },
+                id);
+        return html.toString();
+    }
+
+    private Draft find(Long id) {
+        return jdbcTemplate.query(
+                        "SELECT document_version, revision, page_count, updated_at FROM document_drafts WHERE document_id = ?",
+                        (rs, rowNum) -> toDraft(rs.getLong(1), rs.getLong(2), rs.getInt(3), rs.getTimestamp(4)),
+                        id)
+                .stream()
+                .findFirst()
+                .orElse(null);
+    }
+
+    private Draft lock(Long id) {
+        return jdbcTemplate.query(
+                        "SELECT document_version, revision, page_count, updated_at FROM document_drafts WHERE document_id = ? FOR UPDATE",
+                        (rs, rowNum) -> toDraft(rs.getLong(1), rs.getLong(2), rs.getInt(3), rs.getTimestamp(4)),
+                        id)
+                .stream()
+                .findFirst()
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Document has no draft"));
+    }
+
+    private static Draft toDraft(long documentVersion, long revision, int pageCount, Timestamp updatedAt) {
+        return new Draft(documentVersion, revision, pageCount, updatedAt != null ? updatedAt.toLocalDateTime() : null);
+    }
+
+    // document is null when the draft was just opened from its current version
+    private static DocumentDraftDTO toDTO(Long id, Draft draft, String html, DocumentDTO document) {
+        return DocumentDraftDTO.builder()
+                .documentId(id)
+                .documentVersion(draft.documentVersion())
+                .stale(document != null && !draft.documentVersion().equals(document.getVersion()))
+                .revision(draft.revision())
+                .pageCount(draft.pageCount())
+                .updatedAt(draft.updatedAt())
+                .html(html)
+                .build();
+    }
+
+    static byte[] compress(String content) {
+        byte[] input = content.getBytes(StandardCharsets.UTF_8);
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            deflater.setInput(input);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, input.length / 4));
+            byte[] buffer = new byte[8192];
+            while (!deflater.finished()) {
+                out.write(buffer, 0, deflater.deflate(buffer));
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    static String decompress(byte[] content) {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(content);
+            ByteArrayOutputStream out = new ByteArrayOutputStream(content.length * 4);
+            byte[] buffer = new byte[8192];
+            while (!inflater.finished()) {
+                int length = inflater.inflate(buffer);
+                if (length == 0 && !inflater.finished() && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new UncheckedIOException(new IOException("Truncated draft page"));
+                }
+                out.write(buffer, 0, length);
+            }
+            return out.toString(StandardCharsets.UTF_8);
+        } catch (DataFormatException e) {
+            throw new UncheckedIOException(new IOException("Corrupt draft page", e));
+        } finally {
+            inflater.end();
+        }
+    }
+}
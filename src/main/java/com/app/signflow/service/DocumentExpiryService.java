@@ -0,0 +1,211 @@
+package com.app.signflow.service;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Moves documents and signer invitations past their deadline to EXPIRED.
+ *
+ * <p>Deadlines within the next few minutes are held in in-memory timing wheels that fire to the second;
+ * a periodic poll loads them from the expires_at index and sweeps anything overdue. Every pass claims a
+ * small batch with SKIP LOCKED in its own short transaction and clears expires_at on the claimed rows,
+ * so several nodes can share the work and each index range scan only touches due rows.
+ */
+@Service
+@Slf4j
+public class DocumentExpiryService {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final AuditService auditService;
+
+    @Value("${expiry.batch-size:500}")
+    private int batchSize;
+
+    @Value("${expiry.tick-ms:1000}")
+    private long tickMillis;
+
+    @Value("${expiry.horizon-seconds:300}")
+    private long horizonSeconds;
+
+    @Value("${expiry.preload-limit:10000}")
+    private int preloadLimit;
+
+    private TimingWheel<Long> documentWheel;
+    private TimingWheel<Long> signerWheel;
+
+    public DocumentExpiryService(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                                 AuditService auditService) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.auditService = auditService;
+    }
+
+    @PostConstruct
+    void init() {
+        int slots = (int) (horizonSeconds * 1000 / tickMillis) + 1;
+        long now = System.currentTimeMillis();
+        documentWheel = new TimingWheel<>(tickMillis, slots, now);
+        signerWheel = new TimingWheel<>(tickMillis, slots, now);
+    }
+
+    // Called when a deadline is set or moved; anything outside the horizon is picked up by the poll
+    public void documentDeadlineChanged(Long documentId, LocalDateTime expiresAt) {
+        if (expiresAt == null) {
+            documentWheel.cancel(documentId);
+        } else if (!documentWheel.schedule(documentId, toMillis(expiresAt))) {
+            documentWheel.cancel(documentId);
+        }
+    }
+
+    public void signerDeadlinesChanged(List<Long> signerIds, LocalDateTime expiresAt) {
+        long deadline = toMillis(expiresAt);
+        for (Long signerId : signerIds) {
+            if (!signerWheel.schedule(signerId, deadline)) {
+                return;
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${expiry.tick-ms:1000}")
+    public void tick() {
+        long now = System.currentTimeMillis();
+        expireEach(documentWheel.advance(now), this::expireDocuments);
+        expireEach(signerWheel.advance(now), this::expireSigners);
+    }
+
+    // The poll interval has to stay below the wheel horizon so no deadline slips between two loads
+    @Scheduled(fixedDelayString = "${expiry.poll-interval-ms:60000}")
+    public void poll() {
+        int expired = 0;
+        int claimed;
+        do {
+            claimed = expireDocuments(null);
+            expired += claimed;
+        } while (claimed == batchSize);
+        do {
+            claimed = expireSigners(null);
+            expired += claimed;
+        } while (claimed == batchSize);
+        if (expired > 0) {
+            log.info("Expired {} overdue documents and invitations", expired);
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        Timestamp from = Timestamp.valueOf(now);
+        Timestamp to = Timestamp.valueOf(now.plusSeconds(horizonSeconds));
+        jdbcTemplate.query("SELECT id, expires_at FROM documents WHERE expires_at > ? AND expires_at <= ? " +
+                        "ORDER BY expires_at LIMIT ?",
+                rs -> {
+                    documentWheel.schedule(rs.getLong("id"), rs.getTimestamp("expires_at").getTime());
+                }, from, to, preloadLimit);
+        jdbcTemplate.query("SELECT id, expires_at FROM signers WHERE expires_at > ? AND expires_at <= ? " +
+                        "ORDER BY expires_at LIMIT ?",
+                rs -> {
+                    signerWheel.schedule(rs.getLong("id"), rs.getTimestamp("expires_at").getTime());
+                }, from, to, preloadLimit);
+    }
+
+    /**
+     * Expires the given documents, or the oldest overdue batch when {@code ids} is null. Rows locked by
+     * another node or whose deadline moved are skipped.
+     */
+    int expireDocuments(List<Long> ids) {
+        List<ExpiredDocument> expired = new ArrayList<>();
+        Integer claimed = transactionTemplate.execute(status -> {
+            Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+            List<ExpiredDocument> rows = jdbcTemplate.query(claimSql("documents", "id, owner_id, status", ids),
+                    (rs, rowNum) -> new ExpiredDocument(rs.getLong("id"), rs.getLong("owner_id"),
+                            rs.getString("status")),
+                    claimArgs(ids, now));
+            if (rows.isEmpty()) {
+                return 0;
+            }
+            List<Object> args = new ArrayList<>();
+            args.add(now);
+            rows.forEach(row -> args.add(row.id()));
+            // version comes first because MariaDB evaluates the assignments left to right
+            jdbcTemplate.update(
+                    "UPDATE documents SET " +
+                    "version = CASE WHEN status IN ('DRAFT', 'PENDING') THEN version + 1 ELSE version END, " +
+                    "status = CASE WHEN status IN ('DRAFT', 'PENDING') THEN 'EXPIRED' ELSE status END, " +
+                    "expires_at = NULL, updated_at = ? WHERE id IN (" + placeholders(rows.size()) + ")",
+                    args.toArray());
+            rows.stream().filter(ExpiredDocument::live).forEach(expired::add);
+            return rows.size();
+        });
+        for (ExpiredDocument document : expired) {
+            auditService.record(document.id(), "EXPIRE", document.ownerId());
+        }
+        return claimed != null ? claimed : 0;
+    }
+
+    int expireSigners(List<Long> ids) {
+        Integer claimed = transactionTemplate.execute(status -> {
+            Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+            List<Long> rows = jdbcTemplate.queryForList(claimSql("signers", "id", ids), Long.class, claimArgs(ids, now));
+            if (rows.isEmpty()) {
+                return 0;
+            }
+            jdbcTemplate.update(
+                    "UPDATE signers SET status = CASE WHEN status = 'PENDING' THEN 'EXPIRED' ELSE status END, " +
+                    "expires_at = NULL WHERE id IN (" + placeholders(rows.size()) + ")",
+                    rows.toArray());
+            return rows.size();
+        });
+        return claimed != null ? claimed : 0;
+    }
+
+    private void expireEach(List<Long> due, Function<List<Long>, Integer> expire) {
+        for (int from = 0; from < due.size(); from += batchSize) {
+            try {
+                expire.apply(due.subList(from, Math.min(from + batchSize, due.size())));
+            } catch (Exception e) {
+                // The poll sweeps whatever the wheel failed to expire
+                log.warn("Failed to expire batch: {}", e.getMessage());
+            }
+        }
+    }
+
+    private String claimSql(String table, String columns, List<Long> ids) {
+        String filter = ids == null ? "" : "id IN (" + placeholders(ids.size()) + ") AND ";
+        return "SELECT " + columns + " FROM " + table + " WHERE " + filter + "expires_at <= ? " +
+                "ORDER BY expires_at LIMIT ? FOR UPDATE SKIP LOCKED";
+    }
+
+    private Object[] claimArgs(List<Long> ids, Timestamp now) {
+        List<Object> args = new ArrayList<>(ids != null ? ids : Collections.emptyList());
+        args.add(now);
+        args.add(batchSize);
+        return args.toArray();
+    }
+
+    private static String placeholders(int count) {
+        return String.join(", ", Collections.nCopies(count, "?"));
+    }
+
+    private static long toMillis(LocalDateTime dateTime) {
+        return dateTime.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    private record ExpiredDocument(long id, long ownerId, String status) {
+
+        boolean live() {
+            return "DRAFT".equals(status) || "PENDING".equals(status);
+        }
+    }
+}
@@ -0,0 +1,225 @@
+package com.app.signflow.service;
+
+import com.app.signflow.model.dto.DocumentMetadataDTO;
+import com.app.signflow.model.dto.PageDimension;
+import com.app.signflow.model.entity.Document;
+import com.app.signflow.model.entity.DocumentMetadata;
+import com.app.signflow.repo.DocumentMetadataRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.io.IOUtils;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.encryption.InvalidPasswordException;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.zip.ZipException;
+import java.util.zip.ZipFile;
+
+/**
+ * Upload-time preflight of stored files. Structural facts (type, pages, media boxes, hash) are
+ * persisted once so request validation does not have to re-open the file.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class DocumentMetadataService {
+
+    public static final String PDF = "application/pdf";
+    public static final String DOC = "application/msword";
+    public static final String DOCX = "application/vnd.openxmlformats-officedocument.wordprocessingml.document";
+
+    private static final byte[] PDF_MAGIC = {'%', 'P', 'D', 'F', '-'};
+    private static final byte[] OLE_MAGIC = {(byte) 0xD0, (byte) 0xCF, 0x11, (byte) 0xE0, (byte) 0xA1, (byte) 0xB1, 0x1A, (byte) 0xE1};
+    private static final byte[] ZIP_MAGIC = {'P', 'K', 0x03, 0x04};
+
+    private final DocumentMetadataRepository documentMetadataRepository;
+
+    public DocumentMetadata preflight(Path file, String sha256, long sizeBytes) throws IOException {
+        String contentType = sniffContentType(file);
+        if (contentType == null) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Only PDF or Word files are allowed");
+        }
+
+        DocumentMetadata metadata = DocumentMetadata.builder()
+                .contentType(contentType)
+                .sizeBytes(sizeBytes)
+                .sha256(sha256)
+                .encrypted(false)
+                .build();
+        if (PDF.equals(contentType)) {
+            readPdfStructure(file, metadata);
+        }
+        return metadata;
+    }
+
+    public DocumentMetadata save(Long documentId, DocumentMetadata metadata) {
+        metadata.setDocumentId(documentId);
+        return documentMetadataRepository.save(metadata);
+    }
+
+    public DocumentMetadata get(Document document, Path filePath) {
+        return documentMetadataRepository.findById(document.getId())
+                .orElseGet(() -> refresh(document, filePath));
+    }
+
+    public DocumentMetadataDTO getDTO(Document document, Path filePath) {
+        DocumentMetadata metadata = get(document, filePath);
+        return DocumentMetadataDTO.builder()
+                .documentId(metadata.getDocumentId())
+                .contentType(metadata.getContentType())
+                .sizeBytes(metadata.getSizeBytes())
+                .sha256(metadata.getSha256())
+                .pageCount(metadata.getPageCount())
+                .encrypted(metadata.getEncrypted())
+                .pages(decodePageSizes(metadata.getPageSizes()))
+                .build();
+    }
+
+    public void validatePages(Document document, Path filePath, Collection<Integer> pages) {
+        DocumentMetadata metadata = get(document, filePath);
+        if (metadata.getPageCount() == null) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Document is not a PDF");
+        }
+        for (Integer page : pages) {
+            if (page == null || page < 1 || page > metadata.getPageCount()) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                        "Page " + page + " is out of range (document has " + metadata.getPageCount() + " pages)");
+            }
+        }
+    }
+
+    // Sign and edit never change the page structure, only the bytes
+    public void updateContent(Document document, Path filePath, byte[] content) {
+        DocumentMetadata metadata = get(document, filePath);
+        metadata.setSizeBytes((long) content.length);
+        metadata.setSha256(sha256Hex(content, content.length));
+        documentMetadataRepository.save(metadata);
+    }
+
+    public DocumentMetadata refresh(Document document, Path filePath) {
+        try {
+            DocumentMetadata metadata = preflight(filePath, sha256Hex(filePath), Files.size(filePath));
+            return save(document.getId(), metadata);
+        } catch (IOException e) {
+            log.error("Error reading document metadata", e);
+            throw new RuntimeException("Failed to read document metadata");
+        }
+    }
+
+    public static String sha256Hex(Path file) throws IOException {
+        MessageDigest digest = sha256();
+        try (InputStream in = Files.newInputStream(file)) {
+            byte[] buffer = new byte[64 * 1024];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    public static String sha256Hex(byte[] content, int length) {
+        MessageDigest digest = sha256();
+        digest.update(content, 0, length);
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    public static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private String sniffContentType(Path file) throws IOException {
+        byte[] header;
+        try (InputStream in = Files.newInputStream(file)) {
+            header = in.readNBytes(OLE_MAGIC.length);
+        }
+        if (startsWith(header, PDF_MAGIC)) {
+            return PDF;
+        }
+        if (startsWith(header, OLE_MAGIC)) {
+            return DOC;
+        }
+        if (startsWith(header, ZIP_MAGIC) && isWordPackage(file)) {
+            return DOCX;
+        }
+        return null;
+    }
+
+    // ZipFile reads only the central directory, so no entry is inflated to tell a Word package from any other zip
+    static boolean isWordPackage(Path file) throws IOException {
+        try (ZipFile zip = new ZipFile(file.toFile())) {
+            return zip.getEntry("[Content_Types].xml") != null && zip.getEntry("word/document.xml") != null;
+        } catch (ZipException e) {
+            return false;
+        }
+    }
+
+    private void readPdfStructure(Path file, DocumentMetadata metadata) {
+        try (PDDocument pdf = Loader.loadPDF(file.toFile(), IOUtils.createTempFileOnlyStreamCache())) {
+            StringBuilder pageSizes = new StringBuilder();
+            for (PDPage page : pdf.getPages()) {
+                PDRectangle mediaBox = page.getMediaBox();
+                if (pageSizes.length() > 0) {
+                    pageSizes.append(';');
+                }
+                pageSizes.append(mediaBox.getWidth()).append('x').append(mediaBox.getHeight());
+            }
+            metadata.setPageCount(pdf.getNumberOfPages());
+            metadata.setPageSizes(pageSizes.toString());
+            metadata.setEncrypted(pdf.isEncrypted());
+        } catch (InvalidPasswordException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Password-protected PDFs are not supported");
+        } catch (IOException e) {
+            log.warn("Rejecting unreadable PDF {}: {}", file, e.getMessage());
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "File is not a valid PDF");
+        }
+    }
+
+    private List<PageDimension> decodePageSizes(String pageSizes) {
+        List<PageDimension> pages = new ArrayList<>();
+        if (pageSizes == null || pageSizes.isEmpty()) {
+            return pages;
+        }
+        String[] entries = pageSizes.split(";");
+        for (int i = 0; i < entries.length; i++) {
+            int separator = entries[i].indexOf('x');
+            pages.add(PageDimension.builder()
+                    .page(i + 1)
+                    .width(Float.parseFloat(entries[i].substring(0, separator)))
+                    .height(Float.parseFloat(entries[i].substring(separator + 1)))
+                    .build());
+        }
+        return pages;
+    }
+
+    private static boolean startsWith(byte[] data, byte[] prefix) {
+        if (data.length < prefix.length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if (data[i] != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
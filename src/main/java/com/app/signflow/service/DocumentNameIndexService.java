@@ -0,0 +1,107 @@
+package com.app.signflow.service;
+
+import com.app.signflow.model.entity.Document;
+import com.app.signflow.model.entity.Document.DocumentStatus;
+import com.app.signflow.repo.DocumentRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Maintains the per-owner trigram side table used for substring search on file names.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class DocumentNameIndexService {
+
+    static final int GRAM_SIZE = 3;
+    private static final int BACKFILL_BATCH_SIZE = 500;
+    private static final String BACKFILL_NAME = "document_name_trigrams";
+
+    private final DocumentRepository documentRepository;
+    private final JdbcTemplate jdbcTemplate;
+
+    public List<Document> search(Long ownerId, DocumentStatus status, String search) {
+        String pattern = "%" + escapeLike(search.toLowerCase(Locale.ROOT)) + "%";
+        Set<String> grams = trigrams(search);
+        if (grams.isEmpty()) {
+            // Too short to use the trigram index, fall back to a scan of the owner's documents
+            return documentRepository.searchDocumentsByOwner(ownerId, status, pattern);
+        }
+        return documentRepository.searchDocumentsByTrigrams(
+                ownerId,
+                status != null ? status.name() : null,
+                grams,
+                grams.size(),
+                pattern
+        );
+    }
+
+    public void index(Document document) {
+        jdbcTemplate.update("DELETE FROM document_name_trigrams WHERE document_id = ?", document.getId());
+
+        Set<String> grams = trigrams(document.getFileName());
+        if (grams.isEmpty()) {
+            return;
+        }
+        List<Object[]> rows = new ArrayList<>(grams.size());
+        for (String gram : grams) {
+            rows.add(new Object[]{document.getOwnerId(), gram, document.getId()});
+        }
+        jdbcTemplate.batchUpdate(
+                "INSERT IGNORE INTO document_name_trigrams (owner_id, trigram, document_id) VALUES (?, ?, ?)",
+                rows);
+    }
+
+    // Indexes documents uploaded before the trigram table existed; uploads and renames index themselves, so
+    // this only has to complete once
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfill() {
+        Integer completed = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM completed_backfills WHERE name = ?", Integer.class, BACKFILL_NAME);
+        if (completed != null && completed > 0) {
+            return;
+        }
+
+        int indexed = 0;
+        List<Document> batch;
+        do {
+            batch = documentRepository.findUnindexedByName(GRAM_SIZE, BACKFILL_BATCH_SIZE);
+            batch.forEach(this::index);
+            indexed += batch.size();
+        } while (batch.size() == BACKFILL_BATCH_SIZE);
+
+        jdbcTemplate.update("INSERT IGNORE INTO completed_backfills (name) VALUES (?)", BACKFILL_NAME);
+        if (indexed > 0) {
+            log.info("Backfilled file name index for {} documents", indexed);
+        }
+    }
+
+    static Set<String> trigrams(String value) {
+        Set<String> grams = new LinkedHashSet<>();
+        if (value == null) {
+            return grams;
+        }
+        int[] codePoints = value.toLowerCase(Locale.ROOT).codePoints().toArray();
+        for (int i = 0; i + GRAM_SIZE <= codePoints.length; i++) {
+            grams.add(new String(codePoints, i, GRAM_SIZE));
+        }
+        return grams;
+    }
+
+    private static String escapeLike(String value) {
+        return value.replace("\\", "\\\\")
+                .replace("%", "\\%")
+                .replace("_", "\\_");
+    }
+}
@@ -0,0 +1,250 @@
+package com.app.signflow.service;
+
+import com.app.signflow.model.dto.DocumentRevisionDTO;
+import com.app.signflow.model.entity.Document;
+import com.app.signflow.model.entity.DocumentMetadata;
+import com.app.signflow.model.entity.DocumentRevision;
+import com.app.signflow.repo.DocumentRevisionRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Revision history for stored documents.
+ *
+ * <p>Sign and edit save PDFs as incremental updates, so every revision of a chain is a prefix of the
+ * chain's newest file and only its length and hash need recording. When a write is not an append
+ * (save-html rebuilds the whole PDF), the current chain is archived as one compressed file and a new
+ * chain starts from the written content. Callers must hold the document's write lock.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class DocumentRevisionService {
+
+    private static final String ARCHIVE_DIR = ".revisions";
+
+    private final DocumentRevisionRepository documentRevisionRepository;
+    private final DocumentStorageService documentStorageService;
+
+    public void recordUpload(Document document, DocumentMetadata metadata, Long userId) {
+        documentRevisionRepository.save(DocumentRevision.builder()
+                .documentId(document.getId())
+                .revisionNumber(1)
+                .sizeBytes(metadata.getSizeBytes())
+                .deltaBytes(metadata.getSizeBytes())
+                .sha256(metadata.getSha256())
+                .action("UPLOAD")
+                .performedBy(userId)
+                .build());
+    }
+
+    public void commit(Document document, Path livePath, byte[] content, String action, Long userId) throws IOException {
+        DocumentRevision previous = latest(document, livePath);
+        boolean appended = content.length > previous.getSizeBytes()
+                && previous.getSha256().equals(DocumentMetadataService.sha256Hex(content, previous.getSizeBytes().intValue()));
+        if (!appended) {
+            archiveLiveChain(document, livePath, previous);
+        }
+
+        documentStorageService.write(document.getId(), livePath, content);
+        record(document, previous, content.length,
+                appended ? content.length - previous.getSizeBytes() : content.length,
+                DocumentMetadataService.sha256Hex(content, content.length), action, userId);
+    }
+
+    public void commit(Document document, Path livePath, Path contentFile, String action, Long userId) throws IOException {
+        DocumentRevision previous = latest(document, livePath);
+        archiveLiveChain(document, livePath, previous);
+
+        documentStorageService.replace(document.getId(), livePath, contentFile);
+        long size = Files.size(livePath);
+        record(document, previous, size, size, DocumentMetadataService.sha256Hex(livePath), action, userId);
+    }
+
+    public List<DocumentRevisionDTO> list(Long documentId) {
+        List<DocumentRevision> revisions = documentRevisionRepository.findByDocumentIdOrderByRevisionNumberDesc(documentId);
+        List<DocumentRevisionDTO> result = new ArrayList<>(revisions.size());
+        LocalDateTime nextCreatedAt = null;
+        for (DocumentRevision revision : revisions) {
+            result.add(DocumentRevisionDTO.builder()
+                    .revisionNumber(revision.getRevisionNumber())
+                    .sizeBytes(revision.getSizeBytes())
+                    .deltaBytes(revision.getDeltaBytes())
+                    .sha256(revision.getSha256())
+                    .archived(revision.getArchivePath() != null)
+                    .action(revision.getAction())
+                    .performedBy(revision.getPerformedBy())
+                    .createdAt(revision.getCreatedAt())
+                    .auditLink(auditLink(documentId, revision, nextCreatedAt))
+                    .build());
+            nextCreatedAt = revision.getCreatedAt();
+        }
+        return result;
+    }
+
+    // The audit event is recorded after the revision row, and before the next revision exists. Stored times
+    // have second precision, so the upper bound is widened by a second.
+    private static String auditLink(Long documentId, DocumentRevision revision, LocalDateTime nextCreatedAt) {
+        UriComponentsBuilder link = UriComponentsBuilder.fromPath("/api/v1/audit")
+                .queryParam("documentId", documentId)
+                .queryParam("action", revision.getAction())
+                .queryParam("userId", revision.getPerformedBy());
+        if (revision.getCreatedAt() != null) {
+            link.queryParam("from", revision.getCreatedAt().truncatedTo(ChronoUnit.SECONDS));
+        }
+        if (nextCreatedAt != null) {
+            link.queryParam("to", nextCreatedAt.truncatedTo(ChronoUnit.SECONDS).plusSeconds(1));
+        }
+        return link.build().encode().toUriString();
+    }
+
+    public RevisionContent open(Document document, Path livePath, Integer revisionNumber) throws IOException {
+        DocumentRevision revision = documentRevisionRepository
+                .findByDocumentIdAndRevisionNumber(document.getId(), revisionNumber)
+                .orElseThrow(() -> new RuntimeException("Revision not found"));
+
+        InputStream source = revision.getArchivePath() != null
+                ? new GZIPInputStream(Files.newInputStream(Paths.get(revision.getArchivePath())), 64 * 1024)
+                : Files.newInputStream(livePath);
+        return new RevisionContent(new PrefixInputStream(source, revision.getSizeBytes()), revision.getSizeBytes());
+    }
+
+    public void deleteArchives(Document document) {
+        Path archiveDir = archiveDir(document);
+        if (!Files.exists(archiveDir)) {
+            return;
+        }
+        try (Stream<Path> files = Files.walk(archiveDir)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(file);
+            }
+        } catch (IOException e) {
+            log.error("Error deleting revision archives for document {}", document.getId(), e);
+        }
+    }
+
+    private DocumentRevision latest(Document document, Path livePath) throws IOException {
+        return documentRevisionRepository.findTopByDocumentIdOrderByRevisionNumberDesc(document.getId())
+                .orElseGet(() -> baseline(document, livePath));
+    }
+
+    // Documents stored before revisions were tracked start their history from the current file
+    private DocumentRevision baseline(Document document, Path livePath) {
+        try {
+            long size = Files.size(livePath);
+            return documentRevisionRepository.save(DocumentRevision.builder()
+                    .documentId(document.getId())
+                    .revisionNumber(1)
+                    .sizeBytes(size)
+                    .deltaBytes(size)
+                    .sha256(DocumentMetadataService.sha256Hex(livePath))
+                    .action("UPLOAD")
+                    .performedBy(document.getOwnerId())
+                    .build());
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to read document for revision baseline", e);
+        }
+    }
+
+    private void archiveLiveChain(Document document, Path livePath, DocumentRevision previous) throws IOException {
+        Path archiveDir = archiveDir(document);
+        Files.createDirectories(archiveDir);
+        Path archive = archiveDir.resolve("chain-" + previous.getRevisionNumber() + ".gz");
+
+        try (InputStream in = Files.newInputStream(livePath);
+             OutputStream out = new GZIPOutputStream(Files.newOutputStream(archive), 64 * 1024)) {
+            in.transferTo(out);
+        }
+        documentRevisionRepository.archiveLiveChain(document.getId(), archive.toString());
+    }
+
+    private void record(Document document, DocumentRevision previous, long size, long delta,
+                        String sha256, String action, Long userId) {
+        documentRevisionRepository.save(DocumentRevision.builder()
+                .documentId(document.getId())
+                .revisionNumber(previous.getRevisionNumber() + 1)
+                .sizeBytes(size)
+                .deltaBytes(delta)
+                .sha256(sha256)
+                .action(action)
+                .performedBy(userId)
+                .build());
+    }
+
+    private Path archiveDir(Document document) {
+        return documentStorageService.uploadRoot().resolve(ARCHIVE_DIR).resolve(String.valueOf(document.getId()));
+    }
+
+    public record RevisionContent(InputStream stream, long sizeBytes) {
+    }
+
+    // Reads only the first limit bytes of the underlying chain file
+    private static class PrefixInputStream extends FilterInputStream {
+
+        private long remaining;
+
+        PrefixInputStream(InputStream in, long limit) {
+            super(in);
+            this.remaining = limit;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int value = super.read();
+            if (value != -1) {
+                remaining--;
+            }
+            return value;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int read = super.read(buffer, offset, (int) Math.min(length, remaining));
+            if (read > 0) {
+                remaining -= read;
+            }
+            return read;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(Math.min(n, remaining));
+            remaining -= skipped;
+            return skipped;
+        }
+
+        @Override
+        public int available() throws IOException {
+            return (int) Math.min(super.available(), remaining);
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package com.app.signflow.service;
+
+import com.app.signflow.config.PipelineMetrics;
+import com.app.signflow.config.StorageIoEvent;
+import com.app.signflow.model.entity.Document;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Access to stored document files. Writes go to a sibling temp file that is renamed over the target,
+ * so concurrent readers see either the old or the new file, never a partial one.
+ */
+@Service
+@RequiredArgsConstructor
+public class DocumentStorageService {
+
+    private final PipelineMetrics metrics;
+
+    @Value("${file.upload-dir:uploads}")
+    private String uploadDir;
+
+    public Path uploadRoot() {
+        return Paths.get(uploadDir).toAbsolutePath().normalize();
+    }
+
+    public Path resolve(Document document) {
+        return resolve(document.getFilePath());
+    }
+
+    public Path resolve(String storageKey) {
+        Path storedPath = Paths.get(storageKey);
+        if (storedPath.isAbsolute()) {
+            return storedPath;
+        }
+        return uploadRoot().resolve(storedPath).normalize();
+    }
+
+    public byte[] read(long documentId, Path path) throws IOException {
+        Timer.Sample sample = metrics.start();
+        StorageIoEvent event = beginEvent();
+        byte[] content = Files.readAllBytes(path);
+        metrics.storage(sample, "read", content.length);
+        commitEvent(event, documentId, "read", path, content.length);
+        return content;
+    }
+
+    public void write(long documentId, Path target, byte[] content) throws IOException {
+        Timer.Sample sample = metrics.start();
+        StorageIoEvent event = beginEvent();
+        Path temp = Files.createTempFile(target.getParent(), ".write-", ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                ByteBuffer buffer = ByteBuffer.wrap(content);
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                channel.force(true);
+            }
+            commit(temp, target);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        metrics.storage(sample, "write", content.length);
+        commitEvent(event, documentId, "write", target, content.length);
+    }
+
+    public void replace(long documentId, Path target, Path source) throws IOException {
+        Timer.Sample sample = metrics.start();
+        StorageIoEvent event = beginEvent();
+        Path temp = Files.createTempFile(target.getParent(), ".write-", ".tmp");
+        try {
+            Files.copy(source, temp, StandardCopyOption.REPLACE_EXISTING);
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                channel.force(true);
+            }
+            commit(temp, target);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        long size = Files.size(target);
+        metrics.storage(sample, "write", size);
+        commitEvent(event, documentId, "write", target, size);
+    }
+
+    private static StorageIoEvent beginEvent() {
+        StorageIoEvent event = new StorageIoEvent();
+        event.begin();
+        return event;
+    }
+
+    // documentId is 0 for files that belong to no document, such as the audit spill checkpoint
+    private static void commitEvent(StorageIoEvent event, long documentId, String direction, Path path, long bytes) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.direction = direction;
+            event.endpoint = PipelineMetrics.endpoint();
+            event.documentId = documentId;
+            event.file = path.getFileName().toString();
+            event.bytes = bytes;
+            event.commit();
+        }
+    }
+
+    private void commit(Path temp, Path target) throws IOException {
+        Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+}
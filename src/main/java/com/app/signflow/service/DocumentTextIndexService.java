@@ -0,0 +1,310 @@
+package com.app.signflow.service;
+
+import com.app.signflow.model.dto.ContentSearchResult;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.io.IOUtils;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.text.PDFTextStripper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Extracts document text in the background and keeps the FULLTEXT-indexed document_texts table current.
+ * Only the document that changed is re-extracted; queries never touch the stored files. Failed extractions and
+ * changes that overflow the in-memory queue go to document_text_retries, which the backfill drains.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class DocumentTextIndexService {
+
+    private static final Pattern QUERY_TOKEN = Pattern.compile("\"([^\"]*)\"|(\\S+)");
+    private static final String OPERATOR_CHARS = "[+\\-<>()~*\"@]";
+    private static final int MIN_TERM_LENGTH = 3;
+    private static final int SNIPPET_LEAD = 80;
+    private static final int SNIPPET_LENGTH = 240;
+    private static final String UPSERT_SQL =
+            "INSERT INTO document_texts (document_id, owner_id, content, indexed_at) VALUES (?, ?, ?, ?) " +
+            "ON DUPLICATE KEY UPDATE content = VALUES(content), indexed_at = VALUES(indexed_at)";
+    private static final String RETRY_LATER_SQL =
+            "INSERT INTO document_text_retries (document_id, attempts, retry_at) " +
+            "VALUES (?, 1, TIMESTAMPADD(SECOND, ?, ?)) " +
+            "ON DUPLICATE KEY UPDATE attempts = attempts + 1, " +
+            "retry_at = TIMESTAMPADD(SECOND, LEAST(?, ? * POW(2, attempts - 1)), ?)";
+    private static final String RETRY_NOW_SQL =
+            "INSERT INTO document_text_retries (document_id, attempts, retry_at) VALUES (?, 0, ?) " +
+            "ON DUPLICATE KEY UPDATE retry_at = LEAST(retry_at, VALUES(retry_at))";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final DocumentStorageService documentStorageService;
+
+    @Value("${search.content-index.batch-size:50}")
+    private int batchSize;
+
+    @Value("${search.content-index.max-chars:2000000}")
+    private int maxChars;
+
+    @Value("${search.content-index.max-pending:10000}")
+    private int maxPending;
+
+    @Value("${search.content-index.retry-interval-ms:60000}")
+    private long retryIntervalMs;
+
+    @Value("${search.content-index.retry-backoff-seconds:60}")
+    private long retryBackoffSeconds;
+
+    @Value("${search.content-index.retry-max-backoff-seconds:86400}")
+    private long retryMaxBackoffSeconds;
+
+    // Pending documents keyed by id; re-scheduling a document before it is drained replaces the older entry
+    private final Map<Long, PendingDocument> pending = new LinkedHashMap<>();
+    private volatile boolean backfillPending = true;
+    private volatile long lastBackfillAt;
+    // Extraction runs here; the shared scheduler only triggers it, so a slow batch never delays other jobs
+    private final ExecutorService worker = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "content-index");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    public void scheduleIndex(Long documentId, Long ownerId, Path filePath) {
+        synchronized (pending) {
+            boolean queued = pending.remove(documentId) != null;
+            if (queued || pending.size() < maxPending) {
+                pending.put(documentId, new PendingDocument(documentId, ownerId, filePath));
+                return;
+            }
+        }
+        // Queue full: the backfill picks the document up from the database instead
+        try {
+            jdbcTemplate.update(RETRY_NOW_SQL, documentId, Timestamp.valueOf(LocalDateTime.now()));
+            backfillPending = true;
+        } catch (Exception e) {
+            log.warn("Dropping text index update for document {}: {}", documentId, e.getMessage());
+        }
+    }
+
+    public int getPendingCount() {
+        synchronized (pending) {
+            return pending.size();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${search.content-index.flush-interval-ms:2000}")
+    public void flush() {
+        if (!running.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            worker.execute(() -> {
+                try {
+                    indexBatch();
+                } finally {
+                    running.set(false);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            running.set(false);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        worker.shutdown();
+    }
+
+    private void indexBatch() {
+        List<PendingDocument> batch = takeBatch();
+        // Retries come due without anyone scheduling them, so the backfill also runs on a slow cadence
+        if (batch.isEmpty() && (backfillPending || System.currentTimeMillis() - lastBackfillAt >= retryIntervalMs)) {
+            lastBackfillAt = System.currentTimeMillis();
+            batch = findUnindexed();
+            backfillPending = batch.size() == batchSize;
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        List<Object[]> rows = new ArrayList<>(batch.size());
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        for (PendingDocument document : batch) {
+            String content = extractText(document.filePath());
+            if (content == null) {
+                retryLater(document.documentId(), now);
+                continue;
+            }
+            rows.add(new Object[]{document.documentId(), document.ownerId(), content, now});
+        }
+        if (rows.isEmpty()) {
+            return;
+        }
+
+        try {
+            jdbcTemplate.batchUpdate(UPSERT_SQL, rows);
+            log.debug("Indexed text of {} documents", rows.size());
+        } catch (Exception e) {
+            // Documents deleted while queued violate the FK; write the rest one by one
+            for (Object[] row : rows) {
+                try {
+                    jdbcTemplate.update(UPSERT_SQL, row);
+                } catch (Exception rowError) {
+                    log.warn("Skipping text index for document {}: {}", row[0], rowError.getMessage());
+                }
+            }
+        }
+        try {
+            jdbcTemplate.batchUpdate("DELETE FROM document_text_retries WHERE document_id = ?",
+                    rows.stream().map(row -> new Object[]{row[0]}).toList());
+        } catch (Exception e) {
+            log.warn("Could not clear text index retries: {}", e.getMessage());
+        }
+    }
+
+    // Leaves any existing text in place and tries again after an exponentially growing delay
+    private void retryLater(Long documentId, Timestamp now) {
+        try {
+            jdbcTemplate.update(RETRY_LATER_SQL, documentId, retryBackoffSeconds, now,
+                    retryMaxBackoffSeconds, retryBackoffSeconds, now);
+        } catch (Exception e) {
+            log.warn("Could not schedule text index retry for document {}: {}", documentId, e.getMessage());
+        }
+    }
+
+    public List<ContentSearchResult> search(Long ownerId, String query, int limit) {
+        List<String> needles = new ArrayList<>();
+        String booleanQuery = toBooleanQuery(query, needles);
+        if (booleanQuery.isEmpty()) {
+            return List.of();
+        }
+
+        return jdbcTemplate.query(
+                "SELECT t.document_id, d.file_name, MATCH(t.content) AGAINST (? IN BOOLEAN MODE) AS score, " +
+                "SUBSTRING(t.content, GREATEST(LOCATE(?, t.content) - ?, 1), ?) AS snippet " +
+                "FROM document_texts t JOIN documents d ON d.id = t.document_id " +
+                "WHERE t.owner_id = ? AND MATCH(t.content) AGAINST (? IN BOOLEAN MODE) " +
+                "ORDER BY score DESC LIMIT ?",
+                (rs, rowNum) -> ContentSearchResult.builder()
+                        .documentId(rs.getLong("document_id"))
+                        .fileName(rs.getString("file_name"))
+                        .score(rs.getDouble("score"))
+                        .snippet(rs.getString("snippet"))
+                        .build(),
+                booleanQuery, needles.get(0), SNIPPET_LEAD, SNIPPET_LENGTH, ownerId, booleanQuery, limit);
+    }
+
+    private List<PendingDocument> takeBatch() {
+        List<PendingDocument> batch = new ArrayList<>();
+        synchronized (pending) {
+            Iterator<PendingDocument> iterator = pending.values().iterator();
+            while (iterator.hasNext() && batch.size() < batchSize) {
+                batch.add(iterator.next());
+                iterator.remove();
+            }
+        }
+        return batch;
+    }
+
+    // Due retries, then documents uploaded before the content index existed, one batch per idle flush
+    private List<PendingDocument> findUnindexed() {
+        Path uploadPath = documentStorageService.uploadRoot();
+        return jdbcTemplate.query(
+                "(SELECT d.id, d.owner_id, d.file_path FROM document_text_retries r " +
+                "JOIN documents d ON d.id = r.document_id WHERE r.retry_at <= ?) " +
+                "UNION ALL " +
+                "(SELECT d.id, d.owner_id, d.file_path FROM documents d " +
+                "WHERE NOT EXISTS (SELECT 1 FROM document_texts t WHERE t.document_id = d.id) " +
+                "AND NOT EXISTS (SELECT 1 FROM document_text_retries r WHERE r.document_id = d.id)) LIMIT ?",
+                (rs, rowNum) -> new PendingDocument(
+                        rs.getLong("id"),
+                        rs.getLong("owner_id"),
+                        uploadPath.resolve(rs.getString("file_path")).normalize()),
+                Timestamp.valueOf(LocalDateTime.now()), batchSize);
+    }
+
+    // Null when the file could not be read, so the caller retries instead of storing empty text
+    private String extractText(Path filePath) {
+        try {
+            if (!isPdf(filePath)) {
+                // Word documents are indexed once they are saved back as PDF
+                return "";
+            }
+            try (PDDocument document = Loader.loadPDF(filePath.toFile(), IOUtils.createTempFileOnlyStreamCache())) {
+                String text = new PDFTextStripper().getText(document);
+                return text.length() > maxChars ? text.substring(0, maxChars) : text;
+            }
+        } catch (IOException e) {
+            log.warn("Failed to extract text from {}: {}", filePath, e.getMessage());
+            return null;
+        }
+    }
+
+    private boolean isPdf(Path filePath) throws IOException {
+        try (InputStream in = Files.newInputStream(filePath)) {
+            byte[] header = in.readNBytes(5);
+            return header.length == 5 && "%PDF-".equals(new String(header, StandardCharsets.US_ASCII));
+        }
+    }
+
+    // Turns free text into a boolean-mode query where every term and "quoted phrase" is required
+    private String toBooleanQuery(String query, List<String> needles) {
+        if (query == null) {
+            return "";
+        }
+        StringBuilder booleanQuery = new StringBuilder();
+        Matcher matcher = QUERY_TOKEN.matcher(query);
+        while (matcher.find()) {
+            boolean phrase = matcher.group(1) != null;
+            String token = (phrase ? matcher.group(1) : matcher.group(2))
+                    .replaceAll(OPERATOR_CHARS, " ")
+                    .trim()
+                    .replaceAll("\\s+", " ");
+            if (phrase) {
+                appendClause(booleanQuery, needles, token, true);
+            } else {
+                for (String term : token.split(" ")) {
+                    appendClause(booleanQuery, needles, term, false);
+                }
+            }
+        }
+        return booleanQuery.toString();
+    }
+
+    private void appendClause(StringBuilder booleanQuery, List<String> needles, String token, boolean phrase) {
+        if (token.length() < MIN_TERM_LENGTH) {
+            return;
+        }
+        if (booleanQuery.length() > 0) {
+            booleanQuery.append(' ');
+        }
+        booleanQuery.append(phrase ? "+\"" + token + "\"" : "+" + token);
+        needles.add(token);
+    }
+
+    private record PendingDocument(Long documentId, Long ownerId, Path filePath) {
+    }
+}
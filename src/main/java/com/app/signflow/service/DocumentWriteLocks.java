@@ -0,0 +1,41 @@
+package com.app.signflow.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Striped lock table serializing read-transform-write cycles per document. Unrelated documents only
+ * contend when they hash to the same stripe.
+ */
+@Component
+public class DocumentWriteLocks {
+
+    private final ReentrantLock[] stripes;
+
+    public DocumentWriteLocks(@Value("${documents.write-lock-stripes:256}") int stripeCount) {
+        int size = Integer.highestOneBit(Math.max(1, stripeCount - 1)) << 1;
+        stripes = new ReentrantLock[size];
+        for (int i = 0; i < size; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+    }
+
+    public <T> T withLock(Long documentId, Supplier<T> action) {
+        ReentrantLock lock = stripeFor(documentId);
+        lock.lock();
+        try {
+            return action.get();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private ReentrantLock stripeFor(Long documentId) {
+        int hash = Long.hashCode(documentId);
+        hash ^= (hash >>> 16);
+        return stripes[hash & (stripes.length - 1)];
+    }
+}
@@ -0,0 +1,143 @@
+package com.app.signflow.service;
+
+import com.app.signflow.model.dto.DraftOperation;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.IntFunction;
+
+/**
+ * The pages of a draft while a patch is applied to it. Slot 0 holds the styles, slot n page n. Stored pages
+ * are loaded only when an operation reads them, and {@link #writes()} lists just the pages that changed or
+ * moved, so a patch touches as few rows as possible.
+ */
+final class DraftPages {
+
+    // Where a page was stored before the patch (null if new) and its content once read
+    private static final class Slot {
+        private final Integer storedAt;
+        private String content;
+        private boolean changed;
+
+        private Slot(Integer storedAt, String content, boolean changed) {
+            this.storedAt = storedAt;
+            this.content = content;
+            this.changed = changed;
+        }
+    }
+
+    private final List<Slot> slots;
+    private final int storedPageCount;
+    private final IntFunction<String> loader;
+
+    DraftPages(int storedPageCount, IntFunction<String> loader) {
+        this.storedPageCount = storedPageCount;
+        this.loader = loader;
+        this.slots = new ArrayList<>(storedPageCount + 1);
+        for (int page = 0; page <= storedPageCount; page++) {
+            slots.add(new Slot(page, null, false));
+        }
+    }
+
+    int pageCount() {
+        return slots.size() - 1;
+    }
+
+    // Pages from this number on no longer exist after the patch
+    boolean truncated() {
+        return pageCount() < storedPageCount;
+    }
+
+    void apply(DraftOperation operation) {
+        if (operation == null || operation.getOp() == null) {
+            throw badRequest("Draft operation type is required");
+        }
+        int pageCount = pageCount();
+        switch (operation.getOp()) {
+            case REPLACE_STYLES -> replace(slots.get(0), content(operation));
+            case REPLACE_PAGE -> replace(slots.get(page(operation, pageCount)), content(operation) + "</div>");
+            case INSERT_PAGE -> slots.add(page(operation, pageCount + 1), new Slot(null, content(operation) + "</div>", true));
+            case DELETE_PAGE -> slots.remove(page(operation, pageCount));
+            case REPLACE_ELEMENT, INSERT_ELEMENT, DELETE_ELEMENT -> {
+                Slot slot = slots.get(page(operation, pageCount));
+                String page = read(slot);
+                List<PageElements.Span> elements = PageElements.find(page);
+                boolean insert = operation.getOp() == DraftOperation.Type.INSERT_ELEMENT;
+                int element = element(operation, insert ? elements.size() + 1 : elements.size());
+                if (element > elements.size()) {
+                    // appended inside the page div, before its closing tag
+                    int close = page.lastIndexOf("</div>");
+                    int at = close < 0 ? page.length() : close;
+                    replace(slot, page.substring(0, at) + content(operation) + page.substring(at));
+                    return;
+                }
+                PageElements.Span span = elements.get(element - 1);
+                String replacement = switch (operation.getOp()) {
+                    case REPLACE_ELEMENT -> content(operation);
+                    case INSERT_ELEMENT -> content(operation) + page.substring(span.start(), span.end());
+                    default -> "";
+                };
+                replace(slot, page.substring(0, span.start()) + replacement + page.substring(span.end()));
+            }
+        }
+    }
+
+    // Every page that changed or moved, by its new number
+    Map<Integer, String> writes() {
+        Map<Integer, String> writes = new TreeMap<>();
+        for (int page = 0; page < slots.size(); page++) {
+            Slot slot = slots.get(page);
+            if (slot.changed || slot.storedAt == null || slot.storedAt != page) {
+                writes.put(page, read(slot));
+            }
+        }
+        return writes;
+    }
+
+    private String read(Slot slot) {
+        if (slot.content == null) {
+            slot.content = loader.apply(slot.storedAt);
+        }
+        return slot.content;
+    }
+
+    private static void replace(Slot slot, String content) {
+        slot.content = content;
+        slot.changed = true;
+    }
+
+    private static int page(DraftOperation operation, int max) {
+        Integer page = operation.getPage();
+        if (page == null || page < 1 || page > max) {
+            throw badRequest(operation.getOp() + " needs a page between 1 and " + max);
+        }
+        return page;
+    }
+
+    private static int element(DraftOperation operation, int max) {
+        Integer element = operation.getElement();
+        if (element == null || element < 1 || element > max) {
+            throw badRequest(operation.getOp() + " needs an element between 1 and " + max);
+        }
+        return element;
+    }
+
+    private static String content(DraftOperation operation) {
+        String html = operation.getHtml();
+        if (html == null) {
+            throw badRequest(operation.getOp() + " needs html");
+        }
+        if (html.contains(HtmlPageStreamer.PAGE_OPEN)) {
+            throw badRequest("Draft content must not contain page divs, use page operations instead");
+        }
+        return html;
+    }
+
+    private static ResponseStatusException badRequest(String message) {
+        return new ResponseStatusException(HttpStatus.BAD_REQUEST, message);
+    }
+}
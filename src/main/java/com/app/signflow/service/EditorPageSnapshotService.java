@@ -0,0 +1,39 @@
+package com.app.signflow.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Remembers the page hashes of the editor HTML that matches the current PDF of a document, one row per
+ * document. A snapshot is only valid for the document version it was taken at.
+ */
+@Service
+@RequiredArgsConstructor
+public class EditorPageSnapshotService {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public void record(Long documentId, Long version, List<String> pageHashes) {
+        jdbcTemplate.update(
+                "INSERT INTO document_html_pages (document_id, version, page_hashes) VALUES (?, ?, ?) " +
+                        "ON DUPLICATE KEY UPDATE version = VALUES(version), page_hashes = VALUES(page_hashes)",
+                documentId, version, String.join(",", pageHashes));
+    }
+
+    public Optional<List<String>> find(Long documentId, Long version) {
+        return jdbcTemplate.query(
+                        "SELECT page_hashes FROM document_html_pages WHERE document_id = ? AND version = ?",
+                        (rs, rowNum) -> List.of(rs.getString(1).split(",")),
+                        documentId, version)
+                .stream()
+                .findFirst();
+    }
+
+    public void forget(Long documentId) {
+        jdbcTemplate.update("DELETE FROM document_html_pages WHERE document_id = ?", documentId);
+    }
+}
@@ -0,0 +1,301 @@
+package com.app.signflow.service;
+
+import com.app.signflow.config.PipelineMetrics;
+import com.app.signflow.config.UrlSigner;
+import com.app.signflow.exception.TooManyRequestsException;
+import com.app.signflow.model.entity.Document;
+import com.app.signflow.model.entity.EmailOutbox;
+import com.app.signflow.model.entity.EmailOutbox.EmailKind;
+import com.app.signflow.model.entity.EmailOutbox.EmailStatus;
+import com.app.signflow.repo.EmailOutboxRepository;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import jakarta.mail.internet.MimeMessage;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Persistent outbox for outgoing mail. Requests only insert a row; the scheduled worker claims due rows with
+ * SKIP LOCKED (so several nodes can run it), sends them in batches over one SMTP connection and reschedules
+ * failures with exponential backoff.
+ */
+@Service
+@Slf4j
+public class EmailOutboxService {
+
+    private final EmailOutboxRepository emailOutboxRepository;
+    private final EmailService emailService;
+    private final AuditService auditService;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final UrlSigner urlSigner;
+    private final DocumentStorageService documentStorageService;
+    private final PipelineMetrics metrics;
+    // Blocking SMTP batches run here; the shared scheduler only triggers them
+    private final ExecutorService worker = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "email-outbox");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    @Value("${mail.outbox.batch-size:20}")
+    private int batchSize;
+
+    @Value("${mail.outbox.max-attempts:8}")
+    private int maxAttempts;
+
+    @Value("${mail.outbox.initial-backoff-ms:30000}")
+    private long initialBackoffMs;
+
+    @Value("${mail.outbox.max-backoff-ms:3600000}")
+    private long maxBackoffMs;
+
+    @Value("${mail.outbox.claim-timeout-ms:600000}")
+    private long claimTimeoutMs;
+
+    @Value("${mail.attachment-max-bytes:5242880}")
+    private long maxAttachmentBytes;
+
+    @Value("${links.download-ttl-hours:72}")
+    private long downloadLinkTtlHours;
+
+    public EmailOutboxService(EmailOutboxRepository emailOutboxRepository, EmailService emailService,
+                              AuditService auditService, JdbcTemplate jdbcTemplate,
+                              PlatformTransactionManager transactionManager, UrlSigner urlSigner,
+                              DocumentStorageService documentStorageService, PipelineMetrics metrics) {
+        this.emailOutboxRepository = emailOutboxRepository;
+        this.emailService = emailService;
+        this.auditService = auditService;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.urlSigner = urlSigner;
+        this.documentStorageService = documentStorageService;
+        this.metrics = metrics;
+    }
+
+    // Files above the attachment limit are sent as an expiring signed link instead
+    @Transactional
+    public EmailOutbox enqueueDocument(Document document, String recipient, Long userId) {
+        EmailOutbox.EmailOutboxBuilder email = EmailOutbox.builder()
+                .kind(EmailKind.DOCUMENT)
+                .recipient(recipient)
+                .subject("SignFlow - Document: " + document.getFileName())
+                .documentId(document.getId())
+                .requestedBy(userId);
+
+        if (fileSize(document) > maxAttachmentBytes) {
+            Duration ttl = Duration.ofHours(downloadLinkTtlHours);
+            email.body(emailService.documentLinkBody(document.getFileName(), urlSigner.downloadUrl(document, ttl), ttl));
+        } else {
+            email.body(emailService.documentBody(document.getFileName()))
+                    .attachmentPath(document.getFilePath())
+                    .attachmentName(document.getFileName());
+        }
+        EmailOutbox saved = emailOutboxRepository.save(email.build());
+
+        // The audit entry is only written once the outbox row is committed
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                auditService.record(document.getId(), "EMAIL", userId);
+            }
+        });
+        return saved;
+    }
+
+    @Transactional
+    public EmailOutbox enqueuePasswordReset(String recipient, String resetToken) {
+        return emailOutboxRepository.save(EmailOutbox.builder()
+                .kind(EmailKind.PASSWORD_RESET)
+                .recipient(recipient)
+                .subject("SignFlow - Password Reset")
+                .body(emailService.passwordResetBody(resetToken))
+                .build());
+    }
+
+    // One batched insert for the whole signer set; joins the caller's transaction
+    @Transactional
+    public void enqueueAll(List<EmailOutbox> emails) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Object[]> rows = new ArrayList<>(emails.size());
+        for (EmailOutbox email : emails) {
+            rows.add(new Object[]{email.getKind().name(), email.getRecipient(), email.getSubject(), email.getBody(),
+                    email.getDocumentId(), email.getRequestedBy(), now, now});
+        }
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO email_outbox (kind, recipient, subject, body, document_id, requested_by, status, " +
+                "attempts, next_attempt_at, created_at) VALUES (?, ?, ?, ?, ?, ?, 'PENDING', 0, ?, ?)",
+                rows);
+    }
+
+    @Scheduled(fixedDelayString = "${mail.outbox.poll-interval-ms:1000}")
+    public void deliver() {
+        if (!running.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            worker.execute(() -> {
+                try {
+                    deliverDue();
+                } finally {
+                    running.set(false);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            running.set(false);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        worker.shutdown();
+    }
+
+    private void deliverDue() {
+        releaseStaleClaims();
+        List<EmailOutbox> batch;
+        do {
+            batch = claimBatch();
+            if (!batch.isEmpty()) {
+                send(batch);
+            }
+        } while (batch.size() == batchSize);
+    }
+
+    private List<EmailOutbox> claimBatch() {
+        List<Long> ids = transactionTemplate.execute(status -> {
+            Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+            List<Long> claimed = jdbcTemplate.queryForList(
+                    "SELECT id FROM email_outbox WHERE status = 'PENDING' AND next_attempt_at <= ? " +
+                    "ORDER BY next_attempt_at LIMIT ? FOR UPDATE SKIP LOCKED",
+                    Long.class, now, batchSize);
+            if (!claimed.isEmpty()) {
+                List<Object[]> rows = new ArrayList<>(claimed.size());
+                for (Long id : claimed) {
+                    rows.add(new Object[]{now, id});
+                }
+                jdbcTemplate.batchUpdate(
+                        "UPDATE email_outbox SET status = 'SENDING', claimed_at = ? WHERE id = ?", rows);
+            }
+            return claimed;
+        });
+        return ids == null || ids.isEmpty() ? Collections.emptyList() : emailOutboxRepository.findAllById(ids);
+    }
+
+    private void send(List<EmailOutbox> batch) {
+        Map<MimeMessage, EmailOutbox> messages = new IdentityHashMap<>();
+        for (EmailOutbox email : batch) {
+            try {
+                messages.put(emailService.buildMessage(email), email);
+            } catch (Exception e) {
+                failed(email, e, false);
+            }
+        }
+        if (messages.isEmpty()) {
+            return;
+        }
+
+        Map<Object, Exception> failures = Collections.emptyMap();
+        Timer.Sample sample = metrics.start();
+        try {
+            emailService.sendBatch(messages.keySet().toArray(new MimeMessage[0]));
+            metrics.emailSend(sample, "sent", messages.size());
+        } catch (MailSendException e) {
+            failures = e.getFailedMessages();
+            metrics.emailSend(sample, failures.isEmpty() ? "failed" : "partial", messages.size());
+            if (failures.isEmpty()) {
+                messages.values().forEach(email -> failed(email, e, true));
+                return;
+            }
+        } catch (MailException | TooManyRequestsException e) {
+            // Connection or authentication failure or no free SMTP slot, nothing was sent
+            metrics.emailSend(sample, "failed", messages.size());
+            messages.values().forEach(email -> failed(email, e, true));
+            return;
+        }
+
+        for (Map.Entry<MimeMessage, EmailOutbox> entry : messages.entrySet()) {
+            Exception failure = failures.get(entry.getKey());
+            if (failure != null) {
+                failed(entry.getValue(), failure, true);
+            } else {
+                sent(entry.getValue());
+            }
+        }
+    }
+
+    private void sent(EmailOutbox email) {
+        email.setStatus(EmailStatus.SENT);
+        email.setAttempts(email.getAttempts() + 1);
+        email.setSentAt(LocalDateTime.now());
+        email.setClaimedAt(null);
+        email.setLastError(null);
+        emailOutboxRepository.save(email);
+        log.info("Email {} ({}) sent to {}", email.getId(), email.getKind(), email.getRecipient());
+    }
+
+    private void failed(EmailOutbox email, Exception error, boolean retryable) {
+        int attempts = email.getAttempts() + 1;
+        email.setAttempts(attempts);
+        email.setClaimedAt(null);
+        String message = error.getMessage() != null ? error.getMessage() : error.getClass().getSimpleName();
+        email.setLastError(message.length() > 1000 ? message.substring(0, 1000) : message);
+
+        if (!retryable || attempts >= maxAttempts) {
+            email.setStatus(EmailStatus.FAILED);
+            log.error("Giving up on email {} to {} after {} attempts: {}", email.getId(), email.getRecipient(),
+                    attempts, message);
+        } else {
+            long backoff = Math.min(maxBackoffMs, initialBackoffMs << Math.min(attempts - 1, 20));
+            email.setStatus(EmailStatus.PENDING);
+            email.setNextAttemptAt(LocalDateTime.now().plusNanos(backoff * 1_000_000));
+            log.warn("Email {} to {} failed (attempt {}), retrying in {} ms: {}", email.getId(),
+                    email.getRecipient(), attempts, backoff, message);
+        }
+        emailOutboxRepository.save(email);
+    }
+
+    private long fileSize(Document document) {
+        try {
+            return Files.size(documentStorageService.resolve(document));
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to read document", e);
+        }
+    }
+
+    // Rows claimed by a node that died mid-send go back to the queue
+    private void releaseStaleClaims() {
+        int released = jdbcTemplate.update(
+                "UPDATE email_outbox SET status = 'PENDING' WHERE status = 'SENDING' AND claimed_at < ?",
+                Timestamp.valueOf(LocalDateTime.now().minusNanos(claimTimeoutMs * 1_000_000)));
+        if (released > 0) {
+            log.warn("Released {} stale email claims", released);
+        }
+    }
+}
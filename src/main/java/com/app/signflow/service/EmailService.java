@@ -1,60 +1,92 @@
 package com.app.signflow.service;
 
+import com.app.signflow.config.Bulkhead;
+import com.app.signflow.config.Bulkheads;
+import com.app.signflow.model.entity.EmailOutbox;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.mail.SimpleMailMessage;
+import org.springframework.core.io.FileSystemResource;
 import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.mail.javamail.MimeMessageHelper;
 import org.springframework.stereotype.Service;
 
+import jakarta.mail.MessagingException;
 import jakarta.mail.internet.MimeMessage;
 
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class EmailService {
 
     private final JavaMailSender mailSender;
+    private final DocumentStorageService documentStorageService;
+    private final Bulkheads bulkheads;
 
     @Value("${spring.mail.username:noreply@signflow.com}")
     private String fromEmail;
 
-    public void sendPasswordResetEmail(String toEmail, String resetToken) {
-        try {
-            SimpleMailMessage message = new SimpleMailMessage();
-            message.setFrom(fromEmail);
-            message.setTo(toEmail);
-            message.setSubject("SignFlow - Password Reset");
-            message.setText("Click the link below to reset your password:\n\n" +
-                    "http://localhost:4200/auth/reset-password?token=" + resetToken + "\n\n" +
-                    "This link will expire in 24 hours.");
-
-            mailSender.send(message);
-            log.info("Password reset email sent to: {}", toEmail);
-        } catch (Exception e) {
-            log.error("Failed to send password reset email", e);
-            throw new RuntimeException("Failed to send email");
-        }
+    @Value("${app.frontend-url:http://localhost:4200}")
+    private String frontendUrl;
+
+    public String passwordResetBody(String resetToken) {
+        return "Click the link below to reset your password:\n\n" +
+                frontendUrl + "/auth/reset-password?token=" + resetToken + "\n\n" +
+                "This link will expire in 24 hours.";
     }
 
-    public void sendDocumentEmail(String toEmail, String documentName, byte[] pdfData) {
-        try {
-            MimeMessage message = mailSender.createMimeMessage();
-            MimeMessageHelper helper = new MimeMessageHelper(message, true);
+    public String documentBody(String documentName) {
+        return "Please find attached the document: " + documentName;
+    }
 
-            helper.setFrom(fromEmail);
-            helper.setTo(toEmail);
-            helper.setSubject("SignFlow - Document: " + documentName);
-            helper.setText("Please find attached the document: " + documentName);
+    public String documentLinkBody(String documentName, String downloadUrl, Duration validFor) {
+        return "The document " + documentName + " has been shared with you. Download it here:\n\n" +
+                downloadUrl + "\n\n" +
+                "This link will expire in " + validFor.toHours() + " hours.";
+    }
+
+    public String signingInvitationBody(String documentName, String signingUrl, Duration validFor) {
+        return "You have been asked to sign the document " + documentName + ".\n\n" +
+                "Review and sign it here:\n\n" +
+                signingUrl + "\n\n" +
+                "This link will expire in " + validFor.toDays() + " days.";
+    }
 
-            helper.addAttachment(documentName, () -> new java.io.ByteArrayInputStream(pdfData));
+    public String signingUrl(String signerToken) {
+        return frontendUrl + "/sign?token=" + signerToken;
+    }
+
+    // Attachments are streamed from storage when the message is written to the SMTP connection
+    public MimeMessage buildMessage(EmailOutbox email) throws MessagingException {
+        MimeMessage message = mailSender.createMimeMessage();
+        boolean multipart = email.getAttachmentPath() != null;
+        MimeMessageHelper helper = new MimeMessageHelper(message, multipart);
+
+        helper.setFrom(fromEmail);
+        helper.setTo(email.getRecipient());
+        helper.setSubject(email.getSubject());
+        helper.setText(email.getBody());
+
+        if (multipart) {
+            Path attachment = documentStorageService.resolve(email.getAttachmentPath());
+            if (!Files.exists(attachment)) {
+                throw new MessagingException("Attachment no longer exists: " + email.getAttachmentPath());
+            }
+            helper.addAttachment(email.getAttachmentName(), new FileSystemResource(attachment));
+        }
+        return message;
+    }
 
-            mailSender.send(message);
-            log.info("Document email sent to: {}", toEmail);
-        } catch (Exception e) {
-            log.error("Failed to send document email", e);
-            throw new RuntimeException("Failed to send email");
+    // One SMTP connection is opened for the whole batch
+    public void sendBatch(MimeMessage... messages) {
+        Bulkhead.Permit permit = bulkheads.smtp().acquire();
+        try (permit) {
+            mailSender.send(messages);
         }
+        log.debug("Sent {} emails", messages.length);
     }
 }
@@ -0,0 +1,308 @@
+package com.app.signflow.service;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Single-pass rewrite of LibreOffice HTML output into the editor format: the style blocks of the head, then
+ * the body wrapped in {@code <div class="page">} elements that are split at every div or p carrying
+ * page-break-before:always. Markup is tokenised as it is read and written out straight away; only one tag of
+ * at most {@link #MAX_TAG_LENGTH} characters is held at a time, so memory does not depend on document size.
+ *
+ * <p>Content outside head and body is dropped. Without a body tag, content starts at the first text or
+ * element that cannot belong to the head, as in an HTML parser's implied body.
+ */
+public class HtmlPageStreamer {
+
+    static final int MAX_TAG_LENGTH = 4096;
+
+    static final String PAGE_OPEN = "<div class=\"page\">";
+    private static final Pattern PAGE_BREAK = Pattern.compile("page-break-before\\s*:\\s*always", Pattern.CASE_INSENSITIVE);
+
+    private enum Mode { PROLOGUE, HEAD, STYLE, BODY, EPILOGUE }
+
+    private final Reader in;
+    private final Writer out;
+    private final char[] buffer = new char[8192];
+    private int position;
+    private int limit;
+    private int nameStart;
+    private final StringBuilder tag = new StringBuilder();
+    private Mode mode = Mode.PROLOGUE;
+    // Leading body whitespace is held back until it is known whether the body is blank
+    private StringBuilder leadingWhitespace = new StringBuilder();
+    private boolean wrapped;
+
+    private HtmlPageStreamer(Reader in, Writer out) {
+        this.in = in;
+        this.out = out;
+    }
+
+    public static void transform(Reader in, Writer out) throws IOException {
+        new HtmlPageStreamer(in, out).run();
+    }
+
+    // Styles before the first page div, then the content of each page div up to the next one; PageHashingWriter
+    // hashes the same segments
+    static List<String> splitPages(String html) {
+        List<String> segments = new ArrayList<>();
+        int start = 0;
+        int marker;
+        while ((marker = html.indexOf(PAGE_OPEN, start)) >= 0) {
+            segments.add(html.substring(start, marker));
+            start = marker + PAGE_OPEN.length();
+        }
+        segments.add(html.substring(start));
+        return segments;
+    }
+
+    private void run() throws IOException {
+        int c;
+        while ((c = read()) != -1) {
+            if (c == '<') {
+                markup();
+            } else {
+                text((char) c);
+            }
+        }
+        if (wrapped) {
+            out.write("</div>");
+        }
+        out.flush();
+    }
+
+    private void text(char c) throws IOException {
+        switch (mode) {
+            case STYLE -> out.write(c);
+            case BODY -> bodyText(c);
+            case PROLOGUE -> {
+                if (!Character.isWhitespace(c)) {
+                    mode = Mode.BODY;
+                    bodyText(c);
+                }
+            }
+            default -> {
+                // head text (title) and anything after the body is dropped
+            }
+        }
+    }
+
+    private void markup() throws IOException {
+        // Inside a style block only its end tag is markup
+        if (mode == Mode.STYLE && peek() != '/') {
+            out.write('<');
+            return;
+        }
+        tag.setLength(0);
+        tag.append('<');
+        int c;
+        while ((c = read()) != -1) {
+            tag.append((char) c);
+            if (c == '>' || tag.length() == MAX_TAG_LENGTH) {
+                break;
+            }
+            if (tag.length() == 4 && tag.charAt(1) == '!' && tag.charAt(2) == '-' && tag.charAt(3) == '-') {
+                comment();
+                return;
+            }
+        }
+        boolean complete = c == '>';
+        boolean end = tag.length() > 1 && tag.charAt(1) == '/';
+        nameStart = end ? 2 : 1;
+
+        switch (mode) {
+            case STYLE -> {
+                passThrough(complete);
+                if (end && named("style")) {
+                    mode = Mode.HEAD;
+                }
+            }
+            case HEAD -> headMarkup(end, complete);
+            case PROLOGUE -> {
+                if (!end && isHeadElement()) {
+                    // a head element before any head tag opens the head implicitly
+                    mode = Mode.HEAD;
+                    headMarkup(false, complete);
+                } else if (end || isDeclaration() || named("html") || named("head")
+                        || named("body")) {
+                    skip(complete);
+                    if (!end && named("head")) {
+                        mode = Mode.HEAD;
+                    } else if (!end && named("body")) {
+                        mode = Mode.BODY;
+                    }
+                } else {
+                    mode = Mode.BODY;
+                    bodyMarkup(complete);
+                }
+            }
+            case BODY -> {
+                if (end && named("body")) {
+                    skip(complete);
+                    mode = Mode.EPILOGUE;
+                } else {
+                    bodyMarkup(complete);
+                }
+            }
+            case EPILOGUE -> skip(complete);
+        }
+    }
+
+    private void headMarkup(boolean end, boolean complete) throws IOException {
+        if (!end && named("style")) {
+            mode = Mode.STYLE;
+            passThrough(complete);
+            return;
+        }
+        skip(complete);
+        if (!end && named("body")) {
+            mode = Mode.BODY;
+        } else if (end && named("head")) {
+            mode = Mode.PROLOGUE;
+        }
+    }
+
+    // Comments are copied in the body and dropped elsewhere
+    private void comment() throws IOException {
+        boolean keep = mode == Mode.BODY;
+        if (keep) {
+            startBody(false);
+            out.append(tag);
+        }
+        int dashes = 0;
+        int c;
+        while ((c = read()) != -1) {
+            if (keep) {
+                out.write(c);
+            }
+            if (c == '>' && dashes >= 2) {
+                return;
+            }
+            dashes = c == '-' ? dashes + 1 : 0;
+        }
+    }
+
+    private void bodyText(char c) throws IOException {
+        if (leadingWhitespace != null && Character.isWhitespace(c)) {
+            leadingWhitespace.append(c);
+            return;
+        }
+        startBody(false);
+        out.write(c);
+    }
+
+    private void bodyMarkup(boolean complete) throws IOException {
+        startBody(complete && PAGE_OPEN.contentEquals(tag));
+        if (complete) {
+            writePageBreak();
+        } else {
+            passThrough(false);
+        }
+    }
+
+    // Mirrors <(div|p)([^>]*?)page-break-before\s*:\s*always([^>]*?)> -> </div><div class="page"><$1$2page-break-before:always$3>
+    private void writePageBreak() throws IOException {
+        int nameLength = nameStart == 2 ? 0 : startsWith("div") ? 3 : startsWith("p") ? 1 : 0;
+        if (nameLength > 0) {
+            Matcher matcher = PAGE_BREAK.matcher(tag).region(1 + nameLength, tag.length() - 1);
+            if (matcher.find()) {
+                out.write("</div>");
+                out.write(PAGE_OPEN);
+                out.append(tag, 0, matcher.start());
+                out.write("page-break-before:always");
+                out.append(tag, matcher.end(), tag.length());
+                return;
+            }
+        }
+        out.append(tag);
+    }
+
+    // Opens the first page wrapper unless the body already starts with one
+    private void startBody(boolean alreadyPaged) throws IOException {
+        if (leadingWhitespace == null) {
+            return;
+        }
+        if (!alreadyPaged) {
+            out.write(PAGE_OPEN);
+            wrapped = true;
+        }
+        out.append(leadingWhitespace);
+        leadingWhitespace = null;
+    }
+
+    // Writes the buffered tag and, if it was cut at MAX_TAG_LENGTH, streams the rest of it
+    private void passThrough(boolean complete) throws IOException {
+        out.append(tag);
+        if (!complete) {
+            int c;
+            while ((c = read()) != -1) {
+                out.write(c);
+                if (c == '>') {
+                    return;
+                }
+            }
+        }
+    }
+
+    private void skip(boolean complete) throws IOException {
+        if (!complete) {
+            int c;
+            while ((c = read()) != -1 && c != '>') {
+                // discard the rest of an oversized tag
+            }
+        }
+    }
+
+    // Case-insensitive match of the whole tag name
+    private boolean named(String name) {
+        int after = nameStart + name.length();
+        return startsWith(name) && (after == tag.length() || !Character.isLetterOrDigit(tag.charAt(after)));
+    }
+
+    private boolean startsWith(String prefix) {
+        if (tag.length() < nameStart + prefix.length()) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length(); i++) {
+            if (Character.toLowerCase(tag.charAt(nameStart + i)) != prefix.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // <!DOCTYPE ...> or <?xml ...?>
+    private boolean isDeclaration() {
+        return tag.length() > 1 && (tag.charAt(1) == '!' || tag.charAt(1) == '?');
+    }
+
+    private boolean isHeadElement() {
+        return named("meta") || named("title") || named("link") || named("base") || named("style")
+                || named("script");
+    }
+
+    private int read() throws IOException {
+        if (position == limit) {
+            limit = in.read(buffer, 0, buffer.length);
+            position = 0;
+            if (limit <= 0) {
+                limit = 0;
+                return -1;
+            }
+        }
+        return buffer[position++];
+    }
+
+    private int peek() throws IOException {
+        int c = read();
+        if (c != -1) {
+            position--;
+        }
+        return c;
+    }
+}
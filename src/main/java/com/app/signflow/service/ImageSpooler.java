@@ -0,0 +1,188 @@
+package com.app.signflow.service;
+
+import com.app.signflow.model.dto.SpooledImage;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.server.ResponseStatusException;
+import tools.jackson.core.Base64Variants;
+import tools.jackson.core.JsonParser;
+import tools.jackson.core.JsonToken;
+import tools.jackson.databind.DeserializationContext;
+import tools.jackson.databind.ValueDeserializer;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Base64;
+
+/**
+ * Turns request images into {@link SpooledImage}s: kept on the heap up to {@link #MEMORY_THRESHOLD} and
+ * spooled to a temp file beyond it. Temp files are also deleted when the request that created them
+ * completes, in case parsing fails before anyone owns the image.
+ */
+public final class ImageSpooler {
+
+    static final int MEMORY_THRESHOLD = 256 * 1024;
+
+    private ImageSpooler() {
+    }
+
+    public static SpooledImage read(InputStream in) throws IOException {
+        Spool spool = new Spool();
+        try (spool) {
+            in.transferTo(spool);
+        } catch (IOException | RuntimeException e) {
+            spool.discard();
+            throw e;
+        }
+        return spool.toImage();
+    }
+
+    /**
+     * Takes over a multipart part. Large parts the container already wrote to disk are moved, not copied.
+     */
+    public static SpooledImage fromPart(MultipartFile part) {
+        try {
+            if (part.getSize() <= MEMORY_THRESHOLD) {
+                return SpooledImage.inMemory(part.getBytes());
+            }
+            Path file = createTempFile();
+            part.transferTo(file.toFile());
+            return SpooledImage.inFile(file, Files.size(file));
+        } catch (IOException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Could not read image part " + part.getName());
+        }
+    }
+
+    /**
+     * Decodes a base64 data URL, or bare base64, without copying the text first. Null stays null; text that
+     * is not valid base64 is rejected with 400.
+     */
+    public static SpooledImage fromDataUrl(String dataUrl) {
+        if (dataUrl == null) {
+            return null;
+        }
+        InputStream text = new InputStream() {
+            private int position = dataUrl.indexOf(',') + 1;
+
+            @Override
+            public int read() {
+                return position < dataUrl.length() ? dataUrl.charAt(position++) & 0xFF : -1;
+            }
+        };
+        try {
+            return read(Base64.getDecoder().wrap(text));
+        } catch (IOException e) {
+            // the decoder reports illegal characters as IOException
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Image is not valid base64");
+        }
+    }
+
+    private static Path createTempFile() throws IOException {
+        Path file = Files.createTempFile("signflow-image-", ".bin");
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes != null) {
+            attributes.registerDestructionCallback("spooledImage:" + file, () -> {
+                try {
+                    Files.deleteIfExists(file);
+                } catch (IOException e) {
+                    // nothing left to do
+                }
+            }, RequestAttributes.SCOPE_REQUEST);
+        }
+        return file;
+    }
+
+    // Collects bytes on the heap and moves them to a temp file once they pass the threshold
+    private static final class Spool extends OutputStream {
+
+        private byte[] buffer = new byte[8192];
+        private int count;
+        private Path file;
+        private OutputStream fileOut;
+        private long size;
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] data, int offset, int length) throws IOException {
+            size += length;
+            if (fileOut == null && count + length > MEMORY_THRESHOLD) {
+                file = createTempFile();
+                fileOut = new BufferedOutputStream(Files.newOutputStream(file), 64 * 1024);
+                fileOut.write(buffer, 0, count);
+                buffer = null;
+            }
+            if (fileOut != null) {
+                fileOut.write(data, offset, length);
+                return;
+            }
+            if (count + length > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.min(MEMORY_THRESHOLD, Math.max(buffer.length * 2, count + length)));
+            }
+            System.arraycopy(data, offset, buffer, count, length);
+            count += length;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (fileOut != null) {
+                fileOut.close();
+            }
+        }
+
+        SpooledImage toImage() {
+            if (file != null) {
+                return SpooledImage.inFile(file, size);
+            }
+            return SpooledImage.inMemory(count == buffer.length ? buffer : Arrays.copyOf(buffer, count));
+        }
+
+        void discard() {
+            try {
+                close();
+                if (file != null) {
+                    Files.deleteIfExists(file);
+                }
+            } catch (IOException e) {
+                // best effort, the request callback retries
+            }
+        }
+    }
+
+    /**
+     * Decodes a plain base64 string straight from the parser's input buffer into a spool, so the encoded
+     * text is never materialised.
+     */
+    public static class Base64Deserializer extends ValueDeserializer<SpooledImage> {
+
+        @Override
+        public SpooledImage deserialize(JsonParser parser, DeserializationContext context) {
+            if (!parser.hasToken(JsonToken.VALUE_STRING)) {
+                return (SpooledImage) context.handleUnexpectedToken(SpooledImage.class, parser);
+            }
+            Spool spool = new Spool();
+            try {
+                parser.readBinaryValue(Base64Variants.MIME_NO_LINEFEEDS, spool);
+                spool.close();
+            } catch (IOException e) {
+                spool.discard();
+                throw new UncheckedIOException(e);
+            } catch (RuntimeException e) {
+                spool.discard();
+                throw e;
+            }
+            return spool.toImage();
+        }
+    }
+}
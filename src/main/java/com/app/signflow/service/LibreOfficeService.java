@@ -1,67 +1,120 @@
 package com.app.signflow.service;
 
+import com.app.signflow.config.Bulkhead;
+import com.app.signflow.config.Bulkheads;
+import com.app.signflow.config.ConversionEvent;
+import com.app.signflow.config.PipelineMetrics;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
 
 @Service
+@RequiredArgsConstructor
 @Slf4j
 public class LibreOfficeService {
 
+    private final Bulkheads bulkheads;
+    private final PipelineMetrics metrics;
+
     @Value("${libreoffice.soffice-path:C:\\Program Files\\LibreOffice\\program\\soffice.exe}")
     private String sofficePath;
 
-    public Path convertToHtml(Path inputPdf, Path outputDir) throws IOException, InterruptedException {
-        return runConvert(inputPdf, outputDir, "html");
+    // One user profile per bulkhead permit, under this directory
+    @Value("${libreoffice.profile-dir:${java.io.tmpdir}/signflow-libreoffice}")
+    private String profileDir;
+
+    // A hung soffice is killed after this, so it cannot hold a permit forever
+    @Value("${libreoffice.timeout-seconds:300}")
+    private long timeoutSeconds;
+
+    private BlockingQueue<Integer> profileSlots;
+
+    @PostConstruct
+    void init() {
+        int permits = bulkheads.libreOffice().getPermits();
+        profileSlots = new ArrayBlockingQueue<>(permits);
+        for (int slot = 0; slot < permits; slot++) {
+            profileSlots.add(slot);
+        }
+    }
+
+    public Path convertToHtml(long documentId, Path inputPdf, Path outputDir) throws IOException, InterruptedException {
+        return runConvert(documentId, inputPdf, outputDir, "html");
     }
 
-    public Path convertToPdf(Path inputHtml, Path outputDir) throws IOException, InterruptedException {
-        return runConvert(inputHtml, outputDir, "pdf");
+    public Path convertToPdf(long documentId, Path inputHtml, Path outputDir) throws IOException, InterruptedException {
+        return runConvert(documentId, inputHtml, outputDir, "pdf");
     }
 
-    public Path convertToDocx(Path inputFile, Path outputDir) throws IOException, InterruptedException {
-        return runConvert(inputFile, outputDir, "docx");
+    public Path convertToDocx(long documentId, Path inputFile, Path outputDir) throws IOException, InterruptedException {
+        return runConvert(documentId, inputFile, outputDir, "docx");
     }
 
-    private Path runConvert(Path inputFile, Path outputDir, String format) throws IOException, InterruptedException {
+    private Path runConvert(long documentId, Path inputFile, Path outputDir, String format) throws IOException, InterruptedException {
         Files.createDirectories(outputDir);
         String soffice = Files.exists(Path.of(sofficePath)) ? sofficePath : "soffice";
         String inputName = inputFile.getFileName().toString().toLowerCase();
         boolean isPdfInput = inputName.endsWith(".pdf");
-        ProcessBuilder builder;
+        List<String> command = new ArrayList<>(List.of(soffice, "--headless", "--nologo", "--nolockcheck"));
         if (isPdfInput && "docx".equalsIgnoreCase(format)) {
-            builder = new ProcessBuilder(
-                soffice,
-                "--headless",
-                "--nologo",
-                "--nolockcheck",
-                "--infilter=writer_pdf_import",
-                "--convert-to", format,
-                "--outdir", outputDir.toString(),
-                inputFile.toString()
-            );
-        } else {
-            builder = new ProcessBuilder(
-                soffice,
-                "--headless",
-                "--nologo",
-                "--nolockcheck",
-                "--convert-to", format,
-                "--outdir", outputDir.toString(),
-                inputFile.toString()
-            );
+            command.add("--infilter=writer_pdf_import");
         }
-        builder.redirectErrorStream(true);
-        Process process = builder.start();
-        int exitCode = process.waitFor();
-        if (exitCode != 0) {
-            String output = new String(process.getInputStream().readAllBytes());
-            log.error("LibreOffice conversion failed: {}", output);
-            throw new RuntimeException("LibreOffice conversion failed");
+        command.addAll(List.of("--convert-to", format, "--outdir", outputDir.toString(), inputFile.toString()));
+        Bulkhead.Permit permit = bulkheads.libreOffice().acquire();
+        try (permit) {
+            // A permit guarantees a free slot; concurrent soffice runs sharing a profile hand over to each other
+            int slot = profileSlots.take();
+            Timer.Sample sample = metrics.start();
+            ConversionEvent event = new ConversionEvent();
+            event.begin();
+            String outcome = "error";
+            int exitCode = -1;
+            try {
+                Path profile = Path.of(profileDir).toAbsolutePath().resolve("profile-" + slot);
+                Files.createDirectories(profile);
+                command.add(1, "-env:UserInstallation=" + profile.toUri());
+                Path output = profile.resolve("soffice.log");
+                Process process = new ProcessBuilder(command)
+                        .redirectErrorStream(true)
+                        .redirectOutput(output.toFile())
+                        .start();
+                try {
+                    if (!process.waitFor(timeoutSeconds, TimeUnit.SECONDS)) {
+                        outcome = "timeout";
+                        stop(process);
+                        throw new RuntimeException("LibreOffice conversion timed out");
+                    }
+                    exitCode = process.exitValue();
+                } catch (InterruptedException e) {
+                    outcome = "cancelled";
+                    stop(process);
+                    throw e;
+                }
+                if (exitCode != 0) {
+                    outcome = "failure";
+                    log.error("LibreOffice conversion failed: {}", Files.readString(output));
+                    throw new RuntimeException("LibreOffice conversion failed");
+                }
+                outcome = "success";
+            } finally {
+                profileSlots.add(slot);
+                metrics.conversion(sample, format.toLowerCase(), outcome);
+                commitEvent(event, documentId, inputFile, outputDir, format, outcome, exitCode);
+            }
         }
 
         String baseName = inputFile.getFileName().toString();
@@ -81,4 +134,57 @@ public class LibreOfficeService {
         }
         return outputFile;
     }
+
+    // Kills soffice and the processes it started and waits for them, so nothing writes into the output
+    // directory once this returns
+    private static void stop(Process process) {
+        List<ProcessHandle> processes = new ArrayList<>(process.descendants().toList());
+        processes.add(0, process.toHandle());
+        processes.forEach(ProcessHandle::destroyForcibly);
+        boolean interrupted = false;
+        for (ProcessHandle handle : processes) {
+            while (handle.isAlive()) {
+                try {
+                    handle.onExit().get();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                } catch (ExecutionException e) {
+                    break;
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void commitEvent(ConversionEvent event, long documentId, Path inputFile, Path outputDir,
+                                    String format, String outcome, int exitCode) {
+        event.end();
+        if (!event.shouldCommit()) {
+            return;
+        }
+        event.format = format.toLowerCase();
+        event.outcome = outcome;
+        event.endpoint = PipelineMetrics.endpoint();
+        event.documentId = documentId;
+        event.exitCode = exitCode;
+        event.bytesIn = inputFile.toFile().length();
+        event.bytesOut = outputSize(outputDir, inputFile);
+        event.commit();
+    }
+
+    // Conversions run in a fresh directory per request, so everything in it but the input is output
+    private static long outputSize(Path outputDir, Path inputFile) {
+        File[] files = outputDir.toFile().listFiles(File::isFile);
+        long total = 0;
+        if (files != null) {
+            for (File file : files) {
+                if (!file.toPath().equals(inputFile)) {
+                    total += file.length();
+                }
+            }
+        }
+        return total;
+    }
 }
\ No newline at end of file
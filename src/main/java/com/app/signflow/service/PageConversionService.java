@@ -0,0 +1,126 @@
+package com.app.signflow.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.Phaser;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Converts single editor pages to PDF in parallel on its own bounded pool. LibreOffice concurrency is still
+ * capped by its bulkhead; when the queue is full the calling thread converts the page itself.
+ */
+@Service
+@Slf4j
+public class PageConversionService {
+
+    private final LibreOfficeService libreOfficeService;
+    private final ThreadPoolExecutor executor;
+
+    public PageConversionService(LibreOfficeService libreOfficeService,
+                                 @Value("${editor.page-conversion.threads:${bulkheads.libreoffice.permits:2}}") int threads,
+                                 @Value("${editor.page-conversion.queue-capacity:64}") int queueCapacity) {
+        this.libreOfficeService = libreOfficeService;
+        int poolSize = Math.max(1, threads);
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "page-conversion-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    /**
+     * Converts each HTML page of the document, keyed by page index, into a PDF under {@code workDir}. Returns
+     * null if any of them does not come out as exactly one PDF page, since it could then not replace a single
+     * page.
+     */
+    public Map<Integer, Path> convertPages(long documentId, Map<Integer, String> pages, Path workDir)
+            throws IOException, InterruptedException {
+        List<Integer> indexes = new ArrayList<>(pages.keySet());
+        List<Future<Path>> futures = new ArrayList<>(indexes.size());
+        // One party for the caller and one per running task, so the caller can wait for tasks it cancelled
+        Phaser running = new Phaser(1);
+        for (Integer index : indexes) {
+            String html = pages.get(index);
+            futures.add(executor.submit(() -> {
+                if (running.register() < 0) {
+                    throw new CancellationException("Page conversion was abandoned");
+                }
+                try {
+                    return convertPage(documentId, html, workDir.resolve("page-" + index));
+                } finally {
+                    running.arriveAndDeregister();
+                }
+            }));
+        }
+
+        Map<Integer, Path> converted = new HashMap<>();
+        try {
+            for (int i = 0; i < indexes.size(); i++) {
+                converted.put(indexes.get(i), futures.get(i).get());
+            }
+        } catch (ExecutionException e) {
+            throw unwrap(e);
+        } finally {
+            futures.forEach(future -> future.cancel(true));
+            // A cancelled task may still be writing into workDir, which the caller deletes once this returns
+            running.awaitAdvance(running.arriveAndDeregister());
+        }
+
+        for (Map.Entry<Integer, Path> page : converted.entrySet()) {
+            int pageCount;
+            try (PDDocument document = Loader.loadPDF(page.getValue().toFile())) {
+                pageCount = document.getNumberOfPages();
+            }
+            if (pageCount != 1) {
+                log.info("Page {} rendered to {} PDF pages, converting the whole document", page.getKey() + 1, pageCount);
+                return null;
+            }
+        }
+        return converted;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    private Path convertPage(long documentId, String html, Path pageDir) throws IOException, InterruptedException {
+        Files.createDirectories(pageDir);
+        Path htmlFile = pageDir.resolve("page.html");
+        Files.writeString(htmlFile, html);
+        return libreOfficeService.convertToPdf(documentId, htmlFile, pageDir);
+    }
+
+    private static IOException unwrap(ExecutionException e) {
+        Throwable cause = e.getCause();
+        if (cause instanceof RuntimeException runtime) {
+            throw runtime;
+        }
+        if (cause instanceof IOException io) {
+            return io;
+        }
+        return new IOException("Page conversion failed", cause);
+    }
+}
@@ -0,0 +1,118 @@
+package com.app.signflow.service;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Finds the top-level elements of one page of editor HTML, the unit draft patches address below a page.
+ * Text and comments between elements are not counted and stay where they are; an end tag without a matching
+ * start tag, such as the one closing the page div, is ignored.
+ */
+final class PageElements {
+
+    private static final Set<String> VOID_ELEMENTS = Set.of("area", "base", "br", "col", "embed", "hr", "img",
+            "input", "link", "meta", "source", "track", "wbr");
+
+    record Span(int start, int end) {
+    }
+
+    private PageElements() {
+    }
+
+    static List<Span> find(String html) {
+        List<Span> spans = new ArrayList<>();
+        Deque<String> open = new ArrayDeque<>();
+        int start = -1;
+        int position = 0;
+        while (position < html.length()) {
+            int tagStart = html.indexOf('<', position);
+            if (tagStart < 0) {
+                break;
+            }
+            if (html.startsWith("<!--", tagStart)) {
+                int commentEnd = html.indexOf("-->", tagStart + 4);
+                position = commentEnd < 0 ? html.length() : commentEnd + 3;
+                continue;
+            }
+            boolean end = tagStart + 1 < html.length() && html.charAt(tagStart + 1) == '/';
+            String name = tagName(html, end ? tagStart + 2 : tagStart + 1);
+            if (name.isEmpty()) {
+                // a literal '<' or a declaration
+                position = tagStart + 1;
+                continue;
+            }
+            int tagEnd = tagEnd(html, tagStart);
+            position = tagEnd;
+
+            if (!end) {
+                if (open.isEmpty()) {
+                    start = tagStart;
+                }
+                if (!VOID_ELEMENTS.contains(name) && html.charAt(tagEnd - 2) != '/') {
+                    open.push(name);
+                    if (name.equals("script") || name.equals("style")) {
+                        position = indexOfIgnoreCase(html, "</" + name, position);
+                        continue;
+                    }
+                }
+            } else if (open.contains(name)) {
+                // closes any elements left open inside it, as an HTML parser would
+                while (!open.pop().equals(name)) {
+                    // keep popping
+                }
+            } else {
+                continue;
+            }
+            if (open.isEmpty() && start >= 0) {
+                spans.add(new Span(start, tagEnd));
+                start = -1;
+            }
+        }
+        if (start >= 0) {
+            spans.add(new Span(start, html.length()));
+        }
+        return spans;
+    }
+
+    private static String tagName(String html, int from) {
+        int end = from;
+        while (end < html.length() && (Character.isLetterOrDigit(html.charAt(end)) || html.charAt(end) == '-')) {
+            end++;
+        }
+        if (end == from || !Character.isLetter(html.charAt(from))) {
+            return "";
+        }
+        return html.substring(from, end).toLowerCase(Locale.ROOT);
+    }
+
+    // Index just past the closing '>', skipping any '>' inside quoted attribute values
+    private static int tagEnd(String html, int tagStart) {
+        char quote = 0;
+        for (int i = tagStart + 1; i < html.length(); i++) {
+            char c = html.charAt(i);
+            if (quote != 0) {
+                if (c == quote) {
+                    quote = 0;
+                }
+            } else if (c == '"' || c == '\'') {
+                quote = c;
+            } else if (c == '>') {
+                return i + 1;
+            }
+        }
+        return html.length();
+    }
+
+    private static int indexOfIgnoreCase(String html, String text, int from) {
+        for (int i = from; i <= html.length() - text.length(); i++) {
+            if (html.regionMatches(true, i, text, 0, text.length())) {
+                return i;
+            }
+        }
+        return html.length();
+    }
+}
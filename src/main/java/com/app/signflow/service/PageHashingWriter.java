@@ -0,0 +1,127 @@
+package com.app.signflow.service;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HexFormat;
+import java.util.List;
+
+/**
+ * Passes editor HTML through while hashing it in segments split at every {@code <div class="page">}:
+ * the first hash covers the styles before the first page, each further hash one page. Comparing the hashes
+ * of the HTML that was served with those of the HTML sent back shows which pages were changed.
+ */
+public class PageHashingWriter extends Writer {
+
+    private static final String MARKER = HtmlPageStreamer.PAGE_OPEN;
+
+    private final Writer out;
+    private final List<String> hashes = new ArrayList<>();
+    private final byte[] pending = new byte[8192];
+    private int pendingLength;
+    private MessageDigest digest = newDigest();
+    // Characters of the marker seen so far; its '<' occurs nowhere else in it, so no backtracking is needed
+    private int matched;
+    private boolean finished;
+
+    public PageHashingWriter(Writer out) {
+        this.out = out;
+    }
+
+    public PageHashingWriter() {
+        this(Writer.nullWriter());
+    }
+
+    /**
+     * Hashes of the segments written so far, styles first; no further output is accepted afterwards.
+     */
+    public List<String> hashes() {
+        if (!finished) {
+            finished = true;
+            for (int i = 0; i < matched; i++) {
+                update(MARKER.charAt(i));
+            }
+            endSegment();
+        }
+        return Collections.unmodifiableList(hashes);
+    }
+
+    @Override
+    public void write(char[] chars, int offset, int length) throws IOException {
+        out.write(chars, offset, length);
+        for (int i = offset; i < offset + length; i++) {
+            consume(chars[i]);
+        }
+    }
+
+    @Override
+    public void write(String str, int offset, int length) throws IOException {
+        out.write(str, offset, length);
+        for (int i = offset; i < offset + length; i++) {
+            consume(str.charAt(i));
+        }
+    }
+
+    @Override
+    public void write(int c) throws IOException {
+        out.write(c);
+        consume((char) c);
+    }
+
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+
+    private void consume(char c) {
+        if (finished) {
+            throw new IllegalStateException("Hashes already taken");
+        }
+        if (c == MARKER.charAt(matched)) {
+            if (++matched == MARKER.length()) {
+                endSegment();
+                matched = 0;
+            }
+            return;
+        }
+        for (int i = 0; i < matched; i++) {
+            update(MARKER.charAt(i));
+        }
+        matched = c == MARKER.charAt(0) ? 1 : 0;
+        if (matched == 0) {
+            update(c);
+        }
+    }
+
+    private void update(char c) {
+        pending[pendingLength++] = (byte) (c >> 8);
+        pending[pendingLength++] = (byte) c;
+        if (pendingLength == pending.length) {
+            digest.update(pending, 0, pendingLength);
+            pendingLength = 0;
+        }
+    }
+
+    private void endSegment() {
+        digest.update(pending, 0, pendingLength);
+        pendingLength = 0;
+        hashes.add(HexFormat.of().formatHex(digest.digest()));
+        digest = newDigest();
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
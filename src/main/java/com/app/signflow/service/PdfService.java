@@ -1,5 +1,11 @@
 package com.app.signflow.service;
 
+import com.app.signflow.config.Bulkhead;
+import com.app.signflow.config.Bulkheads;
+import com.app.signflow.config.PdfOperationEvent;
+import com.app.signflow.config.PipelineMetrics;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.pdfbox.Loader;
 import org.apache.pdfbox.pdmodel.PDDocument;
@@ -8,45 +14,50 @@ import org.apache.pdfbox.pdmodel.PDPageContentStream;
 import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
 import org.apache.pdfbox.pdmodel.font.PDType1Font;
 import org.apache.pdfbox.pdmodel.font.Standard14Fonts;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.Base64;
+import java.util.Map;
 import com.app.signflow.model.dto.ImageBlock;
+import com.app.signflow.model.dto.SpooledImage;
 import com.app.signflow.model.dto.TextBlock;
 import com.app.signflow.model.dto.TextReplaceBlock;
 
 @Service
+@RequiredArgsConstructor
 @Slf4j
 public class PdfService {
 
     private static final PDType1Font HELVETICA = new PDType1Font(Standard14Fonts.FontName.HELVETICA);
+    private static final long MEGABYTE = 1024 * 1024;
 
-    public byte[] addSignatureToPdf(String pdfPath, String signatureBase64, int pageNumber, int x, int y, Integer width, Integer height) {
-        try {
-            // Load existing PDF
-            File pdfFile = new File(pdfPath);
-            PDDocument document = Loader.loadPDF(pdfFile);
+    private final Bulkheads bulkheads;
+    private final PipelineMetrics metrics;
 
-            // Decode base64 signature image
-            String base64Image = signatureBase64;
-            if (base64Image.contains(",")) {
-                base64Image = base64Image.split(",")[1];
-            }
-            byte[] imageBytes = Base64.getDecoder().decode(base64Image);
+    // Heap taken by a loaded document relative to its file size
+    @Value("${bulkheads.pdf-memory.load-factor:4}")
+    private int loadFactor;
 
-            // Save signature as temporary file
-            File tempImageFile = File.createTempFile("signature", ".png");
-            java.nio.file.Files.write(tempImageFile.toPath(), imageBytes);
+    public byte[] addSignatureToPdf(long documentId, String pdfPath, SpooledImage signature, int pageNumber, int x, int y, Integer width, Integer height) {
+        Bulkhead.Permit permit = reserveMemory(pdfPath);
+        try (permit) {
+            PdfOperationEvent event = beginEvent("sign", documentId, pdfPath);
+            // Load existing PDF
+            File pdfFile = new File(pdfPath);
+            PDDocument document = load(pdfFile, "sign");
+            Timer.Sample modify = metrics.start();
 
             // Get the page
             PDPage page = document.getPage(pageNumber - 1); // Pages are 0-indexed
 
             // Load signature image
-            PDImageXObject pdImage = PDImageXObject.createFromFile(tempImageFile.getAbsolutePath(), document);
+            PDImageXObject pdImage = createImage(signature, document);
 
             // Add signature to page
             PDPageContentStream contentStream = new PDPageContentStream(
@@ -61,14 +72,12 @@ public class PdfService {
             contentStream.close();
 
             // Save to byte array
-            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-            document.save(outputStream);
+            metrics.pdfStage(modify, "sign", "modify");
+            byte[] result = saveIncrementally(document, "sign");
+            commitEvent(event, document, result);
             document.close();
 
-            // Clean up temp file
-            tempImageFile.delete();
-
-            return outputStream.toByteArray();
+            return result;
 
         } catch (IOException e) {
             log.error("Error adding signature to PDF", e);
@@ -76,10 +85,13 @@ public class PdfService {
         }
     }
 
-    public byte[] addTextToPdf(String pdfPath, String text, int pageNumber, int x, int y) {
-        try {
+    public byte[] addTextToPdf(long documentId, String pdfPath, String text, int pageNumber, int x, int y) {
+        Bulkhead.Permit permit = reserveMemory(pdfPath);
+        try (permit) {
+            PdfOperationEvent event = beginEvent("text", documentId, pdfPath);
             File pdfFile = new File(pdfPath);
-            PDDocument document = Loader.loadPDF(pdfFile);
+            PDDocument document = load(pdfFile, "text");
+            Timer.Sample modify = metrics.start();
 
             PDPage page = document.getPage(pageNumber - 1);
             PDPageContentStream contentStream = new PDPageContentStream(
@@ -91,11 +103,12 @@ public class PdfService {
             contentStream.endText();
             contentStream.close();
 
-            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-            document.save(outputStream);
+            metrics.pdfStage(modify, "text", "modify");
+            byte[] result = saveIncrementally(document, "text");
+            commitEvent(event, document, result);
             document.close();
 
-            return outputStream.toByteArray();
+            return result;
 
         } catch (IOException e) {
             log.error("Error adding text to PDF", e);
@@ -104,12 +117,14 @@ public class PdfService {
     }
 
     public byte[] mergePdfs(String[] pdfPaths) {
-        try {
+        Bulkhead.Permit permit = reserveMemory(pdfPaths);
+        try (permit) {
+            PdfOperationEvent event = beginEvent("merge", 0, pdfPaths);
             PDDocument mergedDocument = new PDDocument();
 
             for (String pdfPath : pdfPaths) {
                 File pdfFile = new File(pdfPath);
-                PDDocument document = Loader.loadPDF(pdfFile);
+                PDDocument document = load(pdfFile, "merge");
                 
                 for (PDPage page : document.getPages()) {
                     mergedDocument.addPage(page);
@@ -118,11 +133,15 @@ public class PdfService {
                 document.close();
             }
 
+            Timer.Sample save = metrics.start();
             ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
             mergedDocument.save(outputStream);
+            metrics.pdfStage(save, "merge", "save");
+            byte[] result = outputStream.toByteArray();
+            commitEvent(event, mergedDocument, result);
             mergedDocument.close();
 
-            return outputStream.toByteArray();
+            return result;
 
         } catch (IOException e) {
             log.error("Error merging PDFs", e);
@@ -130,10 +149,18 @@ public class PdfService {
         }
     }
 
-    public byte[] applyEdits(String pdfPath, List<TextBlock> textBlocks, List<ImageBlock> imageBlocks, List<TextReplaceBlock> replaceBlocks) {
-        try {
+    public byte[] applyEdits(long documentId, String pdfPath, List<TextBlock> textBlocks, List<ImageBlock> imageBlocks, List<TextReplaceBlock> replaceBlocks) {
+        Bulkhead.Permit permit = reserveMemory(pdfPath);
+        try (permit) {
+            PdfOperationEvent event = beginEvent("edit", documentId, pdfPath);
+            if (event.isEnabled()) {
+                event.textBlocks = textBlocks != null ? textBlocks.size() : 0;
+                event.imageBlocks = imageBlocks != null ? imageBlocks.size() : 0;
+                event.replaceBlocks = replaceBlocks != null ? replaceBlocks.size() : 0;
+            }
             File pdfFile = new File(pdfPath);
-            PDDocument document = Loader.loadPDF(pdfFile);
+            PDDocument document = load(pdfFile, "edit");
+            Timer.Sample modify = metrics.start();
 
             if (replaceBlocks != null) {
                 for (TextReplaceBlock block : replaceBlocks) {
@@ -193,16 +220,7 @@ public class PdfService {
                     PDPage page = document.getPage(block.getPage() - 1);
                     float pageHeight = page.getMediaBox().getHeight();
 
-                    String base64Image = block.getDataUrl();
-                    if (base64Image.contains(",")) {
-                        base64Image = base64Image.split(",")[1];
-                    }
-                    byte[] imageBytes = Base64.getDecoder().decode(base64Image);
-
-                    File tempImageFile = File.createTempFile("image", ".png");
-                    java.nio.file.Files.write(tempImageFile.toPath(), imageBytes);
-
-                    PDImageXObject pdImage = PDImageXObject.createFromFile(tempImageFile.getAbsolutePath(), document);
+                    PDImageXObject pdImage = createImage(block.getImage(), document);
 
                     try (PDPageContentStream contentStream = new PDPageContentStream(
                             document, page, PDPageContentStream.AppendMode.APPEND, true, true)) {
@@ -214,21 +232,137 @@ public class PdfService {
                                 block.getHeight()
                         );
                     }
-
-                    tempImageFile.delete();
                 }
             }
 
-            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-            document.save(outputStream);
+            metrics.pdfStage(modify, "edit", "modify");
+            byte[] result = saveIncrementally(document, "edit");
+            commitEvent(event, document, result);
             document.close();
-            return outputStream.toByteArray();
+            return result;
         } catch (IOException e) {
             // log.error("Error applying edits", e);
             throw new RuntimeException("Failed to apply edits");
         }
     }
 
+    /**
+     * Swaps pages of the PDF for the single page of each replacement file, keyed by zero-based page index.
+     * The new pages are appended as an incremental update, so the objects of every other page stay
+     * byte-identical.
+     */
+    public byte[] replacePages(long documentId, String pdfPath, Map<Integer, Path> replacements) {
+        String[] paths = new String[replacements.size() + 1];
+        paths[0] = pdfPath;
+        int next = 1;
+        for (Path replacement : replacements.values()) {
+            paths[next++] = replacement.toString();
+        }
+        List<PDDocument> sources = new ArrayList<>();
+        Bulkhead.Permit permit = reserveMemory(paths);
+        try (permit) {
+            PdfOperationEvent event = beginEvent("replace-pages", documentId, paths);
+            PDDocument document = load(new File(pdfPath), "replace-pages");
+            Timer.Sample modify = metrics.start();
+
+            for (Map.Entry<Integer, Path> replacement : replacements.entrySet()) {
+                // Imported pages share objects with their source, which stays open until the document is saved
+                PDDocument source = load(replacement.getValue().toFile(), "replace-pages");
+                sources.add(source);
+                PDPage copy = document.importPage(source.getPage(0));
+                // importPage appends, so the copy is moved into the old page's place
+                document.getPages().remove(copy);
+                PDPage old = document.getPage(replacement.getKey());
+                document.getPages().insertBefore(copy, old);
+                document.getPages().remove(old);
+            }
+
+            metrics.pdfStage(modify, "replace-pages", "modify");
+            byte[] result = saveIncrementally(document, "replace-pages");
+            commitEvent(event, document, result);
+            document.close();
+            return result;
+        } catch (IOException e) {
+            log.error("Error replacing PDF pages", e);
+            throw new RuntimeException("Failed to replace PDF pages");
+        } finally {
+            for (PDDocument source : sources) {
+                try {
+                    source.close();
+                } catch (IOException e) {
+                    log.debug("Could not close replacement page: {}", e.getMessage());
+                }
+            }
+        }
+    }
+
+    // Embeds the image from the heap or its spool file without another copy; PDFBox detects the format
+    private static PDImageXObject createImage(SpooledImage image, PDDocument document) throws IOException {
+        if (image == null) {
+            throw new IOException("Image data is missing");
+        }
+        if (image.inMemory()) {
+            return PDImageXObject.createFromByteArray(document, image.bytes(), "image");
+        }
+        return PDImageXObject.createFromFileByContent(image.file().toFile(), document);
+    }
+
+    // Reserves heap budget for the documents about to be loaded, one permit per megabyte
+    private Bulkhead.Permit reserveMemory(String... pdfPaths) {
+        long bytes = 0;
+        for (String pdfPath : pdfPaths) {
+            bytes += new File(pdfPath).length();
+        }
+        return bulkheads.pdfMemory().acquire((int) Math.min(Integer.MAX_VALUE, bytes * loadFactor / MEGABYTE + 1));
+    }
+
+    // Field values are only gathered when the event type is enabled in the running recording; documentId is 0
+    // when the operation spans several documents
+    private static PdfOperationEvent beginEvent(String operation, long documentId, String... pdfPaths) {
+        PdfOperationEvent event = new PdfOperationEvent();
+        if (event.isEnabled()) {
+            event.operation = operation;
+            event.endpoint = PipelineMetrics.endpoint();
+            event.documentId = documentId;
+            for (String pdfPath : pdfPaths) {
+                event.bytesIn += new File(pdfPath).length();
+            }
+        }
+        event.begin();
+        return event;
+    }
+
+    private static void commitEvent(PdfOperationEvent event, PDDocument document, byte[] result) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.pageCount = document.getNumberOfPages();
+            event.bytesOut = result.length;
+            event.commit();
+        }
+    }
+
+    private PDDocument load(File pdfFile, String operation) throws IOException {
+        Timer.Sample sample = metrics.start();
+        PDDocument document = Loader.loadPDF(pdfFile);
+        metrics.pdfStage(sample, operation, "load");
+        return document;
+    }
+
+    // Appends only the changed objects to the original bytes, so earlier revisions remain a prefix of the file
+    private byte[] saveIncrementally(PDDocument document, String operation) throws IOException {
+        Timer.Sample sample = metrics.start();
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        try {
+            document.saveIncremental(outputStream);
+        } catch (IOException | IllegalStateException e) {
+            log.warn("Incremental save not possible, rewriting the whole PDF: {}", e.getMessage());
+            outputStream.reset();
+            document.save(outputStream);
+        }
+        metrics.pdfStage(sample, operation, "save");
+        return outputStream.toByteArray();
+    }
+
     private List<String> wrapText(String text, float maxWidth, float fontSize) throws IOException {
         List<String> lines = new java.util.ArrayList<>();
         String[] words = text.replace("\n", " \n ").split("\\s+");
@@ -0,0 +1,362 @@
+package com.app.signflow.service;
+
+import com.app.signflow.config.AuthenticatedUser;
+import com.app.signflow.config.UrlSigner;
+import com.app.signflow.config.UrlSigner.SignerToken;
+import com.app.signflow.exception.TooManyRequestsException;
+import com.app.signflow.model.dto.SignatureRequest;
+import com.app.signflow.model.dto.SignerDTO;
+import com.app.signflow.model.dto.SpooledImage;
+import com.app.signflow.model.entity.Document;
+import com.app.signflow.model.entity.Document.DocumentStatus;
+import com.app.signflow.model.entity.EmailOutbox;
+import com.app.signflow.model.entity.EmailOutbox.EmailKind;
+import com.app.signflow.model.entity.Signer;
+import com.app.signflow.model.entity.Signer.SignerStatus;
+import com.app.signflow.repo.DocumentRepository;
+import com.app.signflow.repo.SignerRepository;
+import jakarta.persistence.EntityManager;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Signing workflow for documents sent to a set of external signers.
+ *
+ * <p>Signers are inserted in JDBC batches (their ids come from a sequence) and invitations are queued in the
+ * email outbox in the same transaction. The document keeps a count of pending signers; each signature
+ * decrements it in a single UPDATE that also moves the document to COMPLETED when it reaches zero, so
+ * concurrent signers on different nodes never lose a transition.
+ */
+@Service
+@Slf4j
+public class SigningWorkflowService {
+
+    private static final Pattern EMAIL = Pattern.compile("^[^@\\s]+@[^@\\s]+\\.[^@\\s]+$");
+
+    private final DocumentRepository documentRepository;
+    private final SignerRepository signerRepository;
+    private final UserCache userCache;
+    private final AuditService auditService;
+    private final EmailService emailService;
+    private final EmailOutboxService emailOutboxService;
+    private final UrlSigner urlSigner;
+    private final PdfService pdfService;
+    private final DocumentMetadataService documentMetadataService;
+    private final DocumentTextIndexService documentTextIndexService;
+    private final DocumentStorageService documentStorageService;
+    private final DocumentRevisionService documentRevisionService;
+    private final DocumentWriteLocks documentWriteLocks;
+    private final DocumentExpiryService documentExpiryService;
+    private final JdbcTemplate jdbcTemplate;
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${spring.jpa.properties.hibernate.jdbc.batch_size:50}")
+    private int batchSize;
+
+    @Value("${signing.max-signers:10000}")
+    private int maxSigners;
+
+    @Value("${signing.invitation-ttl-days:30}")
+    private long invitationTtlDays;
+
+    public SigningWorkflowService(DocumentRepository documentRepository, SignerRepository signerRepository,
+                                  UserCache userCache, AuditService auditService, EmailService emailService,
+                                  EmailOutboxService emailOutboxService, UrlSigner urlSigner, PdfService pdfService,
+                                  DocumentMetadataService documentMetadataService,
+                                  DocumentTextIndexService documentTextIndexService,
+                                  DocumentStorageService documentStorageService,
+                                  DocumentRevisionService documentRevisionService,
+                                  DocumentWriteLocks documentWriteLocks,
+                                  DocumentExpiryService documentExpiryService, JdbcTemplate jdbcTemplate,
+                                  EntityManager entityManager, PlatformTransactionManager transactionManager) {
+        this.documentRepository = documentRepository;
+        this.signerRepository = signerRepository;
+        this.userCache = userCache;
+        this.auditService = auditService;
+        this.emailService = emailService;
+        this.emailOutboxService = emailOutboxService;
+        this.urlSigner = urlSigner;
+        this.pdfService = pdfService;
+        this.documentMetadataService = documentMetadataService;
+        this.documentTextIndexService = documentTextIndexService;
+        this.documentStorageService = documentStorageService;
+        this.documentRevisionService = documentRevisionService;
+        this.documentWriteLocks = documentWriteLocks;
+        this.documentExpiryService = documentExpiryService;
+        this.jdbcTemplate = jdbcTemplate;
+        this.entityManager = entityManager;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @Transactional
+    public List<SignerDTO> addSigners(Long documentId, List<String> emails, LocalDateTime expiresAt) {
+        Document document = ownedDocument(documentId);
+        checkOpenForSigners(document.getStatus());
+
+        Set<String> existing = new HashSet<>(jdbcTemplate.queryForList(
+                "SELECT LOWER(email) FROM signers WHERE document_id = ?", String.class, documentId));
+        Set<String> recipients = new LinkedHashSet<>();
+        for (String email : emails != null ? emails : List.<String>of()) {
+            String normalized = email != null ? email.trim() : "";
+            if (!EMAIL.matcher(normalized).matches()) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid signer email: " + email);
+            }
+            if (!existing.contains(normalized.toLowerCase(Locale.ROOT))) {
+                recipients.add(normalized);
+            }
+        }
+        if (recipients.isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "No new signers");
+        }
+        if (existing.size() + recipients.size() > maxSigners) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "A document can have at most " + maxSigners + " signers");
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime deadline = expiresAt != null ? expiresAt : now.plusDays(invitationTtlDays);
+        if (!deadline.isAfter(now)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Expiry date must be in the future");
+        }
+        Duration ttl = Duration.between(now, deadline);
+        String subject = "SignFlow - Signature requested: " + document.getFileName();
+        Long ownerId = document.getOwnerId();
+
+        List<SignerDTO> created = new ArrayList<>(recipients.size());
+        List<EmailOutbox> invitations = new ArrayList<>(recipients.size());
+        List<Signer> chunk = new ArrayList<>(batchSize);
+        for (String email : recipients) {
+            chunk.add(Signer.builder()
+                    .documentId(documentId)
+                    .email(email)
+                    .status(SignerStatus.PENDING)
+                    .expiresAt(deadline)
+                    .build());
+            if (chunk.size() == batchSize) {
+                persist(chunk, document, subject, deadline, ttl, created, invitations);
+            }
+        }
+        persist(chunk, document, subject, deadline, ttl, created, invitations);
+        emailOutboxService.enqueueAll(invitations);
+
+        // The version bump makes concurrent owner edits that loaded the old state fail with a conflict.
+        // The document stays open until its latest signer deadline. The status guard catches an expiry or
+        // completion since the document was loaded; the signers and invitations then roll back.
+        int opened = jdbcTemplate.update(
+                "UPDATE documents SET pending_signers = pending_signers + ?, status = 'PENDING', " +
+                "expires_at = GREATEST(COALESCE(expires_at, ?), ?), version = version + 1, updated_at = ? " +
+                "WHERE id = ? AND status NOT IN ('COMPLETED', 'EXPIRED')",
+                created.size(), Timestamp.valueOf(deadline), Timestamp.valueOf(deadline), Timestamp.valueOf(now),
+                documentId);
+        if (opened == 0) {
+            checkOpenForSigners(DocumentStatus.valueOf(jdbcTemplate.queryForObject(
+                    "SELECT status FROM documents WHERE id = ?", String.class, documentId)));
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "Document changed while adding signers");
+        }
+        LocalDateTime documentDeadline = document.getExpiresAt() != null && document.getExpiresAt().isAfter(deadline)
+                ? document.getExpiresAt()
+                : deadline;
+        List<Long> signerIds = created.stream().map(SignerDTO::getId).toList();
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                documentExpiryService.documentDeadlineChanged(documentId, documentDeadline);
+                documentExpiryService.signerDeadlinesChanged(signerIds, deadline);
+                auditService.record(documentId, "SEND_FOR_SIGNATURE", ownerId);
+            }
+        });
+        log.info("Sent document {} to {} signers", documentId, created.size());
+        return created;
+    }
+
+    // A SIGNED document was signed by its owner alone; inviting signers makes it PENDING until they have signed
+    private static void checkOpenForSigners(DocumentStatus status) {
+        if (status == DocumentStatus.EXPIRED) {
+            throw new ResponseStatusException(HttpStatus.GONE, "Document has expired");
+        }
+        if (status == DocumentStatus.COMPLETED) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "Document is already completed");
+        }
+    }
+
+    public List<SignerDTO> getSigners(Long documentId) {
+        Document document = ownedDocument(documentId);
+        return signerRepository.findByDocumentId(documentId).stream()
+                .map(signer -> convertToDTO(signer, document))
+                .toList();
+    }
+
+    public SignerDTO getInvitation(String token) {
+        SignerToken signerToken = urlSigner.verifySignerToken(token);
+        Signer signer = signer(signerToken);
+        return convertToDTO(signer, document(signerToken.documentId()));
+    }
+
+    public Path openForSigner(String token) {
+        SignerToken signerToken = urlSigner.verifySignerToken(token);
+        signer(signerToken);
+        return documentStorageService.resolve(document(signerToken.documentId()));
+    }
+
+    public SignerDTO sign(String token, SignatureRequest signatureRequest) {
+        SignerToken signerToken = urlSigner.verifySignerToken(token);
+        try (SpooledImage signature = signatureRequest.getSignature()) {
+            return documentWriteLocks.withLock(signerToken.documentId(), () -> {
+                Signer signer = signer(signerToken);
+                if (signer.getStatus() != SignerStatus.PENDING) {
+                    throw new ResponseStatusException(HttpStatus.CONFLICT, "Document has already been signed");
+                }
+                Document document = document(signerToken.documentId());
+                if (document.getStatus() == DocumentStatus.EXPIRED) {
+                    throw new ResponseStatusException(HttpStatus.GONE, "Signing request has expired");
+                }
+
+                Path resolvedPath = documentStorageService.resolve(document);
+                documentMetadataService.validatePages(document, resolvedPath,
+                        Collections.singletonList(signatureRequest.getPage()));
+
+                // The signer row is claimed first, so a replayed or duplicate token never reaches the file. The
+                // claim is rolled back if the signature cannot be written.
+                LocalDateTime signedAt = LocalDateTime.now();
+                transactionTemplate.executeWithoutResult(status -> {
+                    int updated = jdbcTemplate.update(
+                            "UPDATE signers SET status = 'SIGNED', signed_at = ?, expires_at = NULL " +
+                            "WHERE id = ? AND status = 'PENDING'",
+                            Timestamp.valueOf(signedAt), signer.getId());
+                    if (updated == 0) {
+                        throw new ResponseStatusException(HttpStatus.CONFLICT, "Document has already been signed");
+                    }
+                    // MariaDB applies SET assignments left to right, so the CASE sees the decremented count
+                    jdbcTemplate.update(
+                            "UPDATE documents SET pending_signers = pending_signers - 1, " +
+                            "status = CASE WHEN pending_signers = 0 THEN 'COMPLETED' ELSE status END, " +
+                            "expires_at = CASE WHEN pending_signers = 0 THEN NULL ELSE expires_at END, " +
+                            "version = version + 1, updated_at = ? WHERE id = ? AND pending_signers > 0",
+                            Timestamp.valueOf(signedAt), document.getId());
+
+                    // External signers have no account, so the revision and audit entries are attributed to the owner
+                    try {
+                        byte[] signedPdf = pdfService.addSignatureToPdf(
+                                document.getId(),
+                                resolvedPath.toString(),
+                                signature,
+                                signatureRequest.getPage(),
+                                signatureRequest.getX(),
+                                signatureRequest.getY(),
+                                signatureRequest.getWidth(),
+                                signatureRequest.getHeight()
+                        );
+                        documentRevisionService.commit(document, resolvedPath, signedPdf, "SIGNER_SIGN", document.getOwnerId());
+                        documentMetadataService.updateContent(document, resolvedPath, signedPdf);
+                    } catch (TooManyRequestsException e) {
+                        throw e;
+                    } catch (Exception e) {
+                        log.error("Error applying signature of signer {}", signer.getId(), e);
+                        throw new RuntimeException("Failed to sign document");
+                    }
+                });
+                documentTextIndexService.scheduleIndex(document.getId(), document.getOwnerId(), resolvedPath);
+
+                auditService.record(document.getId(), "SIGNER_SIGN", document.getOwnerId());
+                signer.setStatus(SignerStatus.SIGNED);
+                signer.setSignedAt(signedAt);
+                return convertToDTO(signer, document);
+            });
+        }
+    }
+
+    // Flushing and clearing per chunk sends one batched insert and keeps the persistence context small
+    private void persist(List<Signer> chunk, Document document, String subject, LocalDateTime expiresAt, Duration ttl,
+                         List<SignerDTO> created, List<EmailOutbox> invitations) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        signerRepository.saveAll(chunk);
+        entityManager.flush();
+        for (Signer signer : chunk) {
+            created.add(convertToDTO(signer, document));
+            String link = emailService.signingUrl(urlSigner.signSignerToken(signer.getId(), document.getId(),
+                    expiresAt.atZone(ZoneId.systemDefault()).toInstant()));
+            invitations.add(EmailOutbox.builder()
+                    .kind(EmailKind.SIGNING_INVITATION)
+                    .recipient(signer.getEmail())
+                    .subject(subject)
+                    .body(emailService.signingInvitationBody(document.getFileName(), link, ttl))
+                    .documentId(document.getId())
+                    .requestedBy(document.getOwnerId())
+                    .build());
+        }
+        for (Signer signer : chunk) {
+            entityManager.detach(signer);
+        }
+        chunk.clear();
+    }
+
+    private Signer signer(SignerToken token) {
+        Signer signer = signerRepository.findById(token.signerId())
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.GONE, "Signing request no longer exists"));
+        if (!signer.getDocumentId().equals(token.documentId())) {
+            throw new ResponseStatusException(HttpStatus.FORBIDDEN, "Invalid signing link");
+        }
+        return signer;
+    }
+
+    private Document document(Long documentId) {
+        return documentRepository.findById(documentId)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.GONE, "Document no longer exists"));
+    }
+
+    private Document ownedDocument(Long documentId) {
+        Document document = documentRepository.findById(documentId)
+                .orElseThrow(() -> new RuntimeException("Document not found"));
+        if (!document.getOwnerId().equals(currentUserId())) {
+            throw new RuntimeException("Access denied");
+        }
+        return document;
+    }
+
+    private Long currentUserId() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication.getPrincipal() instanceof AuthenticatedUser principal) {
+            return principal.id();
+        }
+        return userCache.findByEmail(authentication.getName()).getId();
+    }
+
+    private SignerDTO convertToDTO(Signer signer, Document document) {
+        return SignerDTO.builder()
+                .id(signer.getId())
+                .documentId(signer.getDocumentId())
+                .documentName(document.getFileName())
+                .email(signer.getEmail())
+                .status(signer.getStatus())
+                .signedAt(signer.getSignedAt())
+                .build();
+    }
+}
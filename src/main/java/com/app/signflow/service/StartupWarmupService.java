@@ -0,0 +1,98 @@
+package com.app.signflow.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.apache.pdfbox.pdmodel.font.Standard14Fonts;
+import org.apache.pdfbox.pdmodel.graphics.image.LosslessFactory;
+import org.apache.pdfbox.text.PDFTextStripper;
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Takes the one-off costs off the first user requests once the node is ready: creates the beans left lazy
+ * by the faststart profile, then runs a throwaway PDF through PDFBox so its classes are initialised and the
+ * system font cache is built.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class StartupWarmupService {
+
+    private final ConfigurableListableBeanFactory beanFactory;
+
+    @Value("${startup.warmup.enabled:true}")
+    private boolean enabled;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onReady() {
+        if (enabled) {
+            Thread.ofPlatform().daemon().name("startup-warmup").start(this::warmUp);
+        }
+    }
+
+    void warmUp() {
+        long start = System.nanoTime();
+        int beans = createLazySingletons();
+        try {
+            warmUpPdfBox();
+        } catch (IOException | RuntimeException e) {
+            log.warn("PDFBox warm-up failed: {}", e.getMessage());
+        }
+        log.info("Warm-up finished in {} ms, {} lazy beans created",
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), beans);
+    }
+
+    private int createLazySingletons() {
+        int created = 0;
+        for (String name : beanFactory.getBeanDefinitionNames()) {
+            BeanDefinition definition = beanFactory.getBeanDefinition(name);
+            if (!definition.isSingleton() || definition.isAbstract() || !definition.isLazyInit()
+                    || beanFactory.containsSingleton(name)) {
+                continue;
+            }
+            try {
+                beanFactory.getBean(name);
+                created++;
+            } catch (BeansException e) {
+                log.debug("Skipped warm-up of bean {}: {}", name, e.getMessage());
+            }
+        }
+        return created;
+    }
+
+    private static void warmUpPdfBox() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (PDDocument document = new PDDocument()) {
+            PDPage page = new PDPage();
+            document.addPage(page);
+            try (PDPageContentStream content = new PDPageContentStream(document, page)) {
+                content.beginText();
+                content.setFont(new PDType1Font(Standard14Fonts.FontName.HELVETICA), 12);
+                content.newLineAtOffset(72, 720);
+                content.showText("SignFlow warm-up");
+                content.endText();
+                BufferedImage image = new BufferedImage(16, 16, BufferedImage.TYPE_INT_ARGB);
+                content.drawImage(LosslessFactory.createFromImage(document, image), 72, 600, 16, 16);
+            }
+            document.save(out);
+        }
+        try (PDDocument reloaded = Loader.loadPDF(out.toByteArray())) {
+            new PDFTextStripper().getText(reloaded);
+        }
+    }
+}
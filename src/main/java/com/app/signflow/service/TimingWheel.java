@@ -0,0 +1,86 @@
+package com.app.signflow.service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Hashed timing wheel over a bounded horizon. Each slot holds the keys due in one tick and advancing the
+ * wheel returns every key whose tick has passed. Deadlines beyond the horizon are rejected, so callers keep
+ * them in durable storage and schedule them once they come into range.
+ */
+public class TimingWheel<T> {
+
+    private final long tickMillis;
+    private final List<Set<T>> slots;
+    private final Map<T, Long> ticks = new HashMap<>();
+    private long currentTick;
+
+    public TimingWheel(long tickMillis, int slotCount, long nowMillis) {
+        this.tickMillis = tickMillis;
+        this.slots = new ArrayList<>(slotCount);
+        for (int i = 0; i < slotCount; i++) {
+            slots.add(new LinkedHashSet<>());
+        }
+        this.currentTick = nowMillis / tickMillis;
+    }
+
+    public long horizonMillis() {
+        return tickMillis * (slots.size() - 1);
+    }
+
+    // Rescheduling a key replaces its previous deadline; deadlines already past fire on the next advance
+    public synchronized boolean schedule(T key, long deadlineMillis) {
+        long tick = Math.max(deadlineMillis / tickMillis, currentTick + 1);
+        if (tick - currentTick >= slots.size()) {
+            return false;
+        }
+        cancel(key);
+        slots.get(slotIndex(tick)).add(key);
+        ticks.put(key, tick);
+        return true;
+    }
+
+    public synchronized void cancel(T key) {
+        Long tick = ticks.remove(key);
+        if (tick != null) {
+            slots.get(slotIndex(tick)).remove(key);
+        }
+    }
+
+    public synchronized List<T> advance(long nowMillis) {
+        long targetTick = nowMillis / tickMillis;
+        List<T> due = new ArrayList<>();
+        // After a long pause every scheduled key is due, no need to walk each missed tick
+        if (targetTick - currentTick >= slots.size()) {
+            for (Set<T> slot : slots) {
+                due.addAll(slot);
+                slot.clear();
+            }
+            ticks.clear();
+            currentTick = targetTick;
+            return due;
+        }
+        while (currentTick < targetTick) {
+            currentTick++;
+            Set<T> slot = slots.get(slotIndex(currentTick));
+            for (T key : slot) {
+                ticks.remove(key);
+            }
+            due.addAll(slot);
+            slot.clear();
+        }
+        return due;
+    }
+
+    public synchronized int size() {
+        return ticks.size();
+    }
+
+    private int slotIndex(long tick) {
+        return (int) Math.floorMod(tick, (long) slots.size());
+    }
+}
@@ -0,0 +1,65 @@
+package com.app.signflow.service;
+
+import com.app.signflow.model.entity.User;
+import com.app.signflow.repo.UserRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded LRU of user rows for the paths that still need the entity. Entries are evicted on
+ * {@link UserChangedEvent} and expire after a TTL so other nodes pick up changes too.
+ */
+@Service
+public class UserCache {
+
+    private final UserRepository userRepository;
+    private final long ttlMillis;
+    private final Map<String, Entry> byEmail;
+
+    public UserCache(UserRepository userRepository,
+                     @Value("${users.cache.max-size:10000}") int maxSize,
+                     @Value("${users.cache.ttl-seconds:300}") long ttlSeconds) {
+        this.userRepository = userRepository;
+        this.ttlMillis = ttlSeconds * 1000;
+        this.byEmail = new LinkedHashMap<>(Math.min(maxSize, 1024), 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    public User findByEmail(String email) {
+        Entry entry;
+        synchronized (byEmail) {
+            entry = byEmail.get(email);
+        }
+        if (entry != null && entry.expiresAt() > System.currentTimeMillis()) {
+            return entry.user();
+        }
+
+        User user = userRepository.findByEmail(email)
+                .orElseThrow(() -> new RuntimeException("User not found"));
+        synchronized (byEmail) {
+            byEmail.put(email, new Entry(user, System.currentTimeMillis() + ttlMillis));
+        }
+        return user;
+    }
+
+    @EventListener
+    public void onUserChanged(UserChangedEvent event) {
+        synchronized (byEmail) {
+            if (event.email() != null) {
+                byEmail.remove(event.email());
+            }
+            byEmail.values().removeIf(entry -> entry.user().getId().equals(event.userId()));
+        }
+    }
+
+    private record Entry(User user, long expiresAt) {
+    }
+}
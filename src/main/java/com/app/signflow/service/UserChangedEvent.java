@@ -0,0 +1,7 @@
+package com.app.signflow.service;
+
+/**
+ * Published after a user's credentials or role change so cached copies are dropped.
+ */
+public record UserChangedEvent(Long userId, String email) {
+}
@@ -0,0 +1,65 @@
+package com.app.signflow.config;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FairConcurrencyLimiterTest {
+
+	@Test
+	void rejectsWhenCapacityDoesNotFreeUpInTime() throws Exception {
+		FairConcurrencyLimiter limiter = new FairConcurrencyLimiter(4, 10);
+
+		FairConcurrencyLimiter.Lease lease = limiter.acquire("a", 4, 0);
+		assertThat(lease).isNotNull();
+		assertThat(limiter.acquire("b", 1, 20)).isNull();
+
+		lease.close();
+		assertThat(limiter.acquire("b", 1, 0)).isNotNull();
+	}
+
+	@Test
+	void freedCapacityIsSharedRoundRobinAcrossUsers() throws Exception {
+		FairConcurrencyLimiter limiter = new FairConcurrencyLimiter(1, 10);
+		FairConcurrencyLimiter.Lease blocker = limiter.acquire("a", 1, 0);
+
+		List<String> order = new CopyOnWriteArrayList<>();
+		CountDownLatch done = new CountDownLatch(3);
+		startWaiter(limiter, "a", order, done);
+		awaitQueued(limiter, 1);
+		startWaiter(limiter, "a", order, done);
+		awaitQueued(limiter, 2);
+		startWaiter(limiter, "b", order, done);
+		awaitQueued(limiter, 3);
+
+		blocker.close();
+		done.await();
+		assertThat(order).containsExactly("a", "b", "a");
+	}
+
+	private static void startWaiter(FairConcurrencyLimiter limiter, String user, List<String> order,
+									CountDownLatch done) {
+		Thread.ofPlatform().start(() -> {
+			try {
+				FairConcurrencyLimiter.Lease lease = limiter.acquire(user, 1, 5000);
+				try (lease) {
+					order.add(user);
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			} finally {
+				done.countDown();
+			}
+		});
+	}
+
+	private static void awaitQueued(FairConcurrencyLimiter limiter, int queued) throws InterruptedException {
+		while (limiter.getQueued() < queued) {
+			Thread.sleep(1);
+		}
+	}
+}
@@ -0,0 +1,77 @@
+package com.app.signflow.config;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TokenBucketRateLimiterTest {
+
+	private static final long TOKEN = TimeUnit.MILLISECONDS.toNanos(100);
+
+	private final AtomicLong now = new AtomicLong(1_000_000_000L);
+	// Ten tokens per second, bursts of five
+	private final TokenBucketRateLimiter limiter = new TokenBucketRateLimiter(10, 5, now::get);
+
+	@Test
+	void admitsAFullBurstThenReportsTheWait() {
+		for (int i = 0; i < 5; i++) {
+			assertThat(limiter.tryAcquire("a", 1)).isZero();
+		}
+
+		assertThat(limiter.tryAcquire("a", 1)).isEqualTo(TOKEN);
+		assertThat(limiter.tryAcquire("a", 3)).isEqualTo(3 * TOKEN);
+	}
+
+	@Test
+	void refillsAtTheConfiguredRate() {
+		assertThat(limiter.tryAcquire("a", 5)).isZero();
+		assertThat(limiter.tryAcquire("a", 1)).isPositive();
+
+		now.addAndGet(TOKEN);
+		assertThat(limiter.tryAcquire("a", 1)).isZero();
+		assertThat(limiter.tryAcquire("a", 1)).isEqualTo(TOKEN);
+
+		// an idle bucket fills up to the burst, never beyond it
+		now.addAndGet(60 * TOKEN);
+		assertThat(limiter.tryAcquire("a", 5)).isZero();
+		assertThat(limiter.tryAcquire("a", 1)).isEqualTo(TOKEN);
+	}
+
+	@Test
+	void rejectedRequestsDoNotConsumeTokens() {
+		assertThat(limiter.tryAcquire("a", 4)).isZero();
+		assertThat(limiter.tryAcquire("a", 2)).isEqualTo(TOKEN);
+
+		assertThat(limiter.tryAcquire("a", 1)).isZero();
+	}
+
+	@Test
+	void clampsCostToTheBurstAndToAtLeastOne() {
+		assertThat(limiter.tryAcquire("a", 50)).isZero();
+		assertThat(limiter.tryAcquire("a", 1)).isEqualTo(TOKEN);
+
+		assertThat(limiter.tryAcquire("b", 0)).isZero();
+		assertThat(limiter.tryAcquire("b", -3)).isZero();
+		assertThat(limiter.tryAcquire("b", 3)).isZero();
+		assertThat(limiter.tryAcquire("b", 1)).isEqualTo(TOKEN);
+	}
+
+	@Test
+	void keysHaveSeparateBucketsAndFullOnesAreEvicted() {
+		assertThat(limiter.tryAcquire("a", 5)).isZero();
+		assertThat(limiter.tryAcquire("b", 5)).isZero();
+		now.addAndGet(3 * TOKEN);
+		assertThat(limiter.tryAcquire("c", 1)).isZero();
+
+		now.addAndGet(TOKEN);
+		limiter.evictIdle();
+		assertThat(limiter.size()).isEqualTo(2);
+
+		now.addAndGet(TOKEN);
+		limiter.evictIdle();
+		assertThat(limiter.size()).isZero();
+	}
+}
@@ -0,0 +1,103 @@
+package com.app.signflow.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Base64;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class UrlSignerTest {
+
+	private static final String JWT_SECRET = "404E635266556A586E3272357538782F413F4428472B4B6250645367566B5970";
+
+	private final UrlSigner signer = signer("", JWT_SECRET);
+
+	@Test
+	void verifiesAnUntouchedDownloadToken() {
+		String token = signer.sign(7L, 3L, "uploads/a.pdf", "a.pdf", Instant.now().plusSeconds(60));
+
+		UrlSigner.SignedDownload download = signer.verify(7L, 3L, token);
+
+		assertThat(download.storageKey()).isEqualTo("uploads/a.pdf");
+		assertThat(download.fileName()).isEqualTo("a.pdf");
+	}
+
+	@Test
+	void rejectsATamperedPayloadOrSignature() {
+		String token = signer.sign(7L, 3L, "uploads/a.pdf", "a.pdf", Instant.now().plusSeconds(60));
+		int dot = token.indexOf('.');
+		String payload = new String(Base64.getUrlDecoder().decode(token.substring(0, dot)), StandardCharsets.UTF_8);
+		String otherFile = Base64.getUrlEncoder().withoutPadding()
+				.encodeToString(payload.replace("uploads/a.pdf", "uploads/b.pdf").getBytes(StandardCharsets.UTF_8));
+		String signature = token.substring(dot + 1);
+		String flipped = (signature.charAt(0) == 'A' ? "B" : "A") + signature.substring(1);
+
+		assertStatus(() -> signer.verify(7L, 3L, otherFile + token.substring(dot)), HttpStatus.FORBIDDEN);
+		assertStatus(() -> signer.verify(7L, 3L, token.substring(0, dot + 1) + flipped), HttpStatus.FORBIDDEN);
+		assertStatus(() -> signer.verify(8L, 3L, token), HttpStatus.FORBIDDEN);
+		assertStatus(() -> signer.verify(7L, 3L, "not-a-token"), HttpStatus.FORBIDDEN);
+	}
+
+	@Test
+	void expiredLinksAreGone() {
+		String token = signer.sign(7L, 3L, "uploads/a.pdf", "a.pdf", Instant.now().minusSeconds(1));
+
+		assertStatus(() -> signer.verify(7L, 3L, token), HttpStatus.GONE);
+	}
+
+	@Test
+	void linksIssuedForAnEarlierVersionAreGone() {
+		String token = signer.sign(7L, 3L, "uploads/a.pdf", "a.pdf", Instant.now().plusSeconds(60));
+
+		assertStatus(() -> signer.verify(7L, 4L, token), HttpStatus.GONE);
+		assertStatus(() -> signer.verify(7L, null, token), HttpStatus.GONE);
+	}
+
+	@Test
+	void signerAndDownloadTokensAreNotInterchangeable() {
+		String signerToken = signer.signSignerToken(5L, 7L, Instant.now().plusSeconds(60));
+		String downloadToken = signer.sign(7L, 3L, "uploads/a.pdf", "a.pdf", Instant.now().plusSeconds(60));
+
+		assertThat(signer.verifySignerToken(signerToken).signerId()).isEqualTo(5L);
+		assertStatus(() -> signer.verify(7L, 3L, signerToken), HttpStatus.FORBIDDEN);
+		assertStatus(() -> signer.verifySignerToken(downloadToken), HttpStatus.FORBIDDEN);
+	}
+
+	@Test
+	void theDerivedKeyIsNotTheJwtSecret() {
+		byte[] derived = ReflectionTestUtils.invokeMethod(signer, "keyBytes");
+		UrlSigner keyedWithJwtSecret = signer(JWT_SECRET, "");
+		String token = keyedWithJwtSecret.sign(7L, 3L, "uploads/a.pdf", "a.pdf", Instant.now().plusSeconds(60));
+
+		assertThat(derived).isNotEqualTo(JWT_SECRET.getBytes(StandardCharsets.UTF_8));
+		assertStatus(() -> signer.verify(7L, 3L, token), HttpStatus.FORBIDDEN);
+	}
+
+	@Test
+	void refusesToStartWithoutASecret() {
+		assertThatThrownBy(() -> signer("", ""))
+				.isInstanceOf(IllegalStateException.class)
+				.hasMessageContaining("jwt.secret");
+	}
+
+	private static UrlSigner signer(String signingSecret, String jwtSecret) {
+		UrlSigner signer = new UrlSigner();
+		ReflectionTestUtils.setField(signer, "signingSecret", signingSecret);
+		ReflectionTestUtils.setField(signer, "jwtSecret", jwtSecret);
+		ReflectionTestUtils.setField(signer, "publicBaseUrl", "http://localhost:8080");
+		signer.init();
+		return signer;
+	}
+
+	private static void assertStatus(Runnable call, HttpStatus status) {
+		assertThatThrownBy(call::run)
+				.isInstanceOfSatisfying(ResponseStatusException.class,
+						e -> assertThat(e.getStatusCode()).isEqualTo(status));
+	}
+}
@@ -0,0 +1,53 @@
+package com.app.signflow.service;
+
+import com.app.signflow.service.AuditSegmentStore.BlockInfo;
+import com.app.signflow.service.AuditSegmentStore.BlockMembers;
+import com.app.signflow.service.AuditSegmentStore.SegmentIndex;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AuditSegmentStoreTest {
+
+	@Test
+	void blockMembersNeverMissAnId() {
+		Set<Long> keys = new HashSet<>();
+		for (long id = 1; id <= 500; id++) {
+			keys.add(BlockMembers.key(BlockMembers.DOCUMENT, id * 7));
+			keys.add(BlockMembers.key(BlockMembers.USER, id));
+		}
+		BlockInfo block = block(BlockMembers.of(keys));
+
+		for (long id = 1; id <= 500; id++) {
+			assertThat(block.mayContainDocument(id * 7)).isTrue();
+			assertThat(block.mayContainUser(id)).isTrue();
+		}
+		long falsePositives = 0;
+		for (long id = 10_000; id < 20_000; id++) {
+			if (block.mayContainDocument(id) || block.mayContainOwner(id)) {
+				falsePositives++;
+			}
+		}
+		assertThat(falsePositives).isLessThan(500);
+	}
+
+	@Test
+	void indexKeepsMembers() {
+		BlockMembers members = BlockMembers.of(Set.of(BlockMembers.key(BlockMembers.OWNER, 42L)));
+		SegmentIndex index = new SegmentIndex("audit_p202401", "ab", 1, 1000, 2000, List.of(block(members)));
+
+		SegmentIndex parsed = SegmentIndex.parse(Arrays.asList(index.format().split("\n")));
+
+		assertThat(parsed.blocks().get(0).members().bits()).isEqualTo(members.bits());
+		assertThat(parsed.blocks().get(0).mayContainOwner(42)).isTrue();
+	}
+
+	private static BlockInfo block(BlockMembers members) {
+		return new BlockInfo(0, 10, 1, 1000, 2000, 1, 1, 0, members);
+	}
+}
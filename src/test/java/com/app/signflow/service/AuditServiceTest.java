@@ -0,0 +1,108 @@
+package com.app.signflow.service;
+
+import com.app.signflow.config.PipelineMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AuditServiceTest {
+
+	@TempDir
+	Path dir;
+
+	private final FakeDatabase database = new FakeDatabase();
+
+	@Test
+	void anOutageIsReplayedFromTheSpillFileInOrder() throws IOException {
+		AuditService audit = start();
+		database.down = true;
+		for (long document = 1; document <= 50; document++) {
+			audit.record(document, "UPLOAD", 1L);
+			audit.flush();
+		}
+		assertThat(database.documentIds).isEmpty();
+		assertThat(audit.getQueueDepth()).isEqualTo(50);
+
+		database.down = false;
+		audit.flush();
+
+		assertThat(database.documentIds).containsExactlyElementsOf(range(1, 50));
+		assertThat(audit.getQueueDepth()).isZero();
+	}
+
+	@Test
+	void directInsertsAreNotWrittenTwice() throws IOException {
+		AuditService audit = start();
+		for (long document = 1; document <= 25; document++) {
+			audit.record(document, "UPLOAD", 1L);
+		}
+		database.down = true;
+		audit.record(26L, "UPLOAD", 1L);
+		database.down = false;
+		audit.flush();
+
+		assertThat(database.documentIds).containsExactlyInAnyOrderElementsOf(range(1, 26));
+	}
+
+	@Test
+	void eventsPastTheCheckpointAreReplayedAfterARestart() throws IOException {
+		AuditService audit = start();
+		audit.record(1L, "UPLOAD", 1L);
+		audit.flush();
+		database.down = true;
+		audit.record(2L, "EDIT", 1L);
+		audit.record(3L, "SIGN", 1L);
+		audit.stop();
+
+		database.down = false;
+		AuditService restarted = start();
+		restarted.record(4L, "DOWNLOAD", 1L);
+		restarted.stop();
+		start().stop();
+
+		assertThat(database.documentIds).containsExactly(1L, 2L, 3L, 4L);
+	}
+
+	private AuditService start() throws IOException {
+		PipelineMetrics metrics = new PipelineMetrics(new SimpleMeterRegistry());
+		DocumentStorageService storage = new DocumentStorageService(metrics);
+		ReflectionTestUtils.setField(storage, "uploadDir", dir.toString());
+		AuditService audit = new AuditService(database, storage, metrics);
+		ReflectionTestUtils.setField(audit, "queueCapacity", 10);
+		ReflectionTestUtils.setField(audit, "batchSize", 4);
+		ReflectionTestUtils.setField(audit, "enqueueTimeoutMs", 1L);
+		audit.start();
+		return audit;
+	}
+
+	private static List<Long> range(long from, long to) {
+		return LongStream.rangeClosed(from, to).boxed().toList();
+	}
+
+	private static class FakeDatabase extends JdbcTemplate {
+		private final List<Long> documentIds = new ArrayList<>();
+		private volatile boolean down;
+
+		@Override
+		public synchronized int update(String sql, Object... args) {
+			if (down) {
+				throw new DataAccessResourceFailureException("Connection refused");
+			}
+			for (int i = 0; i < args.length; i += 5) {
+				documentIds.add((Long) args[i]);
+			}
+			return args.length / 5;
+		}
+	}
+}
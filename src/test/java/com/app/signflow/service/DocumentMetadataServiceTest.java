@@ -0,0 +1,48 @@
+package com.app.signflow.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DocumentMetadataServiceTest {
+
+	@TempDir
+	Path dir;
+
+	@Test
+	void recognisesWordPackagesByTheirEntries() throws IOException {
+		assertThat(DocumentMetadataService.isWordPackage(zip("contract.bin", "[Content_Types].xml", "word/document.xml")))
+				.isTrue();
+		assertThat(DocumentMetadataService.isWordPackage(zip("sheet.docx", "[Content_Types].xml", "xl/workbook.xml")))
+				.isFalse();
+		assertThat(DocumentMetadataService.isWordPackage(zip("archive.docx", "word/document.xml"))).isFalse();
+	}
+
+	@Test
+	void aTruncatedZipIsNotAWordPackage() throws IOException {
+		Path file = dir.resolve("broken.docx");
+		Files.write(file, new byte[]{'P', 'K', 0x03, 0x04, 1, 2, 3});
+
+		assertThat(DocumentMetadataService.isWordPackage(file)).isFalse();
+	}
+
+	private Path zip(String name, String... entries) throws IOException {
+		Path file = dir.resolve(name);
+		try (OutputStream out = Files.newOutputStream(file); ZipOutputStream zip = new ZipOutputStream(out)) {
+			for (String entry : entries) {
+				zip.putNextEntry(new ZipEntry(entry));
+				zip.write("<x/>".getBytes());
+				zip.closeEntry();
+			}
+		}
+		return file;
+	}
+}
@@ -0,0 +1,122 @@
+package com.app.signflow.service;
+
+import com.app.signflow.model.dto.DraftOperation;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class DraftPagesTest {
+
+	private static final List<String> STORED = List.of("<style>p{}</style>", "<p>One</p></div>", "<p>Two</p></div>",
+			"<p>Three</p></div>");
+
+	private final List<Integer> loaded = new ArrayList<>();
+
+	@Test
+	void replacingAPageWritesOnlyThatPage() {
+		DraftPages pages = pages();
+		pages.apply(op(DraftOperation.Type.REPLACE_PAGE, 2, null, "<p>Zwei</p>"));
+
+		assertThat(pages.writes()).containsExactly(Map.entry(2, "<p>Zwei</p></div>"));
+		assertThat(pages.truncated()).isFalse();
+		assertThat(loaded).isEmpty();
+	}
+
+	@Test
+	void insertingAPageMovesTheFollowingPages() {
+		DraftPages pages = pages();
+		pages.apply(op(DraftOperation.Type.INSERT_PAGE, 2, null, "<p>New</p>"));
+
+		assertThat(pages.pageCount()).isEqualTo(4);
+		assertThat(pages.writes()).containsExactly(
+				Map.entry(2, "<p>New</p></div>"),
+				Map.entry(3, "<p>Two</p></div>"),
+				Map.entry(4, "<p>Three</p></div>"));
+		assertThat(loaded).containsExactly(2, 3);
+	}
+
+	@Test
+	void deletingAPageMovesTheFollowingPagesAndTruncates() {
+		DraftPages pages = pages();
+		pages.apply(op(DraftOperation.Type.DELETE_PAGE, 1, null, null));
+
+		assertThat(pages.pageCount()).isEqualTo(2);
+		assertThat(pages.writes()).containsExactly(
+				Map.entry(1, "<p>Two</p></div>"),
+				Map.entry(2, "<p>Three</p></div>"));
+		assertThat(pages.truncated()).isTrue();
+	}
+
+	@Test
+	void laterOperationsSeeEarlierOnes() {
+		DraftPages pages = pages();
+		pages.apply(op(DraftOperation.Type.INSERT_PAGE, 4, null, "<p>Four</p>"));
+		pages.apply(op(DraftOperation.Type.DELETE_PAGE, 1, null, null));
+		pages.apply(op(DraftOperation.Type.INSERT_ELEMENT, 3, 1, "<h1>Title</h1>"));
+		pages.apply(op(DraftOperation.Type.INSERT_ELEMENT, 1, 2, "<p>After two</p>"));
+		pages.apply(op(DraftOperation.Type.REPLACE_ELEMENT, 2, 1, "<p>Drei</p>"));
+		pages.apply(op(DraftOperation.Type.REPLACE_STYLES, null, null, "<style>h1{}</style>"));
+
+		assertThat(pages.pageCount()).isEqualTo(3);
+		assertThat(pages.writes()).containsExactly(
+				Map.entry(0, "<style>h1{}</style>"),
+				Map.entry(1, "<p>Two</p><p>After two</p></div>"),
+				Map.entry(2, "<p>Drei</p></div>"),
+				Map.entry(3, "<h1>Title</h1><p>Four</p></div>"));
+		assertThat(pages.truncated()).isFalse();
+		assertThat(loaded).containsExactlyInAnyOrder(2, 3);
+	}
+
+	@Test
+	void deletingAnElementKeepsTheRestOfThePage() {
+		DraftPages pages = pages();
+		pages.apply(op(DraftOperation.Type.INSERT_ELEMENT, 1, 1, "<h1>Title</h1>"));
+		pages.apply(op(DraftOperation.Type.DELETE_ELEMENT, 1, 2, null));
+
+		assertThat(pages.writes()).containsExactly(Map.entry(1, "<h1>Title</h1></div>"));
+	}
+
+	@Test
+	void rejectsPagesOutOfRangeAndPageDivsInContent() {
+		DraftPages pages = pages();
+
+		assertThatThrownBy(() -> pages.apply(op(DraftOperation.Type.DELETE_PAGE, 4, null, null)))
+				.isInstanceOf(ResponseStatusException.class);
+		assertThatThrownBy(() -> pages.apply(op(DraftOperation.Type.REPLACE_PAGE, 1, null,
+				"<p>x</p></div>" + HtmlPageStreamer.PAGE_OPEN + "<p>y</p>")))
+				.isInstanceOf(ResponseStatusException.class);
+	}
+
+	@Test
+	void compressedPagesRoundTrip() {
+		String page = "<p>Grüße ✓</p>".repeat(5000) + "</div>";
+
+		byte[] compressed = DocumentDraftService.compress(page);
+
+		assertThat(compressed.length).isLessThan(page.length() / 10);
+		assertThat(DocumentDraftService.decompress(compressed)).isEqualTo(page);
+		assertThat(DocumentDraftService.decompress(DocumentDraftService.compress(""))).isEmpty();
+	}
+
+	private DraftPages pages() {
+		return new DraftPages(STORED.size() - 1, page -> {
+			loaded.add(page);
+			return STORED.get(page);
+		});
+	}
+
+	private static DraftOperation op(DraftOperation.Type type, Integer page, Integer element, String html) {
+		DraftOperation operation = new DraftOperation();
+		operation.setOp(type);
+		operation.setPage(page);
+		operation.setElement(element);
+		operation.setHtml(html);
+		return operation;
+	}
+}
@@ -0,0 +1,60 @@
+package com.app.signflow.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class HtmlPageStreamerTest {
+
+	@Test
+	void keepsHeadStylesAndSplitsBodyAtPageBreaks() throws Exception {
+		String html = """
+				<!DOCTYPE HTML PUBLIC "-//W3C//DTD HTML 4.0 Transitional//EN">
+				<html><head>
+				<meta http-equiv="content-type" content="text/html; charset=utf-8"/><title>Contract</title>
+				<style type="text/css">p { margin: 0 } a < b</style>
+				</head>
+				<body lang="en-US"><p>One</p><P STYLE="margin: 0; PAGE-BREAK-BEFORE : Always">Two</P></body>
+				</html>""";
+
+		assertThat(transform(html)).isEqualTo(
+				"<style type=\"text/css\">p { margin: 0 } a < b</style>" +
+				"<div class=\"page\"><p>One</p></div><div class=\"page\">" +
+				"<P STYLE=\"margin: 0; page-break-before:always\">Two</P></div>");
+	}
+
+	@Test
+	void blankBodyProducesOnlyStyles() throws Exception {
+		assertThat(transform("<html><head><style>p{}</style></head><body>\n  \n</body></html>"))
+				.isEqualTo("<style>p{}</style>");
+	}
+
+	@Test
+	void bodyAlreadySplitIntoPagesIsNotWrappedAgain() throws Exception {
+		assertThat(transform("<html><body>\n<div class=\"page\">One</div></body></html>"))
+				.isEqualTo("\n<div class=\"page\">One</div>");
+	}
+
+	@Test
+	void streamsTagsLongerThanTheBufferUnchanged() throws Exception {
+		String image = "<img src=\"data:image/png;base64," + "A".repeat(HtmlPageStreamer.MAX_TAG_LENGTH * 3) + "\">";
+
+		assertThat(transform("<html><body>" + image + "<!-- <p style=\"page-break-before:always\"> --></body></html>"))
+				.isEqualTo("<div class=\"page\">" + image + "<!-- <p style=\"page-break-before:always\"> --></div>");
+	}
+
+	@Test
+	void contentWithoutBodyTagStartsAtFirstBodyElement() throws Exception {
+		assertThat(transform("<html><head><title>x</title></head><p>Text")).isEqualTo("<div class=\"page\"><p>Text</div>");
+	}
+
+	private static String transform(String html) throws IOException {
+		StringWriter out = new StringWriter();
+		HtmlPageStreamer.transform(new StringReader(html), out);
+		return out.toString();
+	}
+}
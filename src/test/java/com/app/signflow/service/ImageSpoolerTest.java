@@ -0,0 +1,85 @@
+package com.app.signflow.service;
+
+import com.app.signflow.model.dto.ImageBlock;
+import com.app.signflow.model.dto.SignatureRequest;
+import com.app.signflow.model.dto.SpooledImage;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.web.server.ResponseStatusException;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Base64;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ImageSpoolerTest {
+
+	private final JsonMapper mapper = JsonMapper.builder().build();
+
+	@Test
+	void decodesLargeBase64StraightIntoATempFile() throws Exception {
+		byte[] image = new byte[ImageSpooler.MEMORY_THRESHOLD * 3 + 17];
+		new Random(1).nextBytes(image);
+		String json = "{\"page\":2,\"signature\":\"" + Base64.getEncoder().encodeToString(image) + "\",\"x\":5}";
+
+		SignatureRequest request = mapper.readValue(
+				new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)), SignatureRequest.class);
+
+		SpooledImage signature = request.getSignature();
+		assertThat(signature.inMemory()).isFalse();
+		assertThat(Files.readAllBytes(signature.file())).isEqualTo(image);
+		assertThat(request.getPage()).isEqualTo(2);
+		assertThat(request.getX()).isEqualTo(5);
+
+		Path file = signature.file();
+		signature.close();
+		assertThat(file).doesNotExist();
+	}
+
+	@Test
+	void keepsSmallImagesOnTheHeap() throws Exception {
+		String json = "{\"page\":1,\"image\":\"" + Base64.getEncoder().encodeToString(new byte[]{1, 2, 3}) + "\"}";
+
+		ImageBlock block = mapper.readValue(json, ImageBlock.class);
+
+		assertThat(block.getImage().inMemory()).isTrue();
+		assertThat(block.getImage().bytes()).containsExactly(1, 2, 3);
+	}
+
+	@Test
+	void acceptsDataUrlsFromOlderClients() throws Exception {
+		String json = "{\"dataUrl\":\"data:image/png;base64," + Base64.getEncoder().encodeToString(new byte[]{4, 5}) + "\"}";
+
+		ImageBlock block = mapper.readValue(json, ImageBlock.class);
+
+		assertThat(block.getImage().bytes()).containsExactly(4, 5);
+	}
+
+	@Test
+	void rejectsDataUrlsThatAreNotBase64() {
+		assertThatThrownBy(() -> ImageSpooler.fromDataUrl("data:image/png;base64,AAEC$$%%"))
+				.isInstanceOf(ResponseStatusException.class)
+				.hasMessageContaining("400");
+	}
+
+	@Test
+	void takesOverLargeMultipartParts() throws Exception {
+		byte[] image = new byte[ImageSpooler.MEMORY_THRESHOLD + 1];
+		new Random(2).nextBytes(image);
+
+		try (SpooledImage spooled = ImageSpooler.fromPart(new MockMultipartFile("signature", image))) {
+			assertThat(spooled.inMemory()).isFalse();
+			assertThat(spooled.size()).isEqualTo(image.length);
+			assertThat(Files.readAllBytes(spooled.file())).isEqualTo(image);
+		}
+		try (SpooledImage spooled = ImageSpooler.fromPart(new MockMultipartFile("signature", new byte[]{7}))) {
+			assertThat(spooled.bytes()).containsExactly(7);
+		}
+	}
+}
@@ -0,0 +1,36 @@
+package com.app.signflow.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PageElementsTest {
+
+	@Test
+	void findsTopLevelElementsOfAPage() {
+		String page = "\n<p>One <b>bold</b></p> text <br><table><tr><td>x</td></tr></table><!-- <p> --></div>";
+
+		assertThat(elements(page)).containsExactly("<p>One <b>bold</b></p>", "<br>", "<table><tr><td>x</td></tr></table>");
+	}
+
+	@Test
+	void ignoresMarkupInsideAttributesAndScripts() {
+		String page = "<p title=\"a > b\">x</p><script>if (a < b) { document.write('</p>') }</script><img src=\"y\"/>";
+
+		assertThat(elements(page)).containsExactly("<p title=\"a > b\">x</p>",
+				"<script>if (a < b) { document.write('</p>') }</script>", "<img src=\"y\"/>");
+	}
+
+	@Test
+	void closesElementsLeftOpenInsideAParent() {
+		assertThat(elements("<div><p>One<p>Two</div><p>Three")).containsExactly("<div><p>One<p>Two</div>", "<p>Three");
+	}
+
+	private static List<String> elements(String page) {
+		return PageElements.find(page).stream()
+				.map(span -> page.substring(span.start(), span.end()))
+				.toList();
+	}
+}
@@ -0,0 +1,52 @@
+package com.app.signflow.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PageHashingWriterTest {
+
+	private static final String HTML = "<style>p{}</style><div class=\"page\"><p>One</p></div>"
+			+ "<div class=\"page\"><p>Two <div class=\"pag</p></div><div class=\"page\"><p>Three</p></div>";
+
+	@Test
+	void hashesStylesAndEachPageSeparately() throws Exception {
+		StringWriter out = new StringWriter();
+		PageHashingWriter writer = new PageHashingWriter(out);
+		writer.write(HTML);
+
+		assertThat(out.toString()).isEqualTo(HTML);
+		assertThat(writer.hashes()).hasSize(4).doesNotHaveDuplicates();
+	}
+
+	@Test
+	void onlyTheEditedPageChangesItsHash() throws Exception {
+		List<String> before = hash(HTML);
+		List<String> after = hash(HTML.replace("Two", "Zwei"));
+
+		assertThat(after).hasSize(4);
+		assertThat(after.get(2)).isNotEqualTo(before.get(2));
+		assertThat(List.of(after.get(0), after.get(1), after.get(3)))
+				.containsExactly(before.get(0), before.get(1), before.get(3));
+	}
+
+	@Test
+	void hashesDoNotDependOnHowTheOutputIsChunked() throws Exception {
+		PageHashingWriter writer = new PageHashingWriter();
+		for (char c : HTML.toCharArray()) {
+			writer.write(c);
+		}
+
+		assertThat(writer.hashes()).isEqualTo(hash(HTML));
+	}
+
+	private static List<String> hash(String html) throws IOException {
+		PageHashingWriter writer = new PageHashingWriter();
+		writer.write(html);
+		return writer.hashes();
+	}
+}
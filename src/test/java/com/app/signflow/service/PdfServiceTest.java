@@ -0,0 +1,77 @@
+package com.app.signflow.service;
+
+import com.app.signflow.config.Bulkheads;
+import com.app.signflow.config.PipelineMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.apache.pdfbox.pdmodel.font.Standard14Fonts;
+import org.apache.pdfbox.text.PDFTextStripper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PdfServiceTest {
+
+	private final PdfService pdfService = new PdfService(new Bulkheads(2, 1000, 2, 1000, 512, 1000),
+			new PipelineMetrics(new SimpleMeterRegistry()));
+
+	@TempDir
+	Path dir;
+
+	@Test
+	void replacesAPageAsAnIncrementalUpdate() throws IOException {
+		Path original = write("original.pdf", PDRectangle.A4, "Page one", "Page two", "Page three");
+		Path replacement = write("replacement.pdf", PDRectangle.LETTER, "Seite zwei");
+		byte[] before = Files.readAllBytes(original);
+
+		byte[] after = pdfService.replacePages(1L, original.toString(), Map.of(1, replacement));
+
+		assertThat(after.length).isGreaterThan(before.length);
+		assertThat(Arrays.copyOf(after, before.length)).isEqualTo(before);
+		try (PDDocument document = Loader.loadPDF(after)) {
+			assertThat(document.getNumberOfPages()).isEqualTo(3);
+			assertThat(text(document, 1)).isEqualTo("Page one");
+			assertThat(text(document, 2)).isEqualTo("Seite zwei");
+			assertThat(text(document, 3)).isEqualTo("Page three");
+			assertThat(document.getPage(1).getMediaBox().getWidth()).isEqualTo(PDRectangle.LETTER.getWidth());
+		}
+	}
+
+	private Path write(String name, PDRectangle size, String... pageTexts) throws IOException {
+		Path file = dir.resolve(name);
+		try (PDDocument document = new PDDocument()) {
+			for (String pageText : pageTexts) {
+				PDPage page = new PDPage(size);
+				document.addPage(page);
+				try (PDPageContentStream content = new PDPageContentStream(document, page)) {
+					content.beginText();
+					content.setFont(new PDType1Font(Standard14Fonts.FontName.HELVETICA), 12);
+					content.newLineAtOffset(72, 720);
+					content.showText(pageText);
+					content.endText();
+				}
+			}
+			document.save(file.toFile());
+		}
+		return file;
+	}
+
+	private static String text(PDDocument document, int page) throws IOException {
+		PDFTextStripper stripper = new PDFTextStripper();
+		stripper.setStartPage(page);
+		stripper.setEndPage(page);
+		return stripper.getText(document).trim();
+	}
+}
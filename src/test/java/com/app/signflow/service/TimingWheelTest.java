@@ -0,0 +1,81 @@
+package com.app.signflow.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TimingWheelTest {
+
+	// One-second ticks over eight slots, starting in tick 5
+	private final TimingWheel<String> wheel = new TimingWheel<>(1000, 8, 5_500);
+
+	@Test
+	void keysFireInTheirTickAfterTheWheelWrapsAround() {
+		assertThat(wheel.schedule("a", 11_000)).isTrue();
+		assertThat(wheel.schedule("b", 12_400)).isTrue();
+
+		assertThat(wheel.advance(10_999)).isEmpty();
+		assertThat(wheel.advance(11_000)).containsExactly("a");
+		assertThat(wheel.advance(12_999)).containsExactly("b");
+		assertThat(wheel.size()).isZero();
+
+		// slot of tick 11 again, one full turn later
+		assertThat(wheel.schedule("c", 19_000)).isTrue();
+		assertThat(wheel.advance(18_999)).isEmpty();
+		assertThat(wheel.advance(19_000)).containsExactly("c");
+	}
+
+	@Test
+	void rejectsDeadlinesBeyondTheHorizon() {
+		assertThat(wheel.horizonMillis()).isEqualTo(7_000);
+		assertThat(wheel.schedule("edge", 12_999)).isTrue();
+		assertThat(wheel.schedule("far", 13_000)).isFalse();
+		assertThat(wheel.size()).isEqualTo(1);
+	}
+
+	@Test
+	void pastDeadlinesFireOnTheNextAdvance() {
+		wheel.schedule("late", 1_000);
+
+		assertThat(wheel.advance(6_000)).containsExactly("late");
+	}
+
+	@Test
+	void aLongPauseReleasesEverythingAtOnce() {
+		wheel.schedule("a", 7_000);
+		wheel.schedule("b", 12_000);
+
+		assertThat(wheel.advance(3_600_000)).containsExactlyInAnyOrder("a", "b");
+		assertThat(wheel.size()).isZero();
+
+		assertThat(wheel.schedule("c", 3_602_000)).isTrue();
+		assertThat(wheel.advance(3_601_999)).isEmpty();
+		assertThat(wheel.advance(3_602_000)).containsExactly("c");
+	}
+
+	@Test
+	void reschedulingReplacesTheEarlierDeadline() {
+		wheel.schedule("a", 7_000);
+		wheel.schedule("a", 9_000);
+
+		assertThat(wheel.size()).isEqualTo(1);
+		assertThat(wheel.advance(8_999)).isEmpty();
+		assertThat(wheel.advance(9_000)).containsExactly("a");
+
+		wheel.schedule("b", 12_000);
+		wheel.schedule("b", 10_000);
+		assertThat(wheel.advance(10_000)).containsExactly("b");
+		assertThat(wheel.advance(12_000)).isEmpty();
+	}
+
+	@Test
+	void cancelledKeysNeverFire() {
+		wheel.schedule("a", 7_000);
+		wheel.schedule("b", 7_000);
+		wheel.cancel("a");
+		wheel.cancel("unknown");
+
+		assertThat(wheel.size()).isEqualTo(1);
+		assertThat(wheel.advance(8_000)).containsExactly("b");
+	}
+}